@@ -12,6 +12,8 @@ plugins {
     `maven-publish`
     id("io.github.gradle-nexus.publish-plugin") version "1.0.0"
     id("org.jmailen.kotlinter") version "5.2.0" apply false
+    id("org.graalvm.buildtools.native") version "0.11.1" apply false
+    id("me.champeau.jmh") version "0.7.3" apply false
     id("org.sonarqube") version "7.2.2.6593"
     id("pl.allegro.tech.build.axion-release") version "1.21.0"
     jacoco
@@ -0,0 +1,49 @@
+import io.spring.gradle.dependencymanagement.dsl.DependencyManagementExtension
+import kotlin.apply
+
+plugins {
+    kotlin("jvm")
+    application
+    id("org.graalvm.buildtools.native")
+}
+
+repositories {
+    mavenCentral()
+}
+
+apply(plugin = "io.spring.dependency-management")
+the<DependencyManagementExtension>().apply {
+    imports {
+        mavenBom(org.springframework.boot.gradle.plugin.SpringBootPlugin.BOM_COORDINATES)
+    }
+}
+
+dependencies {
+
+    implementation(project(":restdocs-api-spec-model"))
+    implementation(project(":restdocs-api-spec-openapi-generator"))
+    implementation(project(":restdocs-api-spec-openapi3-generator"))
+    implementation(project(":restdocs-api-spec-postman-generator"))
+    implementation("tools.jackson.core:jackson-databind:3.0.2")
+    implementation("tools.jackson.module:jackson-module-kotlin:3.0.2")
+
+    compileOnly("org.graalvm.sdk:nativeimage:24.2.1")
+
+    testImplementation("org.junit.jupiter:junit-jupiter-engine")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testImplementation("org.assertj:assertj-core")
+    testImplementation("com.jayway.jsonpath:json-path:2.10.0")
+}
+
+application {
+    mainClass.set("com.epages.restdocs.apispec.cli.ApiSpecCliKt")
+    applicationName = "restdocs-api-spec"
+}
+
+graalvmNative {
+    binaries {
+        named("main") {
+            imageName.set("restdocs-api-spec")
+        }
+    }
+}
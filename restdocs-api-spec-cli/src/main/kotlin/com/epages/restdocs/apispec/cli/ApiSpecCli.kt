@@ -0,0 +1,195 @@
+package com.epages.restdocs.apispec.cli
+
+import com.epages.restdocs.apispec.model.Audience
+import com.epages.restdocs.apispec.model.DirectoryExampleStore
+import com.epages.restdocs.apispec.model.ExampleStore
+import com.epages.restdocs.apispec.model.PathIndex
+import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ResourceModelCanonicalizer
+import com.epages.restdocs.apispec.model.ResourceModelProjection
+import com.epages.restdocs.apispec.model.SchemaNamingStrategy
+import com.epages.restdocs.apispec.model.SpecificationFileWriter
+import com.epages.restdocs.apispec.openapi2.OpenApi20Generator
+import com.epages.restdocs.apispec.openapi3.OpenApi3Generator
+import com.epages.restdocs.apispec.openapi3.PathItemCache
+import com.epages.restdocs.apispec.postman.PostmanCollectionGenerator
+import io.swagger.v3.oas.models.servers.Server
+import tools.jackson.databind.DeserializationFeature
+import tools.jackson.databind.SerializationFeature
+import tools.jackson.module.kotlin.jacksonMapperBuilder
+import java.io.File
+import java.io.PrintStream
+import kotlin.system.exitProcess
+
+fun main(args: Array<String>) {
+    exitProcess(ApiSpecCli.run(args))
+}
+
+/**
+ * Generates API specifications from the resource fragments written by the `resource` snippet - without a Gradle build.
+ *
+ * Uses no framework and no classpath scanning at runtime - so it starts fast on the JVM
+ * and can be compiled to a native image, see [NativeImageReflectionFeature].
+ * It keeps no state between runs - so a JVM checkpoint taken after startup can be restored for each run.
+ */
+object ApiSpecCli {
+    internal const val RESOURCE_FRAGMENT_NAME = "resource.json"
+
+    private const val USAGE_ERROR = 2
+
+    private val objectMapper = jacksonMapperBuilder().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build()
+
+    private val postmanObjectMapper = jacksonMapperBuilder().enable(SerializationFeature.INDENT_OUTPUT).build()
+
+    /**
+     * @return the exit code
+     */
+    fun run(
+        args: Array<String>,
+        out: PrintStream = System.out,
+        err: PrintStream = System.err,
+    ): Int {
+        if ("--help" in args) {
+            out.println(CliOptions.USAGE)
+            return 0
+        }
+        val options =
+            try {
+                CliOptions.parse(args.toList())
+            } catch (e: IllegalArgumentException) {
+                err.println(e.message)
+                err.println(CliOptions.USAGE)
+                return USAGE_ERROR
+            }
+
+        if (options.serve) {
+            ApiSpecDevServer(options, out).use { server ->
+                val address = server.start()
+                out.println("Serving the specifications on http://localhost:${address.port}/ - watching ${options.snippetsDirectory}")
+                server.watch()
+            }
+            return 0
+        }
+
+        SpecificationFileWriter
+            .write(options.outputDirectory, generateSpecificationFiles(options), options.outputFileNamePrefix)
+            .keys
+            .sorted()
+            .forEach { out.println(File(options.outputDirectory, it).path) }
+        return 0
+    }
+
+    /**
+     * @return the content of the specification files by their path relative to the output directory
+     */
+    internal fun generateSpecificationFiles(options: CliOptions): Map<String, String> {
+        val canonicalizer = ResourceModelCanonicalizer()
+        val resourceModels =
+            options.snippetsDirectory
+                .walkTopDown()
+                .filter { it.name == RESOURCE_FRAGMENT_NAME }
+                .map { readResourceModel(it, canonicalizer, options.type.resourceModelProjection) }
+                .toList()
+        return generateSpecificationFiles(options, resourceModels)
+    }
+
+    /**
+     * Only the path items of OpenAPI 3 specifications are cached - the other specification types are generated completely.
+     *
+     * @return the content of the specification files by their path relative to the output directory
+     */
+    internal fun generateSpecificationFiles(
+        options: CliOptions,
+        resourceModels: Collection<ResourceModel>,
+        pathItemCache: PathItemCache = PathItemCache.NONE,
+    ): Map<String, String> {
+        val exampleStore = DirectoryExampleStore(File(options.snippetsDirectory, ExampleStore.DIRECTORY_NAME))
+        val audiences =
+            (if (options.separatePublicApi) listOf(Audience.PUBLIC) else emptyList())
+                .plus(options.audiences.map { Audience(it) })
+                .distinct()
+
+        val specifications =
+            if (options.type == SpecificationType.OPENAPI3) {
+                OpenApi3Generator.generateAndSerializeForAudiences(
+                    pathIndex = PathIndex(resourceModels),
+                    audiences = audiences,
+                    servers = options.servers.map { Server().url(it) },
+                    title = options.title,
+                    description = options.description,
+                    version = options.version,
+                    format = options.format,
+                    streamingYaml = options.streamingYaml,
+                    schemaNamingStrategy = SchemaNamingStrategy.named(options.schemaNaming),
+                    exampleStore = exampleStore,
+                    pathItemCache = pathItemCache,
+                )
+            } else {
+                (listOf(null) + audiences).associateWith { audience ->
+                    val visibleResourceModels = if (audience == null) resourceModels else resourceModels.filter { audience.includes(it) }
+                    generateSpecification(options, PathIndex(visibleResourceModels), exampleStore)
+                }
+            }
+
+        val name = options.outputFileNamePrefix
+        val extension = if (options.type == SpecificationType.POSTMAN) "json" else options.format
+        return specifications.mapKeys { (audience, _) -> "${audience?.specificationName(name) ?: name}.$extension" }
+    }
+
+    /**
+     * @param projection the parts of the resource model to read - the other parts are skipped
+     * @throws tools.jackson.core.JacksonException if the file is not a valid resource fragment
+     */
+    internal fun readResourceModel(
+        file: File,
+        canonicalizer: ResourceModelCanonicalizer,
+        projection: ResourceModelProjection = ResourceModelProjection.FULL,
+    ): ResourceModel =
+        canonicalizer.canonicalize(
+            projection.filter(objectMapper.createParser(file)).use { objectMapper.readValue(it, ResourceModel::class.java) },
+        )
+
+    private fun generateSpecification(
+        options: CliOptions,
+        pathIndex: PathIndex,
+        exampleStore: ExampleStore,
+    ): String =
+        when (options.type) {
+            SpecificationType.OPENAPI ->
+                OpenApi20Generator.generateAndSerialize(
+                    pathIndex = pathIndex,
+                    basePath = options.basePath,
+                    host = options.host,
+                    schemes = options.schemes,
+                    title = options.title,
+                    description = options.description,
+                    version = options.version,
+                    format = options.format,
+                    streamingYaml = options.streamingYaml,
+                    schemaNamingStrategy = SchemaNamingStrategy.named(options.schemaNaming),
+                    exampleStore = exampleStore,
+                )
+            SpecificationType.OPENAPI3 ->
+                OpenApi3Generator.generateAndSerialize(
+                    pathIndex = pathIndex,
+                    servers = options.servers.map { Server().url(it) },
+                    title = options.title,
+                    description = options.description,
+                    version = options.version,
+                    format = options.format,
+                    streamingYaml = options.streamingYaml,
+                    schemaNamingStrategy = SchemaNamingStrategy.named(options.schemaNaming),
+                    exampleStore = exampleStore,
+                )
+            SpecificationType.POSTMAN ->
+                postmanObjectMapper.writeValueAsString(
+                    PostmanCollectionGenerator.generate(
+                        pathIndex = pathIndex,
+                        title = options.title,
+                        version = options.version,
+                        baseUrl = options.baseUrl,
+                        exampleStore = exampleStore,
+                    ),
+                )
+        }
+}
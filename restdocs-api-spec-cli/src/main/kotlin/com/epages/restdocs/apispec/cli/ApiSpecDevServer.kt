@@ -0,0 +1,194 @@
+package com.epages.restdocs.apispec.cli
+
+import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ResourceModelCanonicalizer
+import com.epages.restdocs.apispec.openapi3.MemoryPathItemCache
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import tools.jackson.core.JacksonException
+import java.io.Closeable
+import java.io.PrintStream
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.nio.file.ClosedWatchServiceException
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardWatchEventKinds.ENTRY_CREATE
+import java.nio.file.StandardWatchEventKinds.ENTRY_DELETE
+import java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY
+import java.nio.file.StandardWatchEventKinds.OVERFLOW
+import java.nio.file.WatchKey
+import java.security.MessageDigest
+import java.util.HexFormat
+import java.util.TreeMap
+import java.util.concurrent.TimeUnit
+import kotlin.io.path.isDirectory
+import kotlin.io.path.isRegularFile
+import kotlin.io.path.name
+
+/**
+ * Serves the specifications over HTTP and generates them again whenever resource fragments in the snippets directory change.
+ *
+ * The resource models and the generated path items are kept in memory - so only changed resource fragments are read again
+ * and only the path items of changed paths are generated again.
+ * The specifications are served with an `ETag` - so clients like Swagger UI only download changed specifications.
+ */
+internal class ApiSpecDevServer(
+    private val options: CliOptions,
+    private val log: PrintStream,
+) : Closeable {
+    private val snippetsDirectory = options.snippetsDirectory.toPath().toAbsolutePath()
+
+    // only accessed by the watching thread
+    private val resourceModels = TreeMap<Path, ResourceModel>()
+    private val watchedDirectories = HashMap<WatchKey, Path>()
+
+    private val pathItemCache = MemoryPathItemCache()
+    private val watchService = snippetsDirectory.fileSystem.newWatchService()
+    private val server = HttpServer.create(InetSocketAddress(InetAddress.getLoopbackAddress(), options.port), 0)
+
+    @Volatile
+    private var specifications: Map<String, ServedSpecification> = emptyMap()
+
+    /**
+     * Reads all resource fragments, generates the specifications and starts serving them.
+     *
+     * @return the address the server listens on
+     */
+    fun start(): InetSocketAddress {
+        Files.createDirectories(snippetsDirectory)
+        update(register(snippetsDirectory))
+        server.createContext("/") { exchange -> exchange.respond() }
+        server.start()
+        return server.address
+    }
+
+    /**
+     * Blocks until the server is closed or the thread is interrupted.
+     */
+    fun watch() {
+        try {
+            while (true) {
+                val changedFiles = HashSet<Path>()
+                // changes of a test run arrive in bursts - wait until the burst is over to generate the specifications once
+                var key: WatchKey? = watchService.take()
+                while (key != null) {
+                    changedFiles += changedFiles(key)
+                    key = watchService.poll(BURST_MILLIS, TimeUnit.MILLISECONDS)
+                }
+                if (changedFiles.isNotEmpty()) update(changedFiles)
+            }
+        } catch (_: ClosedWatchServiceException) {
+            // closed
+        } catch (_: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+    }
+
+    override fun close() {
+        server.stop(0)
+        watchService.close()
+    }
+
+    /**
+     * Watches the directory and its subdirectories.
+     *
+     * @return the resource fragments in the directory and its subdirectories
+     */
+    private fun register(directory: Path): Set<Path> =
+        Files.walk(directory).use { paths ->
+            paths
+                .toList()
+                .onEach { path ->
+                    if (path.isDirectory()) watchedDirectories[path.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE)] = path
+                }
+                .filter { it.name == ApiSpecCli.RESOURCE_FRAGMENT_NAME && it.isRegularFile() }
+                .toSet()
+        }
+
+    private fun changedFiles(key: WatchKey): Set<Path> {
+        val directory = watchedDirectories[key]
+        val changedFiles = HashSet<Path>()
+        key.pollEvents().forEach { event ->
+            val path = (event.context() as? Path)?.let { directory?.resolve(it) }
+            when {
+                event.kind() == OVERFLOW -> changedFiles += resourceModels.keys + register(snippetsDirectory)
+                path == null -> Unit
+                event.kind() == ENTRY_CREATE && path.isDirectory() -> changedFiles += register(path)
+                event.kind() == ENTRY_DELETE -> changedFiles += resourceModels.keys.filter { it.startsWith(path) }
+                path.name == ApiSpecCli.RESOURCE_FRAGMENT_NAME -> changedFiles += path
+            }
+        }
+        if (!key.reset()) watchedDirectories.remove(key)
+        return changedFiles
+    }
+
+    private fun update(changedFiles: Set<Path>) {
+        val started = System.nanoTime()
+        // a canonicalizer per update - one living as long as the server would retain the values of all edited and deleted fragments
+        val canonicalizer = ResourceModelCanonicalizer()
+        changedFiles.forEach { file ->
+            if (file.isRegularFile()) {
+                try {
+                    resourceModels[file] = ApiSpecCli.readResourceModel(file.toFile(), canonicalizer, options.type.resourceModelProjection)
+                } catch (e: JacksonException) {
+                    // the fragment may still be written - it is read again on the next change event
+                    log.println("Skipping invalid resource fragment $file: ${e.originalMessage}")
+                }
+            } else {
+                resourceModels.remove(file)
+            }
+        }
+        try {
+            specifications =
+                ApiSpecCli
+                    .generateSpecificationFiles(options, resourceModels.values, pathItemCache)
+                    .mapValues { (fileName, specification) -> ServedSpecification(fileName, specification) }
+        } catch (e: RuntimeException) {
+            // a resource fragment the generator rejects must not stop the server - it is generated again on the next change event
+            log.println("Serving the previous specifications - generating them failed: ${e.message}")
+            return
+        }
+        pathItemCache.removeUnusedEntries()
+        val millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)
+        log.println("Generated ${specifications.keys.joinToString()} from ${resourceModels.size} resources in $millis ms")
+    }
+
+    private fun HttpExchange.respond() {
+        try {
+            val specification = specifications[requestURI.path.removePrefix("/")]
+            when {
+                requestMethod != "GET" && requestMethod != "HEAD" -> sendResponseHeaders(405, -1)
+                specification == null -> sendResponseHeaders(404, -1)
+                else -> {
+                    responseHeaders.add("ETag", specification.etag)
+                    responseHeaders.add("Cache-Control", "no-cache")
+                    // Swagger UI is usually served from another origin
+                    responseHeaders.add("Access-Control-Allow-Origin", "*")
+                    if (requestHeaders.getFirst("If-None-Match") == specification.etag) {
+                        sendResponseHeaders(304, -1)
+                    } else {
+                        responseHeaders.add("Content-Type", specification.contentType)
+                        sendResponseHeaders(200, if (requestMethod == "HEAD") -1 else specification.content.size.toLong())
+                        if (requestMethod == "GET") responseBody.write(specification.content)
+                    }
+                }
+            }
+        } finally {
+            this.close()
+        }
+    }
+
+    private companion object {
+        const val BURST_MILLIS = 50L
+    }
+
+    private class ServedSpecification(
+        fileName: String,
+        specification: String,
+    ) {
+        val content = specification.toByteArray(Charsets.UTF_8)
+        val etag = "\"${HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content))}\""
+        val contentType = if (fileName.endsWith(".yaml")) "application/yaml" else "application/json"
+    }
+}
@@ -0,0 +1,149 @@
+package com.epages.restdocs.apispec.cli
+
+import com.epages.restdocs.apispec.model.ResourceModelProjection
+import com.epages.restdocs.apispec.model.SchemaNamingStrategy
+import com.epages.restdocs.apispec.openapi2.OpenApi20Generator
+import com.epages.restdocs.apispec.openapi3.OpenApi3Generator
+import com.epages.restdocs.apispec.postman.PostmanCollectionGenerator
+import java.io.File
+
+internal enum class SpecificationType(
+    val option: String,
+    val defaultOutputFileNamePrefix: String,
+    val resourceModelProjection: ResourceModelProjection,
+) {
+    OPENAPI("openapi", "openapi", OpenApi20Generator.RESOURCE_MODEL_PROJECTION),
+    OPENAPI3("openapi3", "openapi3", OpenApi3Generator.RESOURCE_MODEL_PROJECTION),
+    POSTMAN("postman", "postman-collection", PostmanCollectionGenerator.RESOURCE_MODEL_PROJECTION),
+}
+
+/**
+ * The command line options - named and defaulted like the properties of the Gradle plugin extensions.
+ */
+internal data class CliOptions(
+    val type: SpecificationType,
+    val snippetsDirectory: File = File("build/generated-snippets"),
+    val outputDirectory: File = File("build/api-spec"),
+    val outputFileNamePrefix: String = type.defaultOutputFileNamePrefix,
+    val format: String = "json",
+    val streamingYaml: Boolean = false,
+    val schemaNaming: String = "contentHash",
+    val title: String = "API documentation",
+    val version: String = "1.0.0",
+    val description: String? = null,
+    val servers: List<String> = listOf("http://localhost"),
+    val host: String = "localhost",
+    val basePath: String? = null,
+    val schemes: List<String> = listOf("http"),
+    val baseUrl: String = "http://localhost",
+    val separatePublicApi: Boolean = false,
+    val audiences: List<String> = emptyList(),
+    val serve: Boolean = false,
+    val port: Int = 8080,
+) {
+    companion object {
+        val USAGE =
+            """
+            Usage: restdocs-api-spec --type <openapi|openapi3|postman> [options]
+
+            Options:
+              --snippetsDirectory <dir>        directory containing the resource fragments (default: build/generated-snippets)
+              --outputDirectory <dir>          directory to write the specifications to (default: build/api-spec)
+              --outputFileNamePrefix <name>    name of the specification file (default: openapi, openapi3 or postman-collection)
+              --format <json|yaml>             format of OpenAPI specifications (default: json)
+              --streamingYaml                  write YAML specifications with the streaming writer
+              --schemaNaming <strategy>        naming of OpenAPI schemas - contentHash, pathAndMethod or title (default: contentHash)
+              --title <title>                  title of the API (default: API documentation)
+              --version <version>              version of the API (default: 1.0.0)
+              --description <description>      description of the API
+              --server <url>                   OpenAPI 3 server - can be repeated (default: http://localhost)
+              --host <host>                    OpenAPI 2 host (default: localhost)
+              --basePath <path>                OpenAPI 2 base path
+              --scheme <scheme>                OpenAPI 2 scheme - can be repeated (default: http)
+              --baseUrl <url>                  Postman base URL (default: http://localhost)
+              --separatePublicApi              additionally generate a specification without private resources
+              --audience <name>                additionally generate a specification for the audience - can be repeated
+              --serve                          serve the specifications over HTTP and regenerate them when resource fragments change
+              --port <port>                    port of the dev server (default: 8080)
+              --help                           print this message
+            """.trimIndent()
+
+        private val FLAGS = setOf("streamingYaml", "separatePublicApi", "serve")
+
+        private val REPEATABLE_OPTIONS = setOf("server", "scheme", "audience")
+
+        private val OPTIONS =
+            setOf(
+                "type",
+                "snippetsDirectory",
+                "outputDirectory",
+                "outputFileNamePrefix",
+                "format",
+                "schemaNaming",
+                "title",
+                "version",
+                "description",
+                "host",
+                "basePath",
+                "baseUrl",
+                "port",
+            ) + REPEATABLE_OPTIONS
+
+        /**
+         * @throws IllegalArgumentException if the arguments are not valid
+         */
+        fun parse(args: List<String>): CliOptions {
+            val values = LinkedHashMap<String, MutableList<String>>()
+            val iterator = args.iterator()
+            while (iterator.hasNext()) {
+                val arg = iterator.next()
+                val name = arg.removePrefix("--")
+                require(arg.startsWith("--") && (name in OPTIONS || name in FLAGS)) { "Unknown option '$arg'" }
+                val value =
+                    if (name in FLAGS) {
+                        "true"
+                    } else {
+                        require(iterator.hasNext()) { "Missing value of option '$arg'" }
+                        iterator.next()
+                    }
+                val optionValues = values.getOrPut(name) { mutableListOf() }
+                require(optionValues.isEmpty() || name in REPEATABLE_OPTIONS) { "Option '$arg' must only be given once" }
+                optionValues.add(value)
+            }
+
+            val typeOption = requireNotNull(values["type"]?.single()) { "Missing option '--type'" }
+            val type =
+                requireNotNull(SpecificationType.entries.find { it.option == typeOption }) { "Unknown type '$typeOption'" }
+            val defaults = CliOptions(type)
+            val value = { name: String -> values[name]?.single() }
+            val format = value("format") ?: defaults.format
+            require(format == "json" || format == "yaml") { "Unknown format '$format'" }
+            val schemaNaming = value("schemaNaming") ?: defaults.schemaNaming
+            // fails for unknown strategies
+            SchemaNamingStrategy.named(schemaNaming)
+            val port = value("port")?.let { requireNotNull(it.toIntOrNull()) { "Invalid port '$it'" } } ?: defaults.port
+
+            return CliOptions(
+                type = type,
+                snippetsDirectory = value("snippetsDirectory")?.let { File(it) } ?: defaults.snippetsDirectory,
+                outputDirectory = value("outputDirectory")?.let { File(it) } ?: defaults.outputDirectory,
+                outputFileNamePrefix = value("outputFileNamePrefix") ?: defaults.outputFileNamePrefix,
+                format = format,
+                streamingYaml = "streamingYaml" in values,
+                schemaNaming = schemaNaming,
+                title = value("title") ?: defaults.title,
+                version = value("version") ?: defaults.version,
+                description = value("description"),
+                servers = values["server"] ?: defaults.servers,
+                host = value("host") ?: defaults.host,
+                basePath = value("basePath"),
+                schemes = values["scheme"] ?: defaults.schemes,
+                baseUrl = value("baseUrl") ?: defaults.baseUrl,
+                separatePublicApi = "separatePublicApi" in values,
+                audiences = values["audience"] ?: defaults.audiences,
+                serve = "serve" in values,
+                port = port,
+            )
+        }
+    }
+}
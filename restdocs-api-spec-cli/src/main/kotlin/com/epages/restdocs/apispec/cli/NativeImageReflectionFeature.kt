@@ -0,0 +1,67 @@
+package com.epages.restdocs.apispec.cli
+
+import org.graalvm.nativeimage.hosted.Feature
+import org.graalvm.nativeimage.hosted.RuntimeReflection
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.jar.JarFile
+
+/**
+ * Registers the model classes Jackson binds via reflection for native images - the resource model, the swagger models and the
+ * postman model.
+ *
+ * The classes are found on the image class path while the image is built - so no reflection metadata has to be maintained per
+ * model class. The feature is enabled in `META-INF/native-image/com.epages/restdocs-api-spec-cli/native-image.properties`.
+ */
+internal class NativeImageReflectionFeature : Feature {
+    override fun beforeAnalysis(access: Feature.BeforeAnalysisAccess) {
+        access.applicationClassPath
+            .asSequence()
+            .flatMap { classNames(it) }
+            .filter { className -> REFLECTIVE_PACKAGES.any { className.startsWith(it) } }
+            .mapNotNull { access.findClassByName(it) }
+            .forEach { register(it) }
+    }
+
+    private fun register(type: Class<*>) {
+        RuntimeReflection.register(type)
+        RuntimeReflection.register(*type.declaredConstructors)
+        RuntimeReflection.register(*type.declaredMethods)
+        RuntimeReflection.register(*type.declaredFields)
+    }
+
+    private fun classNames(classPathEntry: Path): Sequence<String> {
+        val classFiles =
+            if (Files.isDirectory(classPathEntry)) {
+                val directory = classPathEntry.toFile()
+                directory
+                    .walkTopDown()
+                    .filter { it.extension == "class" }
+                    .map { it.relativeTo(directory).invariantSeparatorsPath }
+                    .toList()
+            } else if (Files.isRegularFile(classPathEntry)) {
+                JarFile(classPathEntry.toFile()).use { jar ->
+                    jar
+                        .entries()
+                        .asSequence()
+                        .map { it.name }
+                        .filter { it.endsWith(".class") }
+                        .toList()
+                }
+            } else {
+                emptyList()
+            }
+        return classFiles.asSequence().map { it.removeSuffix(".class").replace('/', '.') }
+    }
+
+    companion object {
+        private val REFLECTIVE_PACKAGES =
+            listOf(
+                "com.epages.restdocs.apispec.model.",
+                "com.epages.restdocs.apispec.postman.model.",
+                "io.swagger.models.",
+                "io.swagger.v3.oas.models.",
+                "io.swagger.v3.core.jackson.",
+            )
+    }
+}
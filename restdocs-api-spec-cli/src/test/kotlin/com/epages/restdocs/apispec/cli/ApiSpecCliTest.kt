@@ -0,0 +1,143 @@
+package com.epages.restdocs.apispec.cli
+
+import com.epages.restdocs.apispec.model.ResourceModelCanonicalizer
+import com.jayway.jsonpath.JsonPath
+import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.PrintStream
+import java.security.MessageDigest
+import java.util.HexFormat
+
+class ApiSpecCliTest {
+    @TempDir
+    lateinit var snippetsDirectory: File
+
+    @TempDir
+    lateinit var outputDirectory: File
+
+    private val err = ByteArrayOutputStream()
+
+    private var exitCode: Int? = null
+
+    @Test
+    fun `should generate openapi3 specification`() {
+        writeResourceFragment(snippetsDirectory, "product-get", "/products/{id}", privateResource = false)
+        writeResourceFragment(snippetsDirectory, "product-delete", "/products/{id}/internal", privateResource = true)
+
+        whenCliRun("--type", "openapi3", "--server", "https://some.api", "--separatePublicApi")
+
+        then(exitCode).isEqualTo(0)
+        val specification = JsonPath.parse(File(outputDirectory, "openapi3.json"))
+        then(specification.read<String>("servers[0].url")).isEqualTo("https://some.api")
+        then(specification.read<Map<String, Any>>("paths").keys).containsExactly("/products/{id}", "/products/{id}/internal")
+        val publicSpecification = JsonPath.parse(File(outputDirectory, "openapi3-public.json"))
+        then(publicSpecification.read<Map<String, Any>>("paths").keys).containsExactly("/products/{id}")
+    }
+
+    @Test
+    fun `should generate openapi specification in yaml format`() {
+        writeResourceFragment(snippetsDirectory, "product-get", "/products/{id}", privateResource = false)
+
+        whenCliRun("--type", "openapi", "--format", "yaml", "--outputFileNamePrefix", "api")
+
+        then(exitCode).isEqualTo(0)
+        then(File(outputDirectory, "api.yaml")).content().contains("/products/{id}")
+    }
+
+    @Test
+    fun `should generate postman collection`() {
+        writeResourceFragment(snippetsDirectory, "product-get", "/products/{id}", privateResource = false)
+
+        whenCliRun("--type", "postman", "--baseUrl", "https://some.api")
+
+        then(exitCode).isEqualTo(0)
+        val collection = JsonPath.parse(File(outputDirectory, "postman-collection.json"))
+        then(collection.read<String>("item[0].id")).isEqualTo("product-get")
+    }
+
+    @Test
+    fun `should keep unchanged specification and write manifest`() {
+        writeResourceFragment(snippetsDirectory, "product-get", "/products/{id}", privateResource = false)
+        whenCliRun("--type", "openapi3")
+        val specificationFile = File(outputDirectory, "openapi3.json")
+        specificationFile.setLastModified(0)
+
+        whenCliRun("--type", "openapi3")
+
+        then(exitCode).isEqualTo(0)
+        then(specificationFile.lastModified()).isEqualTo(0)
+        val manifest = JsonPath.parse(File(outputDirectory, "openapi3.manifest.json"))
+        then(manifest.read<String>("files['openapi3.json']"))
+            .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(specificationFile.readBytes())))
+    }
+
+    @Test
+    fun `should skip parts of resource fragment not consumed by generator`() {
+        val fragment = File(snippetsDirectory, "resource.json")
+        fragment.writeText(
+            """
+            {
+              "operationId" : "product-get",
+              "privateResource" : false,
+              "deprecated" : false,
+              "request" : {
+                "path" : "/products/{id}",
+                "method" : "GET",
+                "headers" : [ ],
+                "pathParameters" : [ ],
+                "queryParameters" : [ ],
+                "formParameters" : [ { "name" : "a", "description" : "a", "type" : "STRING", "optional" : false, "ignored" : false } ],
+                "requestFields" : [ { "path" : "a", "description" : "a", "type" : "STRING" } ],
+                "securityRequirements" : { "type" : "BASIC" }
+              },
+              "response" : {
+                "status" : 200,
+                "contentType" : "application/json",
+                "headers" : [ ],
+                "responseFields" : [ { "path" : "name", "description" : "the name", "type" : "STRING" } ],
+                "example" : "{}"
+              }
+            }
+            """.trimIndent(),
+        )
+
+        val resourceModel =
+            ApiSpecCli.readResourceModel(fragment, ResourceModelCanonicalizer(), SpecificationType.POSTMAN.resourceModelProjection)
+
+        then(resourceModel.request.path).isEqualTo("/products/{id}")
+        then(resourceModel.request.formParameters).isEmpty()
+        then(resourceModel.request.requestFields).isEmpty()
+        then(resourceModel.request.securityRequirements).isNull()
+        then(resourceModel.response.responseFields).isEmpty()
+        then(resourceModel.response.example).isEqualTo("{}")
+        then(ApiSpecCli.readResourceModel(fragment, ResourceModelCanonicalizer()).response.responseFields).hasSize(1)
+    }
+
+    @Test
+    fun `should reject unknown option`() {
+        whenCliRun("--type", "openapi3", "--unknown", "value")
+
+        then(exitCode).isEqualTo(2)
+        then(err.toString()).contains("Unknown option '--unknown'")
+    }
+
+    @Test
+    fun `should require type`() {
+        whenCliRun("--format", "json")
+
+        then(exitCode).isEqualTo(2)
+        then(err.toString()).contains("Missing option '--type'")
+    }
+
+    private fun whenCliRun(vararg args: String) {
+        exitCode =
+            ApiSpecCli.run(
+                arrayOf("--snippetsDirectory", snippetsDirectory.path, "--outputDirectory", outputDirectory.path, *args),
+                PrintStream(ByteArrayOutputStream()),
+                PrintStream(err),
+            )
+    }
+}
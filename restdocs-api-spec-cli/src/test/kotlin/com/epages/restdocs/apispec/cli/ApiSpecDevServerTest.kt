@@ -0,0 +1,121 @@
+package com.epages.restdocs.apispec.cli
+
+import com.jayway.jsonpath.JsonPath
+import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.PrintStream
+import java.net.URI
+import java.net.http.HttpClient
+import java.net.http.HttpRequest
+import java.net.http.HttpResponse
+
+class ApiSpecDevServerTest {
+    @TempDir
+    lateinit var snippetsDirectory: File
+
+    private lateinit var server: ApiSpecDevServer
+
+    private lateinit var baseUri: URI
+
+    private val httpClient = HttpClient.newHttpClient()
+
+    private val log = ByteArrayOutputStream()
+
+    @AfterEach
+    fun stopServer() {
+        server.close()
+    }
+
+    @Test
+    fun `should serve specification with etag`() {
+        writeResourceFragment(snippetsDirectory, "product-get", "/products/{id}", privateResource = false)
+        givenServerStarted()
+
+        val response = get("openapi3.json")
+
+        then(response.statusCode()).isEqualTo(200)
+        then(JsonPath.parse(response.body()).read<Map<String, Any>>("paths").keys).containsExactly("/products/{id}")
+        val etag = response.headers().firstValue("ETag").get()
+        then(get("openapi3.json", etag).statusCode()).isEqualTo(304)
+        then(get("unknown.json").statusCode()).isEqualTo(404)
+    }
+
+    @Test
+    fun `should regenerate specification when resource fragments change`() {
+        writeResourceFragment(snippetsDirectory, "product-get", "/products/{id}", privateResource = false)
+        givenServerStarted()
+        val etag = get("openapi3.json").headers().firstValue("ETag").get()
+
+        writeResourceFragment(snippetsDirectory, "cart-get", "/carts/{id}", privateResource = false)
+
+        val response = awaitChange("openapi3.json", etag)
+        then(JsonPath.parse(response.body()).read<Map<String, Any>>("paths").keys).containsExactly("/carts/{id}", "/products/{id}")
+    }
+
+    @Test
+    fun `should keep serving previous specification when generating fails`() {
+        writeResourceFragment(snippetsDirectory, "product-get", "/products/{id}", privateResource = false)
+        givenServerStarted()
+        val etag = get("openapi3.json").headers().firstValue("ETag").get()
+
+        writeResourceFragment(
+            snippetsDirectory,
+            "cart-get",
+            "/carts/{id}",
+            privateResource = false,
+            queryParameters = """{ "name" : "size", "description" : "size", "type" : "UNKNOWN", "optional" : true, "ignored" : false }""",
+        )
+
+        awaitLog("generating them failed")
+        then(get("openapi3.json", etag).statusCode()).isEqualTo(304)
+
+        writeResourceFragment(snippetsDirectory, "cart-get", "/carts/{id}", privateResource = false)
+
+        val response = awaitChange("openapi3.json", etag)
+        then(JsonPath.parse(response.body()).read<Map<String, Any>>("paths").keys).containsExactly("/carts/{id}", "/products/{id}")
+    }
+
+    private fun givenServerStarted() {
+        server =
+            ApiSpecDevServer(
+                CliOptions(type = SpecificationType.OPENAPI3, snippetsDirectory = snippetsDirectory, port = 0),
+                PrintStream(log, true),
+            )
+        val address = server.start()
+        baseUri = URI("http://${address.hostString}:${address.port}/")
+        Thread { server.watch() }.apply { isDaemon = true }.start()
+    }
+
+    private fun awaitChange(
+        fileName: String,
+        etag: String,
+    ): HttpResponse<String> {
+        repeat(100) {
+            val response = get(fileName, etag)
+            if (response.statusCode() == 200) return response
+            Thread.sleep(100)
+        }
+        throw AssertionError("$fileName was not regenerated")
+    }
+
+    private fun awaitLog(message: String) {
+        repeat(100) {
+            if (log.toString(Charsets.UTF_8).contains(message)) return
+            Thread.sleep(100)
+        }
+        throw AssertionError("'$message' was not logged")
+    }
+
+    private fun get(
+        fileName: String,
+        etag: String? = null,
+    ): HttpResponse<String> {
+        val request = HttpRequest.newBuilder(baseUri.resolve(fileName))
+        etag?.let { request.header("If-None-Match", it) }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString())
+    }
+}
@@ -0,0 +1,43 @@
+package com.epages.restdocs.apispec.cli
+
+import java.io.File
+
+internal fun writeResourceFragment(
+    snippetsDirectory: File,
+    operationId: String,
+    path: String,
+    privateResource: Boolean,
+    queryParameters: String = "",
+) {
+    val operationDirectory = File(snippetsDirectory, operationId).apply { mkdirs() }
+    File(operationDirectory, "resource.json").writeText(
+        """
+        {
+          "operationId" : "$operationId",
+          "summary" : null,
+          "description" : null,
+          "privateResource" : $privateResource,
+          "deprecated" : false,
+          "request" : {
+            "path" : "$path",
+            "method" : "GET",
+            "contentType" : null,
+            "headers" : [ ],
+            "pathParameters" : [ ],
+            "queryParameters" : [ $queryParameters ],
+            "formParameters" : [ ],
+            "requestFields" : [ ],
+            "example" : null,
+            "securityRequirements" : null
+          },
+          "response" : {
+            "status" : 200,
+            "contentType" : "application/json",
+            "headers" : [ ],
+            "responseFields" : [ ],
+            "example" : "{\"name\" : \"Fancy pants\"}"
+          }
+        }
+        """.trimIndent(),
+    )
+}
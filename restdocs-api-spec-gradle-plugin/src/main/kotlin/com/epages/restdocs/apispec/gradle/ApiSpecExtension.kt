@@ -12,4 +12,14 @@ abstract class ApiSpecExtension(
     abstract var outputFileNamePrefix: String
 
     var separatePublicApi: Boolean = false
+
+    var audiences: List<String> = emptyList()
+
+    var lowMemory: Boolean = false
+
+    var includeTags: List<String> = emptyList()
+
+    var includePathPrefixes: List<String> = emptyList()
+
+    var includeVisibility: String = "all"
 }
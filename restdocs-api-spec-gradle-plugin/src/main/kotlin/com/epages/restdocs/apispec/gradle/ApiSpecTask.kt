@@ -1,18 +1,43 @@
 package com.epages.restdocs.apispec.gradle
 
+import com.epages.restdocs.apispec.model.Audience
+import com.epages.restdocs.apispec.model.DirectoryExampleStore
+import com.epages.restdocs.apispec.model.ExampleStore
+import com.epages.restdocs.apispec.model.PathIndex
+import com.epages.restdocs.apispec.model.ResourceFilter
 import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ResourceModelCanonicalizer
+import com.epages.restdocs.apispec.model.ResourceModelProjection
+import com.epages.restdocs.apispec.model.ResourceReference
+import com.epages.restdocs.apispec.model.SpecificationFileWriter
 import org.gradle.api.DefaultTask
+import org.gradle.api.file.FileCollection
 import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.TaskAction
-import tools.jackson.databind.DeserializationFeature
-import tools.jackson.module.kotlin.jacksonMapperBuilder
-import tools.jackson.module.kotlin.readValue
 import java.io.File
 
 abstract class ApiSpecTask : DefaultTask() {
     @Input
     var separatePublicApi: Boolean = false
 
+    @Input
+    var audiences: List<String> = emptyList()
+
+    @Input
+    var lowMemory: Boolean = false
+
+    @Input
+    var includeTags: List<String> = emptyList()
+
+    @Input
+    var includePathPrefixes: List<String> = emptyList()
+
+    @Input
+    var includeVisibility: String = "all"
+
     @Input
     lateinit var outputDirectory: String
 
@@ -22,6 +47,15 @@ abstract class ApiSpecTask : DefaultTask() {
     @Input
     lateinit var outputFileNamePrefix: String
 
+    /**
+     * The partial specifications of other projects aggregated with the resource fragments of this project.
+     *
+     * @see PartialSpecificationTask
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    var partialSpecifications: FileCollection = project.files()
+
     private val outputDirectoryFile
         get() = project.file(outputDirectory)
 
@@ -33,36 +67,137 @@ abstract class ApiSpecTask : DefaultTask() {
         snippetsDirectory = extension.snippetsDirectory
         outputFileNamePrefix = extension.outputFileNamePrefix
         separatePublicApi = extension.separatePublicApi
+        audiences = extension.audiences
+        lowMemory = extension.lowMemory
+        includeTags = extension.includeTags
+        includePathPrefixes = extension.includePathPrefixes
+        includeVisibility = extension.includeVisibility
     }
 
     @TaskAction
     fun aggregateResourceModels() {
-        val objectMapper = jacksonMapperBuilder().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build()
+        val reader = ResourceFragmentReader(snippetsDirectoryFile, resourceModelProjection())
+        val partialSpecificationDirectories = partialSpecifications.files.filter { it.isDirectory }
+        val exampleStore =
+            (
+                // in low memory mode the examples are not retained - like the resource models referencing them
+                listOf(DirectoryExampleStore(File(snippetsDirectoryFile, ExampleStore.DIRECTORY_NAME), cacheExamples = !lowMemory)) +
+                    partialSpecificationDirectories.map { PartialSpecification.exampleStore(it, cacheExamples = !lowMemory) }
+            ).let { stores -> ExampleStore { ref -> stores.firstNotNullOfOrNull { it.load(ref) } } }
+        val filter =
+            ResourceFilter(
+                tags = includeTags.toSet(),
+                pathPrefixes = includePathPrefixes.toSet(),
+                visibility = ResourceFilter.Visibility.named(includeVisibility),
+            )
+        val partialResourceModels =
+            partialSpecificationDirectories
+                .flatMap { PartialSpecification.read(it, reader.objectMapper, resourceModelProjection()) }
+                .filter { filter.includes(it) }
 
-        val resourceModels =
-            snippetsDirectoryFile
-                .walkTopDown()
-                .filter { it.name == "resource.json" }
-                .map { objectMapper.readValue<ResourceModel>(it.readText()) }
-                .toList()
+        val (pathIndex, audiencePathIndex) =
+            if (lowMemory) {
+                referencePathIndexes(reader, reader.references().filter { filter.includes(it) }, partialResourceModels)
+            } else {
+                val canonicalizer = ResourceModelCanonicalizer()
+                val resourceModels = reader.read(filter, canonicalizer) + partialResourceModels.map { canonicalizer.canonicalize(it) }
+                PathIndex(resourceModels) to { audience: Audience -> PathIndex(resourceModels.filter { audience.includes(it) }) }
+            }
 
-        writeSpecificationFile(outputFileNamePrefix, generateSpecification(resourceModels))
+        val specificationAudiences =
+            (if (separatePublicApi) listOf(Audience.PUBLIC) else emptyList())
+                .plus(audiences.map { Audience(it) })
+                .distinct()
+        SpecificationFileWriter.write(
+            outputDirectoryFile,
+            generateSpecificationFiles(outputFileNamePrefix, pathIndex, exampleStore, specificationAudiences, audiencePathIndex),
+            outputFileNamePrefix,
+            deleteStaleFiles = writesSplitSpecification(),
+        )
 
-        if (separatePublicApi) {
-            val content = generateSpecification(resourceModels.filterNot { it.privateResource })
-            writeSpecificationFile("$outputFileNamePrefix-public", content)
-        }
+        specificationsGenerated()
     }
 
-    private fun writeSpecificationFile(
-        outputFilenamePrefix: String,
-        content: String,
-    ) {
-        outputDirectoryFile.mkdir()
-        File(outputDirectoryFile, "$outputFilenamePrefix.${outputFileExtension()}").writeText(content)
+    /**
+     * The first pass only reads the references to the resource fragments.
+     * The resource models are read again when the specification visits their path - and released afterwards.
+     *
+     * The resource models of the partial specifications are kept in memory - each partial specification is a single file.
+     */
+    private fun referencePathIndexes(
+        reader: ResourceFragmentReader,
+        references: List<ResourceReference>,
+        partialResourceModels: List<ResourceModel>,
+    ): Pair<PathIndex, (Audience) -> PathIndex> {
+        val partialResourceModelsByLocation =
+            partialResourceModels.withIndex().associate { (index, model) -> "$PARTIAL_LOCATION_PREFIX$index" to model }
+        val allReferences =
+            references +
+                partialResourceModelsByLocation.map { (location, model) ->
+                    ResourceReference(
+                        path = model.request.path,
+                        method = model.request.method,
+                        operationId = model.operationId,
+                        privateResource = model.privateResource,
+                        location = location,
+                        audiences = model.audiences,
+                        tags = model.tags,
+                    )
+                }
+        val canonicalizer = ResourceModelCanonicalizer(canonicalizeExamples = false)
+        val load = { reference: ResourceReference ->
+            partialResourceModelsByLocation[reference.location] ?: canonicalizer.canonicalize(reader.read(File(reference.location)))
+        }
+        return PathIndex.ofReferences(allReferences, load) to
+            { audience: Audience -> PathIndex.ofReferences(allReferences.filter { audience.includes(it) }, load) }
     }
 
+    /**
+     * Called after all specification files of the task are written.
+     */
+    protected open fun specificationsGenerated() = Unit
+
+    /**
+     * A split specification consists of files named after paths and schemas - files of paths and schemas no longer
+     * documented are deleted with the help of the manifest of the previous run, see [SpecificationFileWriter].
+     */
+    protected open fun writesSplitSpecification(): Boolean = false
+
     protected abstract fun outputFileExtension(): String
 
-    protected abstract fun generateSpecification(resourceModels: List<ResourceModel>): String
+    /**
+     * The parts of the resource models the generator consumes - the other parts are skipped while reading the resource fragments.
+     */
+    protected abstract fun resourceModelProjection(): ResourceModelProjection
+
+    /**
+     * Generates the specification of all resources and one specification per audience - each from its own [PathIndex].
+     *
+     * @param audiencePathIndex the resource models visible to an audience
+     * @return the content of the specification files by their path relative to the output directory
+     */
+    protected open fun generateSpecificationFiles(
+        name: String,
+        pathIndex: PathIndex,
+        exampleStore: ExampleStore,
+        audiences: List<Audience>,
+        audiencePathIndex: (Audience) -> PathIndex,
+    ): Map<String, String> =
+        (listOf(name to pathIndex) + audiences.map { it.specificationName(name) to audiencePathIndex(it) })
+            .associate { (specificationName, specificationPathIndex) ->
+                "$specificationName.${outputFileExtension()}" to generateSpecification(specificationPathIndex, exampleStore)
+            }
+
+    /**
+     * @param pathIndex the resource models by path - in low memory mode they are loaded on each access of a path
+     * @param exampleStore resolves the examples the resource models reference instead of containing them
+     */
+    protected abstract fun generateSpecification(
+        pathIndex: PathIndex,
+        exampleStore: ExampleStore,
+    ): String
+
+    private companion object {
+        const val PARTIAL_LOCATION_PREFIX = "partial:"
+    }
 }
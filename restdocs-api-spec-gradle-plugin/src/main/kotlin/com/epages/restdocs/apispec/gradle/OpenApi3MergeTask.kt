@@ -0,0 +1,78 @@
+package com.epages.restdocs.apispec.gradle
+
+import com.epages.restdocs.apispec.model.SpecificationFileWriter
+import com.epages.restdocs.apispec.openapi3.OpenApi3Merger
+import org.gradle.api.DefaultTask
+import org.gradle.api.GradleException
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.RegularFileProperty
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.OutputFile
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Merges OpenAPI 3 specifications generated separately - e.g. by the shards of a test suite - into one specification.
+ *
+ * The specifications are merged in the order of their file paths - so the merged specification does not depend on the order
+ * they were collected in, see [OpenApi3Merger].
+ */
+abstract class OpenApi3MergeTask : DefaultTask() {
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val specifications: ConfigurableFileCollection
+
+    @get:OutputFile
+    abstract val outputFile: RegularFileProperty
+
+    @Input
+    var format: String = "json"
+
+    @Input
+    var streamingYaml: Boolean = false
+
+    /**
+     * Fail instead of logging a warning if the specifications contain conflicting responses, examples, parameters or components.
+     */
+    @Input
+    var failOnConflict: Boolean = false
+
+    /**
+     * The merged specification is written next to the specification of the `openapi3` task by default - `<prefix>-merged.<format>`.
+     */
+    fun applyExtension(extension: OpenApi3Extension) {
+        format = extension.format
+        streamingYaml = extension.streamingYaml
+        outputFile.convention(
+            project.layout.file(
+                project.provider {
+                    project.file("${extension.outputDirectory}/${extension.outputFileNamePrefix}-$MERGED_SUFFIX.${extension.format}")
+                },
+            ),
+        )
+    }
+
+    @TaskAction
+    fun mergeSpecifications() {
+        val result =
+            OpenApi3Merger.mergeAndSerialize(
+                specifications.files.sortedBy { it.invariantSeparatorsPath }.map { it.readText() },
+                format,
+                streamingYaml,
+            )
+        if (result.conflicts.isNotEmpty()) {
+            val message = "Conflicts merging OpenAPI 3 specifications:\n" + result.conflicts.joinToString("\n")
+            if (failOnConflict) throw GradleException(message)
+            logger.warn(message)
+        }
+        val file = outputFile.get().asFile
+        file.parentFile.mkdirs()
+        SpecificationFileWriter.writeIfChanged(file, result.specification.toByteArray())
+    }
+
+    companion object {
+        const val MERGED_SUFFIX = "merged"
+    }
+}
@@ -1,11 +1,17 @@
 package com.epages.restdocs.apispec.gradle
 
-import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.Audience
+import com.epages.restdocs.apispec.model.ExampleStore
+import com.epages.restdocs.apispec.model.PathIndex
+import com.epages.restdocs.apispec.openapi3.DirectoryPathItemCache
+import com.epages.restdocs.apispec.openapi3.ExampleSelectionPolicy
 import com.epages.restdocs.apispec.openapi3.OpenApi3Generator
+import com.epages.restdocs.apispec.openapi3.PathItemCache
 import io.swagger.v3.oas.models.info.Contact
 import io.swagger.v3.oas.models.servers.Server
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.Optional
+import java.io.File
 
 open class OpenApi3Task : OpenApiBaseTask() {
     @Input
@@ -16,15 +22,53 @@ open class OpenApi3Task : OpenApiBaseTask() {
     @Optional
     var contact: Contact? = null
 
+    @Input
+    var incremental: Boolean = false
+
+    @Input
+    var splitSpecification: Boolean = false
+
+    @Input
+    @Optional
+    var maxExamples: Int? = null
+
+    @Input
+    var deduplicateExamples: Boolean = false
+
+    @Input
+    var preferSmallestExamples: Boolean = false
+
+    @Input
+    @Optional
+    var repeatedSchemaMinSize: Int? = null
+
+    private val exampleSelectionPolicy
+        get() = ExampleSelectionPolicy(maxExamples, deduplicateExamples, preferSmallestExamples)
+
+    private val pathItemCache by lazy {
+        if (incremental) DirectoryPathItemCache(File(temporaryDir, "path-items")) else PathItemCache.NONE
+    }
+
     fun applyExtension(extension: OpenApi3Extension) {
         super.applyExtension(extension)
         servers = extension.servers
         contact = extension.contact
+        incremental = extension.incremental
+        splitSpecification = extension.splitSpecification
+        maxExamples = extension.maxExamples
+        deduplicateExamples = extension.deduplicateExamples
+        preferSmallestExamples = extension.preferSmallestExamples
+        repeatedSchemaMinSize = extension.repeatedSchemaMinSize
     }
 
-    override fun generateSpecification(resourceModels: List<ResourceModel>): String =
+    override fun resourceModelProjection() = OpenApi3Generator.RESOURCE_MODEL_PROJECTION
+
+    override fun generateSpecification(
+        pathIndex: PathIndex,
+        exampleStore: ExampleStore,
+    ): String =
         OpenApi3Generator.generateAndSerialize(
-            resources = resourceModels,
+            pathIndex = pathIndex,
             servers = servers,
             title = title,
             description = apiDescription,
@@ -33,5 +77,69 @@ open class OpenApi3Task : OpenApiBaseTask() {
             oauth2SecuritySchemeDefinition = oauth2SecuritySchemeDefinition,
             format = format,
             contact = contact,
+            exampleStore = exampleStore,
+            pathItemCache = pathItemCache,
+            exampleSelectionPolicy = exampleSelectionPolicy,
+            streamingYaml = streamingYaml,
+            schemaNamingStrategy = schemaNamingStrategy,
+            repeatedSchemaMinSize = repeatedSchemaMinSize,
         )
+
+    /**
+     * The specifications of all audiences are generated in a single pass - sharing the path items and schemas.
+     */
+    override fun generateSpecificationFiles(
+        name: String,
+        pathIndex: PathIndex,
+        exampleStore: ExampleStore,
+        audiences: List<Audience>,
+        audiencePathIndex: (Audience) -> PathIndex,
+    ): Map<String, String> =
+        if (splitSpecification) {
+            OpenApi3Generator.generateAndSerializeSplit(
+                pathIndex = pathIndex,
+                servers = servers,
+                title = title,
+                description = apiDescription,
+                tagDescriptions = tagDescriptions,
+                version = apiVersion,
+                oauth2SecuritySchemeDefinition = oauth2SecuritySchemeDefinition,
+                format = format,
+                name = name,
+                contact = contact,
+                exampleStore = exampleStore,
+                pathItemCache = pathItemCache,
+                exampleSelectionPolicy = exampleSelectionPolicy,
+                streamingYaml = streamingYaml,
+                schemaNamingStrategy = schemaNamingStrategy,
+                repeatedSchemaMinSize = repeatedSchemaMinSize,
+                audiences = audiences,
+            )
+        } else {
+            OpenApi3Generator
+                .generateAndSerializeForAudiences(
+                    pathIndex = pathIndex,
+                    audiences = audiences,
+                    servers = servers,
+                    title = title,
+                    description = apiDescription,
+                    tagDescriptions = tagDescriptions,
+                    version = apiVersion,
+                    oauth2SecuritySchemeDefinition = oauth2SecuritySchemeDefinition,
+                    format = format,
+                    contact = contact,
+                    exampleStore = exampleStore,
+                    pathItemCache = pathItemCache,
+                    exampleSelectionPolicy = exampleSelectionPolicy,
+                    streamingYaml = streamingYaml,
+                    schemaNamingStrategy = schemaNamingStrategy,
+                    repeatedSchemaMinSize = repeatedSchemaMinSize,
+                ).mapKeys { (audience, _) -> "${audience?.specificationName(name) ?: name}.${outputFileExtension()}" }
+        }
+
+    override fun writesSplitSpecification() = splitSpecification
+
+    override fun specificationsGenerated() {
+        (pathItemCache as? DirectoryPathItemCache)?.removeUnusedEntries()
+    }
 }
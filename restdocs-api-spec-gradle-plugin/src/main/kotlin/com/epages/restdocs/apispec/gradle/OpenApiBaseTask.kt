@@ -1,5 +1,6 @@
 package com.epages.restdocs.apispec.gradle
 
+import com.epages.restdocs.apispec.model.SchemaNamingStrategy
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.Optional
 
@@ -20,6 +21,15 @@ abstract class OpenApiBaseTask : ApiSpecTask() {
     @Optional
     lateinit var format: String
 
+    @Input
+    var streamingYaml: Boolean = false
+
+    @Input
+    var schemaNaming: String = "contentHash"
+
+    protected val schemaNamingStrategy
+        get() = SchemaNamingStrategy.named(schemaNaming)
+
     @Input
     @Optional
     lateinit var tagDescriptions: Map<String, String>
@@ -32,6 +42,8 @@ abstract class OpenApiBaseTask : ApiSpecTask() {
     fun applyExtension(extension: OpenApiBaseExtension) {
         super.applyExtension(extension)
         format = extension.format
+        streamingYaml = extension.streamingYaml
+        schemaNaming = extension.schemaNaming
         oauth2SecuritySchemeDefinition = extension.oauth2SecuritySchemeDefinition
         title = extension.title
         apiDescription = extension.description
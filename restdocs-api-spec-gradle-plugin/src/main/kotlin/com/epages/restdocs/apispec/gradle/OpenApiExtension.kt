@@ -1,6 +1,7 @@
 package com.epages.restdocs.apispec.gradle
 
 import com.epages.restdocs.apispec.model.Oauth2Configuration
+import com.epages.restdocs.apispec.model.SchemaNamingStrategy
 import groovy.lang.Closure
 import io.swagger.v3.oas.models.info.Contact
 import io.swagger.v3.oas.models.servers.Server
@@ -24,6 +25,16 @@ abstract class OpenApiBaseExtension(
 
     var format = "json"
 
+    /**
+     * Write YAML specifications with a streaming writer - considerably faster for large specifications.
+     */
+    var streamingYaml = false
+
+    /**
+     * Names the schemas extracted into the definitions - `contentHash`, `pathAndMethod` or `title`, see [SchemaNamingStrategy].
+     */
+    var schemaNaming = "contentHash"
+
     var oauth2SecuritySchemeDefinition: PluginOauth2Configuration? = null
 
     fun setOauth2SecuritySchemeDefinition(closure: Closure<PluginOauth2Configuration>) {
@@ -70,6 +81,36 @@ open class OpenApi3Extension(
     private var _servers: List<Server> = mutableListOf(Server().apply { url = "http://localhost" })
     private var _contact: Contact? = null
 
+    /**
+     * Only regenerate the paths whose resource models changed since the last generation.
+     */
+    var incremental = false
+
+    /**
+     * Write one file per path and per schema connected by relative references - instead of a single specification file.
+     */
+    var splitSpecification = false
+
+    /**
+     * Add at most this number of examples per media type.
+     */
+    var maxExamples: Int? = null
+
+    /**
+     * Add examples with equal content only once per media type.
+     */
+    var deduplicateExamples = false
+
+    /**
+     * Prefer the smallest examples over the first ones if there are more than [maxExamples].
+     */
+    var preferSmallestExamples = false
+
+    /**
+     * Extract nested object schemas occurring more than once and consisting of at least this number of schemas into the components.
+     */
+    var repeatedSchemaMinSize: Int? = null
+
     val servers
         get() = _servers
 
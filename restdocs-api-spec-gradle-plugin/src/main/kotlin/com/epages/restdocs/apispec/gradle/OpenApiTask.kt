@@ -1,6 +1,7 @@
 package com.epages.restdocs.apispec.gradle
 
-import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ExampleStore
+import com.epages.restdocs.apispec.model.PathIndex
 import com.epages.restdocs.apispec.openapi2.OpenApi20Generator
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.Optional
@@ -23,9 +24,14 @@ open class OpenApiTask : OpenApiBaseTask() {
         schemes = extension.schemes
     }
 
-    override fun generateSpecification(resourceModels: List<ResourceModel>): String =
+    override fun resourceModelProjection() = OpenApi20Generator.RESOURCE_MODEL_PROJECTION
+
+    override fun generateSpecification(
+        pathIndex: PathIndex,
+        exampleStore: ExampleStore,
+    ): String =
         OpenApi20Generator.generateAndSerialize(
-            resources = resourceModels,
+            pathIndex = pathIndex,
             basePath = basePath,
             host = host,
             schemes = schemes.toList(),
@@ -35,5 +41,8 @@ open class OpenApiTask : OpenApiBaseTask() {
             version = apiVersion,
             oauth2SecuritySchemeDefinition = oauth2SecuritySchemeDefinition,
             format = format,
+            exampleStore = exampleStore,
+            streamingYaml = streamingYaml,
+            schemaNamingStrategy = schemaNamingStrategy,
         )
 }
@@ -0,0 +1,59 @@
+package com.epages.restdocs.apispec.gradle
+
+import com.epages.restdocs.apispec.model.DirectoryExampleStore
+import com.epages.restdocs.apispec.model.ExampleStore
+import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ResourceModelProjection
+import com.epages.restdocs.apispec.model.SpecificationFileWriter
+import tools.jackson.databind.ObjectMapper
+import tools.jackson.module.kotlin.jacksonTypeRef
+import java.io.File
+
+/**
+ * The resource models of a project preprocessed for the aggregation by another project - a directory containing
+ * the canonicalized resource models in a single file and the example bodies they reference.
+ */
+internal object PartialSpecification {
+    const val FILE_NAME = "resource-models.json"
+
+    /**
+     * The example bodies keep their content addressed keys - so equal examples of several projects are stored once per project
+     * and resolved from any of them.
+     */
+    fun write(
+        directory: File,
+        resourceModels: List<ResourceModel>,
+        examplesDirectory: File,
+        objectMapper: ObjectMapper,
+    ) {
+        val partialExamplesDirectory = File(directory, ExampleStore.DIRECTORY_NAME)
+        partialExamplesDirectory.deleteRecursively()
+        resourceModels
+            .flatMap { listOfNotNull(it.request.exampleRef, it.response.exampleRef) }
+            .distinct()
+            .map { File(examplesDirectory, it) }
+            .filter { it.isFile }
+            .forEach { it.copyTo(File(partialExamplesDirectory, it.name), overwrite = true) }
+        SpecificationFileWriter.writeIfChanged(File(directory, FILE_NAME), objectMapper.writeValueAsBytes(resourceModels))
+    }
+
+    /**
+     * Only reads the parts of the resource models the generator consumes.
+     */
+    fun read(
+        directory: File,
+        objectMapper: ObjectMapper,
+        projection: ResourceModelProjection,
+    ): List<ResourceModel> {
+        val file = File(directory, FILE_NAME)
+        if (!file.isFile) return emptyList()
+        return projection
+            .filter(objectMapper.createParser(file))
+            .use { objectMapper.readValue(it, jacksonTypeRef<List<ResourceModel>>()) }
+    }
+
+    fun exampleStore(
+        directory: File,
+        cacheExamples: Boolean = true,
+    ): ExampleStore = DirectoryExampleStore(File(directory, ExampleStore.DIRECTORY_NAME), cacheExamples)
+}
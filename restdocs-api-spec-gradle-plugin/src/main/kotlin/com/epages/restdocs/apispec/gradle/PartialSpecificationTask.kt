@@ -0,0 +1,70 @@
+package com.epages.restdocs.apispec.gradle
+
+import com.epages.restdocs.apispec.model.ExampleStore
+import com.epages.restdocs.apispec.model.ResourceFilter
+import com.epages.restdocs.apispec.model.ResourceModelCanonicalizer
+import com.epages.restdocs.apispec.model.ResourceModelProjection
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Input
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+import java.io.File
+
+/**
+ * Preprocesses the resource fragments of a project into a [PartialSpecification] - consumed by the specification tasks
+ * of the projects depending on this project via the `apiSpecPartials` configuration.
+ *
+ * The resource fragments of each project are read once by the task of the project - so the projects can be built in parallel
+ * and their partial specifications are cached independently.
+ */
+@CacheableTask
+abstract class PartialSpecificationTask : DefaultTask() {
+    @get:InputFiles
+    @get:PathSensitive(PathSensitivity.RELATIVE)
+    abstract val snippetsDirectory: DirectoryProperty
+
+    @Input
+    var includeTags: List<String> = emptyList()
+
+    @Input
+    var includePathPrefixes: List<String> = emptyList()
+
+    @Input
+    var includeVisibility: String = "all"
+
+    @get:OutputDirectory
+    abstract val outputDirectory: DirectoryProperty
+
+    fun applyExtension(extension: ApiSpecExtension) {
+        snippetsDirectory.set(project.file(extension.snippetsDirectory))
+        includeTags = extension.includeTags
+        includePathPrefixes = extension.includePathPrefixes
+        includeVisibility = extension.includeVisibility
+    }
+
+    /**
+     * All parts of the resource models are kept - the aggregating task might generate any format.
+     */
+    @TaskAction
+    fun writePartialSpecification() {
+        val snippetsDirectoryFile = snippetsDirectory.get().asFile
+        val reader = ResourceFragmentReader(snippetsDirectoryFile, ResourceModelProjection.FULL)
+        val filter =
+            ResourceFilter(
+                tags = includeTags.toSet(),
+                pathPrefixes = includePathPrefixes.toSet(),
+                visibility = ResourceFilter.Visibility.named(includeVisibility),
+            )
+        PartialSpecification.write(
+            directory = outputDirectory.get().asFile.apply { mkdirs() },
+            resourceModels = reader.read(filter, ResourceModelCanonicalizer()),
+            examplesDirectory = File(snippetsDirectoryFile, ExampleStore.DIRECTORY_NAME),
+            objectMapper = reader.objectMapper,
+        )
+    }
+}
@@ -1,6 +1,7 @@
 package com.epages.restdocs.apispec.gradle
 
-import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ExampleStore
+import com.epages.restdocs.apispec.model.PathIndex
 import com.epages.restdocs.apispec.postman.PostmanCollectionGenerator
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.Optional
@@ -23,13 +24,19 @@ open class PostmanTask : ApiSpecTask() {
 
     override fun outputFileExtension() = "json"
 
-    override fun generateSpecification(resourceModels: List<ResourceModel>): String =
+    override fun resourceModelProjection() = PostmanCollectionGenerator.RESOURCE_MODEL_PROJECTION
+
+    override fun generateSpecification(
+        pathIndex: PathIndex,
+        exampleStore: ExampleStore,
+    ): String =
         jacksonMapperBuilder().enable(SerializationFeature.INDENT_OUTPUT).build().writeValueAsString(
             PostmanCollectionGenerator.generate(
-                resources = resourceModels,
+                pathIndex = pathIndex,
                 title = title,
                 version = apiVersion,
                 baseUrl = baseUrl,
+                exampleStore = exampleStore,
             ),
         )
 
@@ -0,0 +1,98 @@
+package com.epages.restdocs.apispec.gradle
+
+import com.epages.restdocs.apispec.model.HTTPMethod
+import com.epages.restdocs.apispec.model.ResourceFilter
+import com.epages.restdocs.apispec.model.ResourceIndex
+import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ResourceModelCanonicalizer
+import com.epages.restdocs.apispec.model.ResourceModelProjection
+import com.epages.restdocs.apispec.model.ResourceReference
+import tools.jackson.databind.DeserializationFeature
+import tools.jackson.databind.ObjectMapper
+import tools.jackson.module.kotlin.jacksonMapperBuilder
+import tools.jackson.module.kotlin.readValue
+import java.io.File
+
+/**
+ * Reads the resource fragments in a snippets directory - selected via the [ResourceIndex] if it covers all of them.
+ */
+internal class ResourceFragmentReader(
+    private val snippetsDirectory: File,
+    private val projection: ResourceModelProjection,
+) {
+    val objectMapper: ObjectMapper = jacksonMapperBuilder().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build()
+
+    private val resourceFiles =
+        snippetsDirectory
+            .walkTopDown()
+            .filter { it.name == "resource.json" }
+            .toList()
+
+    /**
+     * @return the resource models selected by the filter - only the selected resource fragments are read if the index covers all of them
+     */
+    fun read(
+        filter: ResourceFilter,
+        canonicalizer: ResourceModelCanonicalizer,
+    ): List<ResourceModel> =
+        (if (filter.selectsAll) null else indexedReferences())
+            ?.filter { filter.includes(it) }
+            ?.map { canonicalizer.canonicalize(read(File(it.location))) }
+            ?: resourceFiles
+                .map { read(it) }
+                .filter { filter.includes(it) }
+                .map { canonicalizer.canonicalize(it) }
+
+    /**
+     * @return the references to all resource fragments - from the index or by only reading the path, method, tags and visibility
+     */
+    fun references(): List<ResourceReference> = indexedReferences() ?: headerReferences()
+
+    /**
+     * Only reads the parts of the resource fragment the generator consumes, see [projection].
+     */
+    fun read(file: File): ResourceModel =
+        projection
+            .filter(objectMapper.createParser(file))
+            .use { objectMapper.readValue(it, ResourceModel::class.java) }
+
+    /**
+     * @return the references in the order of the resource fragments - or null if the index does not cover all of them,
+     * e.g. because some fragments were written by a version of the resource snippet not maintaining the index
+     */
+    private fun indexedReferences(): List<ResourceReference>? {
+        val references =
+            ResourceIndex
+                .read(snippetsDirectory)
+                ?.associateBy { File(it.location).relativeTo(snippetsDirectory).invariantSeparatorsPath }
+                ?: return null
+        return resourceFiles.map { references[it.relativeTo(snippetsDirectory).invariantSeparatorsPath] ?: return null }
+    }
+
+    private fun headerReferences(): List<ResourceReference> =
+        resourceFiles.map { file ->
+            val header = objectMapper.readValue<ResourceFragmentHeader>(file)
+            ResourceReference(
+                path = header.request.path,
+                method = header.request.method,
+                operationId = header.operationId,
+                privateResource = header.privateResource,
+                location = file.path,
+                audiences = header.audiences,
+                tags = header.tags,
+            )
+        }
+
+    private data class ResourceFragmentHeader(
+        val operationId: String,
+        val privateResource: Boolean,
+        val request: RequestHeader,
+        val audiences: Set<String> = emptySet(),
+        val tags: Set<String> = emptySet(),
+    )
+
+    private data class RequestHeader(
+        val path: String,
+        val method: HTTPMethod,
+    )
+}
@@ -2,7 +2,9 @@ package com.epages.restdocs.apispec.gradle
 
 import org.gradle.api.Plugin
 import org.gradle.api.Project
+import org.gradle.api.attributes.Usage
 import org.gradle.api.tasks.TaskProvider
+import org.gradle.kotlin.dsl.named
 import org.gradle.kotlin.dsl.register
 
 open class RestdocsApiSpecPlugin : Plugin<Project> {
@@ -10,16 +12,38 @@ open class RestdocsApiSpecPlugin : Plugin<Project> {
         configure {
             dependsOn("check")
             group = "documentation"
+            partialSpecifications = project.configurations.getByName(PARTIAL_SPECIFICATIONS_CONFIGURATION)
             block()
         }
         return this
     }
 
+    /**
+     * Other projects depend on the partial specification of this project via [PARTIAL_SPECIFICATIONS_CONFIGURATION] -
+     * Gradle selects it by its [Usage] attribute among the variants of this project.
+     */
+    private fun Project.createPartialSpecificationConfigurations() {
+        val usage = objects.named<Usage>(PARTIAL_SPECIFICATION_USAGE)
+        configurations.create(PARTIAL_SPECIFICATIONS_CONFIGURATION) {
+            description = "Projects whose partial API specifications are aggregated into the API specifications of this project"
+            isCanBeConsumed = false
+            isCanBeResolved = true
+            attributes.attribute(Usage.USAGE_ATTRIBUTE, usage)
+        }
+        configurations.create(PARTIAL_SPECIFICATION_ELEMENTS_CONFIGURATION) {
+            description = "The partial API specification of this project"
+            isCanBeConsumed = true
+            isCanBeResolved = false
+            attributes.attribute(Usage.USAGE_ATTRIBUTE, usage)
+        }
+    }
+
     override fun apply(project: Project) {
         with(project) {
             extensions.create(OpenApiExtension.NAME, OpenApiExtension::class.java, project)
             extensions.create(OpenApi3Extension.NAME, OpenApi3Extension::class.java, project)
             extensions.create(PostmanExtension.NAME, PostmanExtension::class.java, project)
+            createPartialSpecificationConfigurations()
 
             afterEvaluate {
                 val openapi = extensions.findByName(OpenApiExtension.NAME) as OpenApiExtension
@@ -34,6 +58,22 @@ open class RestdocsApiSpecPlugin : Plugin<Project> {
                     applyExtension(openapi3)
                 }
 
+                val partialSpecification =
+                    tasks.register<PartialSpecificationTask>("apiSpecPartial") {
+                        dependsOn("check")
+                        group = "documentation"
+                        description = "Preprocess resource fragments into a partial API specification aggregated by other projects"
+                        applyExtension(openapi3)
+                        outputDirectory.set(layout.buildDirectory.dir("api-spec-partial"))
+                    }
+                artifacts.add(PARTIAL_SPECIFICATION_ELEMENTS_CONFIGURATION, partialSpecification.flatMap { it.outputDirectory })
+
+                tasks.register<OpenApi3MergeTask>("openapi3Merge") {
+                    group = "documentation"
+                    description = "Merge separately generated OpenAPI 3 specifications into one specification"
+                    applyExtension(openapi3)
+                }
+
                 val postman = extensions.findByName(PostmanExtension.NAME) as PostmanExtension
                 tasks.register<PostmanTask>("postman").applyWithCommonConfiguration {
                     description = "Aggregate resource fragments into an OpenAPI 3 specification"
@@ -42,4 +82,10 @@ open class RestdocsApiSpecPlugin : Plugin<Project> {
             }
         }
     }
+
+    companion object {
+        const val PARTIAL_SPECIFICATIONS_CONFIGURATION = "apiSpecPartials"
+        const val PARTIAL_SPECIFICATION_ELEMENTS_CONFIGURATION = "apiSpecPartialElements"
+        const val PARTIAL_SPECIFICATION_USAGE = "restdocs-api-spec-partial"
+    }
 }
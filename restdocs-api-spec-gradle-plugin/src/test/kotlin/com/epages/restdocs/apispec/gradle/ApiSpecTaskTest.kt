@@ -26,6 +26,10 @@ abstract class ApiSpecTaskTest {
 
     var separatePublicApi: Boolean = false
 
+    var lowMemory: Boolean = false
+
+    var includeVisibility = "all"
+
     var title = "API documentation"
 
     var version = "1.0.0"
@@ -69,12 +73,12 @@ abstract class ApiSpecTaskTest {
             .writeText(File("build/testkit/testkit-gradle.properties").readText())
     }
 
-    protected fun whenPluginExecuted() {
+    protected fun whenPluginExecuted(task: String = taskName) {
         result =
             GradleRunner
                 .create()
                 .withProjectDir(testProjectDir.toFile())
-                .withArguments("--info", "--stacktrace", taskName)
+                .withArguments("--info", "--stacktrace", task)
                 .withPluginClasspath()
                 .withDebug(true)
                 .build()
@@ -208,8 +212,12 @@ abstract class ApiSpecTaskTest {
         )
     }
 
-    protected fun thenApiSpecTaskSuccessful() {
-        BDDAssertions.then(result.task(":$taskName")!!.outcome).isEqualTo(TaskOutcome.SUCCESS)
+    protected fun givenResourceIndex(vararg lines: String) {
+        File(snippetsFolder, "resource-index.jsonl").writeText(lines.joinToString(separator = "\n", postfix = "\n"))
+    }
+
+    protected fun thenApiSpecTaskSuccessful(task: String = taskName) {
+        BDDAssertions.then(result.task(":$task")!!.outcome).isEqualTo(TaskOutcome.SUCCESS)
     }
 
     protected fun thenOutputFileFound() {
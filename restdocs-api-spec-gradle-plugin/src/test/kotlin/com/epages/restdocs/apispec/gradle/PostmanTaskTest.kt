@@ -68,6 +68,7 @@ class PostmanTaskTest : ApiSpecTaskTest() {
                     version = '$version'
                     baseUrl = '$baseUrl'
                     separatePublicApi = $separatePublicApi
+                    lowMemory = $lowMemory
                     outputFileNamePrefix = '$outputFileNamePrefix'
                 }
                 """.trimIndent(),
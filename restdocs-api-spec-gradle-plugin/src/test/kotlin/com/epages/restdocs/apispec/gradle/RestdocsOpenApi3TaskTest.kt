@@ -2,7 +2,9 @@ package com.epages.restdocs.apispec.gradle
 
 import com.jayway.jsonpath.JsonPath
 import org.assertj.core.api.BDDAssertions.then
+import org.gradle.testkit.runner.TaskOutcome
 import org.junit.jupiter.api.Test
+import java.io.File
 import java.lang.Boolean.FALSE
 
 class RestdocsOpenApi3TaskTest : RestdocsOpenApiTaskTestBase() {
@@ -70,6 +72,92 @@ class RestdocsOpenApi3TaskTest : RestdocsOpenApiTaskTestBase() {
         thenHeaderWithDefaultValuesContainedInOutput()
     }
 
+    @Test
+    fun `should aggregate partial specification of other project`() {
+        givenResourceSnippet()
+        val serviceSnippetsFolder = testProjectDir.resolve("service/build/generated-snippets").toFile()
+        serviceSnippetsFolder.parentFile.mkdirs()
+        snippetsFolder.renameTo(serviceSnippetsFolder)
+        testProjectDir.resolve("settings.gradle").toFile().writeText("include 'service'")
+        testProjectDir.resolve("service/build.gradle").toFile().writeText(baseBuildFile())
+        buildFile.writeText(
+            baseBuildFile() +
+                """
+                dependencies {
+                    apiSpecPartials project(':service')
+                }
+                openapi3 {
+                    format = '$format'
+                    outputFileNamePrefix = '$outputFileNamePrefix'
+                }
+                """.trimIndent(),
+        )
+
+        whenPluginExecuted()
+
+        thenApiSpecTaskSuccessful()
+        then(result.task(":service:apiSpecPartial")!!.outcome).isEqualTo(TaskOutcome.SUCCESS)
+        then(testProjectDir.resolve("service/build/api-spec-partial/resource-models.json")).exists()
+        then(outputFileContext().read<String>("paths./products/{id}.get.operationId")).isEqualTo("product-get")
+    }
+
+    @Test
+    fun `should only delete split specification files written by previous run`() {
+        givenResourceSnippet()
+        buildFile.writeText(
+            baseBuildFile() +
+                """
+                openapi3 {
+                    format = '$format'
+                    outputFileNamePrefix = '$outputFileNamePrefix'
+                    splitSpecification = true
+                }
+                """.trimIndent(),
+        )
+        whenPluginExecuted()
+        val pathFiles = outputFolder.resolve("$outputFileNamePrefix/paths").listFiles()!!.toList()
+        then(pathFiles).isNotEmpty()
+        val otherFile = outputFolder.resolve("$outputFileNamePrefix/README.md").apply { writeText("not generated") }
+
+        File(snippetsFolder, "some-operation").deleteRecursively()
+        whenPluginExecuted()
+
+        thenApiSpecTaskSuccessful()
+        pathFiles.forEach { then(it).doesNotExist() }
+        then(otherFile).exists()
+        then(outputFolder.resolve("$outputFileNamePrefix.$format")).exists()
+    }
+
+    @Test
+    fun `should merge specifications`() {
+        val shardsFolder = testProjectDir.resolve("shards").toFile().apply { mkdirs() }
+        listOf("/products" to "products", "/carts" to "carts").forEachIndexed { index, (path, operationId) ->
+            File(shardsFolder, "shard-$index.json").writeText(
+                """{ "openapi": "3.0.1", "info": { "title": "API", "version": "1.0.0" },
+                    "paths": { "$path": { "get": { "operationId": "$operationId" } } } }""",
+            )
+        }
+        buildFile.writeText(
+            baseBuildFile() +
+                """
+                openapi3Merge {
+                    specifications.from(fileTree('shards'))
+                }
+                """.trimIndent(),
+        )
+
+        whenPluginExecuted("openapi3Merge")
+
+        thenApiSpecTaskSuccessful("openapi3Merge")
+        then(outputFolder.resolve("$outputFileNamePrefix.$format")).doesNotExist()
+        val mergedFile = outputFolder.resolve("$outputFileNamePrefix-merged.$format")
+        then(mergedFile).exists()
+        with(JsonPath.parse(mergedFile.readText())) {
+            then(read<String>("paths./carts.get.operationId")).isEqualTo("carts")
+            then(read<String>("paths./products.get.operationId")).isEqualTo("products")
+        }
+    }
+
     private fun thenSingleServerContainedInOutput() {
         with(outputFileContext()) {
             then(read<List<String>>("servers[*].url")).containsOnly("http://some.api")
@@ -149,6 +237,8 @@ class RestdocsOpenApi3TaskTest : RestdocsOpenApiTaskTestBase() {
                     version = '$version'
                     format = '$format'
                     separatePublicApi = $separatePublicApi
+                    lowMemory = $lowMemory
+                    includeVisibility = '$includeVisibility'
                     outputFileNamePrefix = '$outputFileNamePrefix'
                 }
                 """.trimIndent(),
@@ -168,6 +258,7 @@ class RestdocsOpenApi3TaskTest : RestdocsOpenApiTaskTestBase() {
                     version = '$version'
                     format = '$format'
                     separatePublicApi = $separatePublicApi
+                    lowMemory = $lowMemory
                     outputFileNamePrefix = '$outputFileNamePrefix'
                     oauth2SecuritySchemeDefinition = {
                         flows = ['authorizationCode']
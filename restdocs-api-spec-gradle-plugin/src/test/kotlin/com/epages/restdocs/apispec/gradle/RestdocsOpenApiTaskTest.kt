@@ -20,6 +20,8 @@ class RestdocsOpenApiTaskTest : RestdocsOpenApiTaskTestBase() {
                     version = '$version'
                     format = '$format'
                     separatePublicApi = $separatePublicApi
+                    lowMemory = $lowMemory
+                    includeVisibility = '$includeVisibility'
                     outputFileNamePrefix = '$outputFileNamePrefix'
                 }
                 """.trimIndent(),
@@ -38,6 +40,7 @@ class RestdocsOpenApiTaskTest : RestdocsOpenApiTaskTestBase() {
                     version = '$version'
                     format = '$format'
                     separatePublicApi = $separatePublicApi
+                    lowMemory = $lowMemory
                     outputFileNamePrefix = '$outputFileNamePrefix'
                     oauth2SecuritySchemeDefinition = {
                         flows = ['accessCode']
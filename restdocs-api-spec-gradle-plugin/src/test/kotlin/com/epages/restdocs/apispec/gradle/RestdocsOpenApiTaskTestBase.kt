@@ -1,6 +1,11 @@
 package com.epages.restdocs.apispec.gradle
 
+import com.jayway.jsonpath.JsonPath
+import org.assertj.core.api.BDDAssertions.then
 import org.junit.jupiter.api.Test
+import java.io.File
+import java.security.MessageDigest
+import java.util.HexFormat
 
 abstract class RestdocsOpenApiTaskTestBase : ApiSpecTaskTest() {
     var host: String = "localhost"
@@ -52,6 +57,44 @@ abstract class RestdocsOpenApiTaskTestBase : ApiSpecTaskTest() {
         thenOutputFileForPublicResourceSpecificationFound()
     }
 
+    @Test
+    fun `should generate separate public api specification in low memory mode`() {
+        separatePublicApi = true
+        lowMemory = true
+        givenBuildFileWithOpenApiClosure()
+        givenTagsTextFile()
+        givenResourceSnippet()
+        givenPrivateResourceSnippet()
+
+        whenPluginExecuted()
+
+        thenApiSpecTaskSuccessful()
+        then(outputFolder.resolve("$outputFileNamePrefix.$format").readText()).contains("/products/some/{id}")
+        then(outputFolder.resolve("$outputFileNamePrefix-public.$format").readText()).doesNotContain("/products/some/{id}")
+    }
+
+    @Test
+    fun `should only load resource fragments selected by resource index`() {
+        includeVisibility = "public"
+        givenBuildFileWithOpenApiClosure()
+        givenTagsTextFile()
+        givenResourceSnippet()
+        File(snippetsFolder, "some-private-operation").apply { mkdir() }.resolve("resource.json").writeText("not loaded")
+        givenResourceIndex(
+            """{"operationId":"product-get","path":"/products/{id}","method":"GET","tags":["products"],""" +
+                """"privateResource":false,"audiences":[],"location":"some-operation/resource.json"}""",
+            """{"operationId":"product-get-some","path":"/products/some/{id}","method":"GET","tags":["products"],""" +
+                """"privateResource":true,"audiences":[],"location":"some-private-operation/resource.json"}""",
+        )
+
+        whenPluginExecuted()
+
+        thenApiSpecTaskSuccessful()
+        then(outputFolder.resolve("$outputFileNamePrefix.$format").readText())
+            .contains("/products/{id}")
+            .doesNotContain("/products/some/{id}")
+    }
+
     @Test
     fun `should consider security definitions`() {
         givenBuildFileWithOpenApiClosureAndSecurityDefinitions()
@@ -66,6 +109,25 @@ abstract class RestdocsOpenApiTaskTestBase : ApiSpecTaskTest() {
         thenSecurityDefinitionsFoundInOutputFile()
     }
 
+    @Test
+    fun `should keep unchanged output file and write manifest`() {
+        givenBuildFileWithOpenApiClosure()
+        givenTagsTextFile()
+        givenResourceSnippet()
+        whenPluginExecuted()
+        val outputFile = outputFolder.resolve("$outputFileNamePrefix.$format")
+        outputFile.setLastModified(0)
+
+        whenPluginExecuted()
+
+        thenApiSpecTaskSuccessful()
+        then(outputFile.lastModified()).isEqualTo(0)
+        val manifest = JsonPath.parse(outputFolder.resolve("$outputFileNamePrefix.manifest.json"))
+        then(manifest.read<String>("algorithm")).isEqualTo("SHA-256")
+        then(manifest.read<String>("files['$outputFileNamePrefix.$format']"))
+            .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(outputFile.readBytes())))
+    }
+
     abstract fun thenSecurityDefinitionsFoundInOutputFile()
 
     private fun givenScopeTextFile() {
@@ -19,6 +19,14 @@ the<DependencyManagementExtension>().apply {
 
 dependencies {
     implementation("com.fasterxml.jackson.core:jackson-annotations")
+    implementation("tools.jackson.core:jackson-databind:3.0.2")
+    // the StreamingYamlGenerator is only used by the generators - they bring jackson 2 with swagger
+    compileOnly("com.fasterxml.jackson.core:jackson-core")
+
+    testImplementation("com.fasterxml.jackson.dataformat:jackson-dataformat-yaml")
+    testImplementation("org.junit.jupiter:junit-jupiter-engine")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    testImplementation("org.assertj:assertj-core")
 }
 
 publishing {
@@ -0,0 +1,33 @@
+package com.epages.restdocs.apispec.model
+
+/**
+ * An audience a separate API specification is generated for - e.g. `public`, `partner` or `internal`.
+ *
+ * The specification of an audience contains the resources restricted to this audience
+ * and the resources that are neither private nor restricted to any audience.
+ */
+data class Audience(
+    val name: String,
+) {
+    fun includes(resource: ResourceModel): Boolean = includes(resource.privateResource, resource.audiences)
+
+    fun includes(reference: ResourceReference): Boolean = includes(reference.privateResource, reference.audiences)
+
+    /**
+     * @return the name of the specification of this audience - derived from the name of the specification of all resources
+     */
+    fun specificationName(name: String): String = "$name-${this.name}"
+
+    private fun includes(
+        privateResource: Boolean,
+        audiences: Set<String>,
+    ): Boolean = if (audiences.isEmpty()) !privateResource else name in audiences
+
+    companion object {
+        /**
+         * Contains the resources that are neither private nor restricted to any other audience.
+         */
+        @JvmField
+        val PUBLIC = Audience("public")
+    }
+}
@@ -0,0 +1,31 @@
+package com.epages.restdocs.apispec.model
+
+import tools.jackson.core.JsonParser
+import tools.jackson.core.JsonToken
+import tools.jackson.databind.DeserializationContext
+import tools.jackson.databind.ValueDeserializer
+import tools.jackson.databind.json.JsonMapper
+import java.io.StringWriter
+
+/**
+ * Reads an example body given as JSON string - or as raw JSON value, see [RequestModel.rawExample].
+ *
+ * A raw JSON value is copied token by token into compact JSON text - no tree is built.
+ */
+internal class ExampleDeserializer : ValueDeserializer<String>() {
+    override fun deserialize(
+        p: JsonParser,
+        ctxt: DeserializationContext,
+    ): String =
+        if (p.currentToken() == JsonToken.VALUE_STRING) {
+            p.string
+        } else {
+            StringWriter()
+                .also { writer -> objectMapper.createGenerator(writer).use { it.copyCurrentStructure(p) } }
+                .toString()
+        }
+
+    private companion object {
+        val objectMapper = JsonMapper.builder().build()
+    }
+}
@@ -0,0 +1,63 @@
+package com.epages.restdocs.apispec.model
+
+import java.io.File
+import java.util.Optional
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Resolves the example bodies referenced by [RequestModel.exampleRef] and [ResponseModel.exampleRef].
+ *
+ * Identical example bodies are only written once next to the resource fragments - keyed by a hash of their content.
+ */
+fun interface ExampleStore {
+    /**
+     * @return the example body or null if the store does not contain the referenced example
+     */
+    fun load(ref: String): String?
+
+    companion object {
+        /**
+         * Name of the directory next to the resource fragments that contains the example bodies.
+         */
+        const val DIRECTORY_NAME = "examples"
+
+        @JvmField
+        val NONE = ExampleStore { null }
+    }
+}
+
+/**
+ * Reads the example bodies from the files in the given directory.
+ */
+class DirectoryExampleStore(
+    private val directory: File,
+    /**
+     * Keep the examples read - so each example is read at most once. Without caching an example is read on each load,
+     * so only the examples of the resource models currently processed are held in memory.
+     */
+    private val cacheExamples: Boolean = true,
+) : ExampleStore {
+    private val examples = ConcurrentHashMap<String, Optional<String>>()
+
+    override fun load(ref: String): String? =
+        if (cacheExamples) {
+            examples.computeIfAbsent(ref) { Optional.ofNullable(read(it)) }.orElse(null)
+        } else {
+            read(ref)
+        }
+
+    private fun read(ref: String): String? = File(directory, ref).takeIf { it.isFile }?.readText()
+}
+
+/**
+ * @return the model with the referenced examples inlined - the model itself if it does not reference any example
+ */
+fun ResourceModel.withResolvedExamples(exampleStore: ExampleStore): ResourceModel =
+    if (request.exampleRef == null && response.exampleRef == null) {
+        this
+    } else {
+        copy(
+            request = request.copy(example = request.example ?: request.exampleRef?.let { exampleStore.load(it) }, exampleRef = null),
+            response = response.copy(example = response.example ?: response.exampleRef?.let { exampleStore.load(it) }, exampleRef = null),
+        )
+    }
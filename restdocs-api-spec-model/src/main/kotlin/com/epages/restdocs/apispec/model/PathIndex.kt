@@ -0,0 +1,94 @@
+package com.epages.restdocs.apispec.model
+
+/**
+ * Index of resource models by path - built once and shared by the generators.
+ *
+ * The paths are ordered by first path segment, then path depth, then path.
+ * The sort keys are computed once per distinct path instead of on every comparison.
+ */
+class PathIndex private constructor(
+    /**
+     * The resource models with the same path - in the order of the paths.
+     */
+    val entries: List<PathEntry>,
+) {
+    constructor(resources: Iterable<ResourceModel>) : this(
+        resources
+            .groupBy { it.request.path }
+            .map { (path, resourcesWithSamePath) -> PathEntry(path) { resourcesWithSamePath } }
+            .sortedWith(PATH_ORDER),
+    )
+
+    fun byPath(): Map<String, List<ResourceModel>> = entries.associate { it.path to it.loadResources() }
+
+    companion object {
+        private val PATH_ORDER =
+            compareBy<PathEntry> { it.segments.firstOrNull().orEmpty() }
+                .thenBy { it.depth }
+                .thenBy { it.path }
+
+        /**
+         * @return the paths in the order of a path index
+         */
+        fun sortPaths(paths: Collection<String>): List<String> =
+            paths
+                .map { PathEntry(it) { emptyList() } }
+                .sortedWith(PATH_ORDER)
+                .map { it.path }
+
+        /**
+         * Index of resource models that are only loaded when the resource models of a path are accessed - and not retained.
+         *
+         * So at most the resource models of one path are held in memory while generating a specification.
+         */
+        fun ofReferences(
+            references: Iterable<ResourceReference>,
+            load: (ResourceReference) -> ResourceModel,
+        ): PathIndex =
+            PathIndex(
+                references
+                    .groupBy { it.path }
+                    .map { (path, referencesWithSamePath) -> PathEntry(path) { referencesWithSamePath.map(load) } }
+                    .sortedWith(PATH_ORDER),
+            )
+    }
+}
+
+class PathEntry internal constructor(
+    val path: String,
+    private val load: () -> List<ResourceModel>,
+) {
+    /**
+     * The non-empty path segments.
+     */
+    val segments: List<String> = path.split("/").filter { it.isNotEmpty() }
+
+    /**
+     * The number of '/' in the path.
+     */
+    val depth: Int = path.count { it == '/' }
+
+    /**
+     * The resource models with this path - in the order they were indexed.
+     * They are loaded again on each call if the index was built from [ResourceReference]s - call it once per path.
+     */
+    fun loadResources(): List<ResourceModel> = load()
+}
+
+/**
+ * Lightweight reference to a resource model - used to build a [PathIndex] without holding all resource models in memory.
+ */
+data class ResourceReference(
+    val path: String,
+    val method: HTTPMethod,
+    val operationId: String,
+    val privateResource: Boolean,
+    /**
+     * Where to load the resource model from - e.g. the resource fragment file.
+     */
+    val location: String,
+    val audiences: Set<String> = emptySet(),
+    val tags: Set<String> = emptySet(),
+)
+
+fun List<ResourceModel>.groupByMethod(): Map<HTTPMethod, List<ResourceModel>> = groupBy { it.request.method }
@@ -0,0 +1,135 @@
+package com.epages.restdocs.apispec.model
+
+import tools.jackson.core.JacksonException
+import tools.jackson.databind.json.JsonMapper
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+
+/**
+ * Reads the index of the resource fragments the resource snippet appends to - one JSON line per documented resource.
+ *
+ * The index allows to select the resource fragments to load by their path, method, tags and visibility - without parsing them.
+ */
+object ResourceIndex {
+    /**
+     * Name of the index file in the snippets directory.
+     */
+    const val FILE_NAME = "resource-index.jsonl"
+
+    private val objectMapper = JsonMapper.builder().build()
+
+    /**
+     * A resource documented again is appended again - the last line of a fragment location wins.
+     * Lines not written completely - e.g. by a cancelled test run - and lines missing fields or with unknown values are ignored.
+     *
+     * The index is only read - under a shared lock, so resource snippets do not append while it is read.
+     *
+     * @return the references to the indexed resource fragments - in the order they were first indexed,
+     * or null if the snippets directory contains no index
+     */
+    fun read(snippetsDirectory: File): List<ResourceReference>? {
+        val file = File(snippetsDirectory, FILE_NAME)
+        if (!file.isFile) return null
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ).use { channel ->
+            channel.lock(0, Long.MAX_VALUE, true).use {
+                val content = ByteBuffer.allocate(channel.size().toInt())
+                while (content.hasRemaining() && channel.read(content, content.position().toLong()) >= 0) {
+                    // read until the buffer is full
+                }
+                val references = LinkedHashMap<String, ResourceReference>()
+                String(content.array(), Charsets.UTF_8)
+                    .lineSequence()
+                    .filter { it.isNotBlank() }
+                    .forEach { line -> parse(snippetsDirectory, line)?.let { (location, reference) -> references[location] = reference } }
+                references.values.toList()
+            }
+        }
+    }
+
+    private fun parse(
+        snippetsDirectory: File,
+        line: String,
+    ): Pair<String, ResourceReference>? {
+        val entry =
+            try {
+                objectMapper.readValue(line, Map::class.java)
+            } catch (_: JacksonException) {
+                return null
+            }
+        val location = entry["location"] as? String ?: return null
+        val path = entry["path"] as? String ?: return null
+        val method = HTTPMethod.entries.find { it.name == entry["method"] } ?: return null
+        val operationId = entry["operationId"] as? String ?: return null
+        return location to
+            ResourceReference(
+                path = path,
+                method = method,
+                operationId = operationId,
+                privateResource = entry["privateResource"] as? Boolean ?: false,
+                location = File(snippetsDirectory, location).path,
+                audiences = (entry["audiences"] as? List<*>).orEmpty().map { it.toString() }.toSet(),
+                tags = (entry["tags"] as? List<*>).orEmpty().map { it.toString() }.toSet(),
+            )
+    }
+}
+
+/**
+ * Selects resources by tag, path prefix and visibility - each criterion without values selects all resources.
+ *
+ * @param tags a resource is selected if it has any of these tags
+ * @param pathPrefixes a resource is selected if its path starts with any of these prefixes
+ */
+data class ResourceFilter(
+    val tags: Set<String> = emptySet(),
+    val pathPrefixes: Set<String> = emptySet(),
+    val visibility: Visibility = Visibility.ALL,
+) {
+    val selectsAll: Boolean
+        get() = this == ALL
+
+    fun includes(reference: ResourceReference): Boolean = includes(reference.path, reference.tags, reference.privateResource)
+
+    fun includes(resource: ResourceModel): Boolean = includes(resource.request.path, resource.tags, resource.privateResource)
+
+    private fun includes(
+        path: String,
+        tags: Set<String>,
+        privateResource: Boolean,
+    ): Boolean =
+        (this.tags.isEmpty() || tags.any { it in this.tags }) &&
+            (pathPrefixes.isEmpty() || pathPrefixes.any { path.startsWith(it) }) &&
+            visibility.includes(privateResource)
+
+    enum class Visibility {
+        ALL,
+        PUBLIC,
+        PRIVATE,
+        ;
+
+        fun includes(privateResource: Boolean): Boolean =
+            when (this) {
+                ALL -> true
+                PUBLIC -> !privateResource
+                PRIVATE -> privateResource
+            }
+
+        companion object {
+            /**
+             * @param name the name of a visibility - `all`, `public` or `private`
+             * @throws IllegalArgumentException if there is no visibility of this name
+             */
+            @JvmStatic
+            fun named(name: String): Visibility =
+                requireNotNull(entries.firstOrNull { it.name.equals(name, ignoreCase = true) }) {
+                    "Unknown visibility '$name' - expected one of ${entries.joinToString { it.name.lowercase() }}"
+                }
+        }
+    }
+
+    companion object {
+        @JvmField
+        val ALL = ResourceFilter()
+    }
+}
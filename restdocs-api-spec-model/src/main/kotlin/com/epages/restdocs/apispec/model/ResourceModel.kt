@@ -1,6 +1,7 @@
 package com.epages.restdocs.apispec.model
 
 import com.fasterxml.jackson.annotation.JsonProperty
+import tools.jackson.databind.annotation.JsonDeserialize
 
 data class ResourceModel(
     val operationId: String,
@@ -11,21 +12,18 @@ data class ResourceModel(
     val tags: Set<String> = emptySet(),
     val request: RequestModel,
     val response: ResponseModel,
+    /**
+     * The audiences this resource is restricted to - empty if it is not restricted to specific audiences.
+     *
+     * @see Audience
+     */
+    val audiences: Set<String> = emptySet(),
 )
 
-fun List<ResourceModel>.groupByPath(): Map<String, List<ResourceModel>> =
-    this
-        .sortedWith(
-            // by first path segment, then path length, then path
-            Comparator
-                .comparing<ResourceModel, String> {
-                    it.request.path
-                        .split("/")
-                        .firstOrNull { s -> s.isNotEmpty() }
-                        .orEmpty()
-                }.thenComparing(Comparator.comparingInt { it.request.path.count { c -> c == '/' } })
-                .thenComparing(Comparator.comparing { it.request.path }),
-        ).groupBy { it.request.path }
+/**
+ * @see PathIndex for the order of the paths
+ */
+fun List<ResourceModel>.groupByPath(): Map<String, List<ResourceModel>> = PathIndex(this).byPath()
 
 data class Schema(
     val name: String,
@@ -35,13 +33,28 @@ data class RequestModel(
     val path: String,
     val method: HTTPMethod,
     val contentType: String? = null,
-    val securityRequirements: SecurityRequirements?,
+    val securityRequirements: SecurityRequirements? = null,
     val headers: List<HeaderDescriptor>,
     val pathParameters: List<ParameterDescriptor>,
     val queryParameters: List<ParameterDescriptor>,
-    val formParameters: List<ParameterDescriptor>,
-    val requestFields: List<FieldDescriptor>,
+    /**
+     * Empty if not consumed - see [ResourceModelProjection].
+     */
+    val formParameters: List<ParameterDescriptor> = emptyList(),
+    /**
+     * Empty if not consumed - see [ResourceModelProjection].
+     */
+    val requestFields: List<FieldDescriptor> = emptyList(),
+    @JsonDeserialize(using = ExampleDeserializer::class)
     val example: String? = null,
+    /**
+     * Key of the example body in the [ExampleStore] - set instead of [example] if examples are deduplicated.
+     */
+    val exampleRef: String? = null,
+    /**
+     * The [example] is JSON - stored as raw JSON value in the resource fragment instead of a JSON string.
+     */
+    val rawExample: Boolean = false,
     val schema: Schema? = null,
 )
 
@@ -49,8 +62,20 @@ data class ResponseModel(
     val status: Int,
     val contentType: String?,
     val headers: List<HeaderDescriptor>,
-    val responseFields: List<FieldDescriptor>,
+    /**
+     * Empty if not consumed - see [ResourceModelProjection].
+     */
+    val responseFields: List<FieldDescriptor> = emptyList(),
+    @JsonDeserialize(using = ExampleDeserializer::class)
     val example: String? = null,
+    /**
+     * Key of the example body in the [ExampleStore] - set instead of [example] if examples are deduplicated.
+     */
+    val exampleRef: String? = null,
+    /**
+     * The [example] is JSON - stored as raw JSON value in the resource fragment instead of a JSON string.
+     */
+    val rawExample: Boolean = false,
     val schema: Schema? = null,
 )
 
@@ -0,0 +1,129 @@
+package com.epages.restdocs.apispec.model
+
+/**
+ * Shares equal values between resource models - e.g. paths, content types, descriptions, attributes and constraints.
+ *
+ * Resource models read from many resource fragments contain lots of equal values.
+ * Canonicalizing each model right after reading it means only one instance of each value is kept.
+ *
+ * Not thread safe.
+ */
+class ResourceModelCanonicalizer(
+    /**
+     * Examples are large and mostly distinct - only share them if the resource models are retained anyway.
+     */
+    private val canonicalizeExamples: Boolean = true,
+) {
+    private val strings = HashMap<String, String>()
+    private val attributes = HashMap<Attributes, Attributes>()
+    private val constraints = HashMap<Constraint, Constraint>()
+    private val schemas = HashMap<Schema, Schema>()
+    private val securityRequirements = HashMap<SecurityRequirements, SecurityRequirements>()
+
+    fun canonicalize(model: ResourceModel): ResourceModel =
+        model.copy(
+            operationId = string(model.operationId),
+            summary = model.summary?.let { string(it) },
+            description = model.description?.let { string(it) },
+            tags = model.tags.mapTo(LinkedHashSet()) { string(it) },
+            audiences = model.audiences.mapTo(LinkedHashSet()) { string(it) },
+            request = canonicalize(model.request),
+            response = canonicalize(model.response),
+        )
+
+    private fun canonicalize(request: RequestModel): RequestModel =
+        request.copy(
+            path = string(request.path),
+            contentType = request.contentType?.let { string(it) },
+            securityRequirements = request.securityRequirements?.let { securityRequirements(it) },
+            headers = list(request.headers) { header(it) },
+            pathParameters = list(request.pathParameters) { parameter(it) },
+            queryParameters = list(request.queryParameters) { parameter(it) },
+            formParameters = list(request.formParameters) { parameter(it) },
+            requestFields = list(request.requestFields) { field(it) },
+            example = request.example?.let { example(it) },
+            exampleRef = request.exampleRef?.let { string(it) },
+            schema = request.schema?.let { schema(it) },
+        )
+
+    private fun canonicalize(response: ResponseModel): ResponseModel =
+        response.copy(
+            contentType = response.contentType?.let { string(it) },
+            headers = list(response.headers) { header(it) },
+            responseFields = list(response.responseFields) { field(it) },
+            example = response.example?.let { example(it) },
+            exampleRef = response.exampleRef?.let { string(it) },
+            schema = response.schema?.let { schema(it) },
+        )
+
+    private fun header(header: HeaderDescriptor): HeaderDescriptor =
+        header.copy(
+            name = string(header.name),
+            description = string(header.description),
+            type = string(header.type),
+            defaultValue = header.defaultValue?.let { value(it) },
+            example = header.example?.let { string(it) },
+            attributes = attributes(header.attributes),
+        )
+
+    private fun parameter(parameter: ParameterDescriptor): ParameterDescriptor =
+        parameter.copy(
+            name = string(parameter.name),
+            description = string(parameter.description),
+            type = string(parameter.type),
+            defaultValue = parameter.defaultValue?.let { value(it) },
+            attributes = attributes(parameter.attributes),
+        )
+
+    /**
+     * Subclasses of [FieldDescriptor] are kept as they are - only plain field descriptors can be recreated.
+     */
+    private fun field(field: FieldDescriptor): FieldDescriptor =
+        if (field.javaClass != FieldDescriptor::class.java) {
+            field
+        } else {
+            FieldDescriptor(
+                path = string(field.path),
+                description = string(field.description),
+                type = string(field.type),
+                optional = field.optional,
+                ignored = field.ignored,
+                attributes = attributes(field.attributes),
+            )
+        }
+
+    private fun attributes(attributes: Attributes): Attributes =
+        this.attributes[attributes]
+            ?: Attributes(
+                validationConstraints = list(attributes.validationConstraints) { constraint(it) },
+                enumValues = list(attributes.enumValues) { value(it) },
+                itemsType = attributes.itemsType?.let { string(it) },
+                schemaName = attributes.schemaName?.let { string(it) },
+            ).also { this.attributes[it] = it }
+
+    private fun constraint(constraint: Constraint): Constraint =
+        constraints[constraint]
+            ?: Constraint(
+                name = string(constraint.name),
+                configuration = constraint.configuration.entries.associate { string(it.key) to value(it.value) },
+            ).also { constraints[it] = it }
+
+    private fun schema(schema: Schema): Schema = schemas.getOrPut(schema) { Schema(string(schema.name)) }
+
+    private fun securityRequirements(securityRequirements: SecurityRequirements): SecurityRequirements =
+        this.securityRequirements[securityRequirements]
+            ?: securityRequirements
+                .copy(requiredScopes = securityRequirements.requiredScopes?.let { scopes -> list(scopes) { string(it) } })
+                .also { this.securityRequirements[it] = it }
+
+    private fun value(value: Any): Any = if (value is String) string(value) else value
+
+    private fun example(example: String): String = if (canonicalizeExamples) string(example) else example
+
+    private fun string(string: String): String = strings.getOrPut(string) { string }
+
+    private fun <T : Any> list(
+        list: List<T>,
+        canonicalize: (T) -> T,
+    ): List<T> = if (list.isEmpty()) emptyList() else list.map(canonicalize)
+}
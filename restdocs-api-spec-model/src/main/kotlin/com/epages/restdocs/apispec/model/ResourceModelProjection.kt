@@ -0,0 +1,62 @@
+package com.epages.restdocs.apispec.model
+
+import tools.jackson.core.JsonParser
+import tools.jackson.core.filter.FilteringParserDelegate
+import tools.jackson.core.filter.TokenFilter
+
+/**
+ * The optional parts of the resource models a generator consumes.
+ *
+ * Resource fragments are read through [filter] - the parts a generator does not consume are skipped by the parser
+ * without decoding their strings or creating any objects for them. The resource models contain empty or null values instead.
+ */
+class ResourceModelProjection(
+    val consumedParts: Set<ResourceModelPart>,
+) {
+    private val skippedRequestProperties = skippedProperties(ResourceModelPart::requestProperty)
+    private val skippedResponseProperties = skippedProperties(ResourceModelPart::responseProperty)
+
+    fun filter(parser: JsonParser): JsonParser =
+        if (skippedRequestProperties.isEmpty() && skippedResponseProperties.isEmpty()) {
+            parser
+        } else {
+            FilteringParserDelegate(parser, ResourceModelFilter(), TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true)
+        }
+
+    private fun skippedProperties(property: (ResourceModelPart) -> String?): Set<String> =
+        (ResourceModelPart.entries - consumedParts).mapNotNull(property).toSet()
+
+    private inner class ResourceModelFilter : TokenFilter() {
+        override fun includeProperty(name: String): TokenFilter =
+            when (name) {
+                "request" -> PropertyFilter(skippedRequestProperties)
+                "response" -> PropertyFilter(skippedResponseProperties)
+                else -> INCLUDE_ALL
+            }
+    }
+
+    private class PropertyFilter(
+        private val skippedProperties: Set<String>,
+    ) : TokenFilter() {
+        override fun includeProperty(name: String): TokenFilter? = if (name in skippedProperties) null else INCLUDE_ALL
+    }
+
+    companion object {
+        @JvmField
+        val FULL = ResourceModelProjection(ResourceModelPart.entries.toSet())
+    }
+}
+
+/**
+ * The parts of a resource model only some generators consume.
+ */
+enum class ResourceModelPart(
+    internal val requestProperty: String?,
+    internal val responseProperty: String?,
+) {
+    REQUEST_FIELDS("requestFields", null),
+    RESPONSE_FIELDS(null, "responseFields"),
+    FORM_PARAMETERS("formParameters", null),
+    SECURITY_REQUIREMENTS("securityRequirements", null),
+    SCHEMA_NAMES("schema", "schema"),
+}
@@ -0,0 +1,99 @@
+package com.epages.restdocs.apispec.model
+
+import tools.jackson.databind.json.JsonMapper
+import java.security.MessageDigest
+import java.util.HexFormat
+import java.util.TreeMap
+
+/**
+ * Names the request and response schemas the generators extract into the definitions of a specification.
+ *
+ * Schemas named via [Attributes.schemaName] keep their name. If a strategy returns a name already taken by another schema,
+ * the generator appends a counter - so a strategy does not have to guarantee unique names.
+ */
+fun interface SchemaNamingStrategy {
+    fun schemaName(schema: SchemaNameContext): String
+
+    companion object {
+        /**
+         * Names a schema by the path it is first used in and the hash of its canonical content - `products-id-3f2a9c1e`.
+         * The name only changes if the schema changes - it is the same on every machine and in every run.
+         */
+        @JvmField
+        val CONTENT_HASH = SchemaNamingStrategy { "${it.pathName}${it.separator}${it.contentHash}" }
+
+        /**
+         * Names a schema by the path, method and status of the operation it is first used in - `products-id-get-200`.
+         * The name of a request schema ends with `request` instead of a status.
+         */
+        @JvmField
+        val PATH_AND_METHOD =
+            SchemaNamingStrategy {
+                listOf(it.pathName, it.method.lowercase(), it.status ?: "request").joinToString(it.separator)
+            }
+
+        /**
+         * Names a schema by its title - schemas without title are named by [CONTENT_HASH].
+         */
+        @JvmField
+        val TITLE = SchemaNamingStrategy { it.title ?: CONTENT_HASH.schemaName(it) }
+
+        private val strategiesByName =
+            mapOf(
+                "contentHash" to CONTENT_HASH,
+                "pathAndMethod" to PATH_AND_METHOD,
+                "title" to TITLE,
+            )
+
+        /**
+         * @param name the name of a built-in strategy - `contentHash`, `pathAndMethod` or `title`
+         * @throws IllegalArgumentException if there is no built-in strategy of this name
+         */
+        @JvmStatic
+        fun named(name: String): SchemaNamingStrategy =
+            requireNotNull(strategiesByName[name]) {
+                "Unknown schema naming strategy '$name' - expected one of ${strategiesByName.keys.joinToString()}"
+            }
+    }
+}
+
+/**
+ * @param path the path of the operation the schema is first used in
+ * @param pathName the path without parameter braces and with [separator] instead of slashes - `products-id` for `/products/{id}`
+ * @param separator the separator the generator joins the parts of a name with
+ * @param method the method of the operation the schema is first used in
+ * @param status the status of the response the schema is used in - null for a request schema
+ * @param title the title of the schema
+ * @param content the schema as converted to maps, lists and values - only read to compute the [contentHash]
+ */
+class SchemaNameContext(
+    val path: String,
+    val pathName: String,
+    val separator: String,
+    val method: String,
+    val status: String?,
+    val title: String?,
+    private val content: () -> Any?,
+) {
+    /**
+     * Hash of the schema serialized with its properties ordered by name - so it does not depend on the order of the properties
+     * or on the hash codes of the model classes.
+     */
+    val contentHash: String by lazy {
+        val digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(canonical(content())))
+        HexFormat.of().formatHex(digest, 0, HASH_BYTES)
+    }
+
+    private companion object {
+        const val HASH_BYTES = 4
+
+        val objectMapper: JsonMapper = JsonMapper.builder().build()
+
+        fun canonical(value: Any?): Any? =
+            when (value) {
+                is Map<*, *> -> value.entries.associateTo(TreeMap()) { (key, entry) -> key.toString() to canonical(entry) }
+                is Collection<*> -> value.map { canonical(it) }
+                else -> value
+            }
+    }
+}
@@ -0,0 +1,25 @@
+package com.epages.restdocs.apispec.model
+
+/**
+ * Records the security schemes the operations of a specification require - and the union of the scopes they require per scheme.
+ *
+ * Filled while the operations are added to the specification - so the security definitions are added without scanning
+ * all operations again for each scheme.
+ */
+class SecurityIndex {
+    private val scopesBySchemeName = LinkedHashMap<String, MutableSet<String>>()
+
+    fun add(
+        schemeName: String,
+        scopes: Collection<String> = emptyList(),
+    ) {
+        scopesBySchemeName.getOrPut(schemeName) { LinkedHashSet() }.addAll(scopes)
+    }
+
+    fun requires(schemeName: String): Boolean = schemeName in scopesBySchemeName
+
+    /**
+     * @return the scopes in the order they were first required
+     */
+    fun scopes(schemeName: String): Set<String> = scopesBySchemeName[schemeName].orEmpty()
+}
@@ -0,0 +1,109 @@
+package com.epages.restdocs.apispec.model
+
+import tools.jackson.core.JacksonException
+import tools.jackson.databind.SerializationFeature
+import tools.jackson.databind.json.JsonMapper
+import java.io.File
+import java.io.OutputStream
+import java.nio.file.AtomicMoveNotSupportedException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.DigestInputStream
+import java.security.MessageDigest
+import java.util.HexFormat
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Writes specification files only if their content changed - so the modification time of unchanged files is kept
+ * and the build steps depending on them are not invalidated.
+ *
+ * Next to the files a manifest lists the SHA-256 hash of each file - so a build pipeline can skip the steps depending on unchanged
+ * specifications without hashing them again.
+ */
+object SpecificationFileWriter {
+    /**
+     * The manifest is named like the specification - `<name>.manifest.json`.
+     */
+    const val MANIFEST_EXTENSION = "manifest.json"
+
+    private const val ALGORITHM = "SHA-256"
+
+    private val objectMapper = JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build()
+
+    /**
+     * The files are written in parallel.
+     *
+     * @param files the content of the files by their path relative to the directory
+     * @param manifestName the name of the manifest without [MANIFEST_EXTENSION]
+     * @param deleteStaleFiles delete the files listed in the previous manifest that are not written again - other files
+     * in the directory are kept
+     * @return the hashes of the files by their path
+     */
+    fun write(
+        directory: File,
+        files: Map<String, String>,
+        manifestName: String,
+        deleteStaleFiles: Boolean = false,
+    ): Map<String, String> {
+        directory.mkdirs()
+        val manifestFile = File(directory, "$manifestName.$MANIFEST_EXTENSION")
+        val previousFiles = if (deleteStaleFiles) manifestFiles(manifestFile) else emptySet()
+        val hashes = ConcurrentHashMap<String, String>()
+        files.entries.parallelStream().forEach { (path, content) ->
+            hashes[path] = writeIfChanged(File(directory, path), content.toByteArray())
+        }
+        val manifest = mapOf("algorithm" to ALGORITHM, "files" to hashes.toSortedMap())
+        writeIfChanged(manifestFile, objectMapper.writeValueAsBytes(manifest))
+        (previousFiles - files.keys).forEach { File(directory, it).delete() }
+        return hashes
+    }
+
+    /**
+     * @return the paths of the files listed in the manifest - none if there is no readable manifest
+     */
+    private fun manifestFiles(manifestFile: File): Set<String> =
+        try {
+            if (manifestFile.isFile) {
+                (objectMapper.readValue(manifestFile, Map::class.java)["files"] as? Map<*, *>).orEmpty().keys.map { it.toString() }.toSet()
+            } else {
+                emptySet()
+            }
+        } catch (_: JacksonException) {
+            emptySet()
+        }
+
+    /**
+     * The existing file is hashed while it is read - without holding its content in memory.
+     * A changed file is replaced atomically - readers never see a partially written specification.
+     *
+     * @return the hash of the content
+     */
+    fun writeIfChanged(
+        file: File,
+        content: ByteArray,
+    ): String {
+        val hash = MessageDigest.getInstance(ALGORITHM).digest(content).toHex()
+        if (file.isFile && file.length() == content.size.toLong() && hashOf(file) == hash) return hash
+        file.absoluteFile.parentFile.mkdirs()
+        val tempFile = Files.createTempFile(file.absoluteFile.parentFile.toPath(), file.name, ".tmp")
+        try {
+            Files.write(tempFile, content)
+            try {
+                Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+            } catch (_: AtomicMoveNotSupportedException) {
+                Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING)
+            }
+        } finally {
+            Files.deleteIfExists(tempFile)
+        }
+        return hash
+    }
+
+    private fun hashOf(file: File): String {
+        val digest = MessageDigest.getInstance(ALGORITHM)
+        DigestInputStream(file.inputStream(), digest).use { it.transferTo(OutputStream.nullOutputStream()) }
+        return digest.digest().toHex()
+    }
+
+    private fun ByteArray.toHex() = HexFormat.of().formatHex(this)
+}
@@ -0,0 +1,198 @@
+package com.epages.restdocs.apispec.model
+
+import com.fasterxml.jackson.core.Base64Variant
+import com.fasterxml.jackson.core.JsonFactory
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.ObjectCodec
+import com.fasterxml.jackson.core.SerializableString
+import com.fasterxml.jackson.core.base.GeneratorBase
+import com.fasterxml.jackson.core.json.JsonWriteContext
+import java.io.StringWriter
+import java.io.Writer
+import java.math.BigDecimal
+import java.math.BigInteger
+
+/**
+ * A Jackson 2 generator writing the values serialized into it as YAML with a [StreamingYamlWriter].
+ *
+ * An object mapper serializes a specification directly into the target writer - its tokens are neither buffered
+ * nor passed through the SnakeYAML emitter.
+ * Raw JSON values are parsed and written as YAML, binary values as Base64 strings.
+ */
+class StreamingYamlGenerator(
+    out: Writer,
+    codec: ObjectCodec,
+) : GeneratorBase(JsonGenerator.Feature.collectDefaults(), codec) {
+    private val yaml = StreamingYamlWriter(out)
+
+    override fun writeStartObject() {
+        _verifyValueWrite("start an object")
+        _writeContext = _writeContext.createChildObjectContext()
+        yaml.startMapping()
+    }
+
+    override fun writeEndObject() {
+        if (!_writeContext.inObject()) _reportError("Current context not an object but ${_writeContext.typeDesc()}")
+        _writeContext = _writeContext.clearAndGetParent()
+        yaml.endMapping()
+    }
+
+    override fun writeStartArray() {
+        _verifyValueWrite("start an array")
+        _writeContext = _writeContext.createChildArrayContext()
+        yaml.startSequence()
+    }
+
+    override fun writeEndArray() {
+        if (!_writeContext.inArray()) _reportError("Current context not an array but ${_writeContext.typeDesc()}")
+        _writeContext = _writeContext.clearAndGetParent()
+        yaml.endSequence()
+    }
+
+    override fun writeFieldName(name: String) {
+        if (_writeContext.writeFieldName(name) == JsonWriteContext.STATUS_EXPECT_VALUE) {
+            _reportError("Can not write a field name, expecting a value")
+        }
+        yaml.key(name)
+    }
+
+    override fun writeString(text: String?) {
+        if (text == null) return writeNull()
+        _verifyValueWrite(WRITE_STRING)
+        yaml.string(text)
+    }
+
+    override fun writeString(
+        buffer: CharArray,
+        offset: Int,
+        length: Int,
+    ) = writeString(String(buffer, offset, length))
+
+    override fun writeRawUTF8String(
+        buffer: ByteArray,
+        offset: Int,
+        length: Int,
+    ) = writeString(String(buffer, offset, length, Charsets.UTF_8))
+
+    override fun writeUTF8String(
+        buffer: ByteArray,
+        offset: Int,
+        length: Int,
+    ) = writeString(String(buffer, offset, length, Charsets.UTF_8))
+
+    override fun writeBinary(
+        variant: Base64Variant,
+        data: ByteArray,
+        offset: Int,
+        length: Int,
+    ) = writeString(variant.encode(data.copyOfRange(offset, offset + length)))
+
+    override fun writeNumber(value: Int) = writePlain(WRITE_NUMBER, value.toString())
+
+    override fun writeNumber(value: Long) = writePlain(WRITE_NUMBER, value.toString())
+
+    override fun writeNumber(value: BigInteger?) = if (value == null) writeNull() else writePlain(WRITE_NUMBER, value.toString())
+
+    override fun writeNumber(value: Double) = writePlain(WRITE_NUMBER, value.toString())
+
+    override fun writeNumber(value: Float) = writePlain(WRITE_NUMBER, value.toString())
+
+    override fun writeNumber(value: BigDecimal?) = if (value == null) writeNull() else writePlain(WRITE_NUMBER, _asString(value))
+
+    override fun writeNumber(encodedValue: String?) = if (encodedValue == null) writeNull() else writePlain(WRITE_NUMBER, encodedValue)
+
+    override fun writeBoolean(state: Boolean) = writePlain(WRITE_BOOLEAN, state.toString())
+
+    override fun writeNull() = writePlain(WRITE_NULL, "null")
+
+    /**
+     * The raw JSON value is written like the value it represents.
+     */
+    override fun writeRawValue(text: String) {
+        jsonFactory.createParser(text).use { parser ->
+            parser.nextToken()
+            copyCurrentStructure(parser)
+        }
+    }
+
+    override fun writeRawValue(
+        text: String,
+        offset: Int,
+        length: Int,
+    ) = writeRawValue(text.substring(offset, offset + length))
+
+    override fun writeRawValue(
+        text: CharArray,
+        offset: Int,
+        length: Int,
+    ) = writeRawValue(String(text, offset, length))
+
+    override fun writeRawValue(text: SerializableString) = writeRawValue(text.value)
+
+    /**
+     * Raw content outside of a value would have to be valid YAML at the current position - it cannot be written.
+     */
+    override fun writeRaw(text: String) = unsupportedRaw()
+
+    override fun writeRaw(
+        text: String,
+        offset: Int,
+        length: Int,
+    ) = unsupportedRaw()
+
+    override fun writeRaw(
+        text: CharArray,
+        offset: Int,
+        length: Int,
+    ) = unsupportedRaw()
+
+    override fun writeRaw(c: Char) = unsupportedRaw()
+
+    override fun flush() = yaml.flush()
+
+    /**
+     * The target writer is flushed - but not closed, it is owned by the caller.
+     */
+    override fun close() {
+        if (!isClosed) flush()
+        super.close()
+    }
+
+    override fun _releaseBuffers() = Unit
+
+    override fun _verifyValueWrite(typeMsg: String) {
+        if (_writeContext.writeValue() == JsonWriteContext.STATUS_EXPECT_NAME) _reportError("Can not $typeMsg, expecting field name")
+    }
+
+    private fun writePlain(
+        typeMsg: String,
+        value: String,
+    ) {
+        _verifyValueWrite(typeMsg)
+        yaml.plain(value)
+    }
+
+    private fun unsupportedRaw(): Nothing = throw UnsupportedOperationException("Raw content cannot be written as YAML")
+
+    companion object {
+        private val jsonFactory = JsonFactory()
+
+        /**
+         * Serializes the value with the codec - e.g. an object mapper - directly into the writer.
+         */
+        @JvmStatic
+        fun write(
+            value: Any,
+            codec: ObjectCodec,
+            out: Writer,
+        ) {
+            StreamingYamlGenerator(out, codec).use { codec.writeValue(it, value) }
+        }
+
+        @JvmStatic
+        fun serialize(
+            value: Any,
+            codec: ObjectCodec,
+        ): String = StringWriter().also { write(value, codec, it) }.toString()
+    }
+}
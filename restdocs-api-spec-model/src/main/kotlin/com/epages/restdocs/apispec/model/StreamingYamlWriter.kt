@@ -0,0 +1,242 @@
+package com.epages.restdocs.apispec.model
+
+import java.io.Writer
+
+/**
+ * Writes a YAML document in block style from the start, end, key and value calls of a traversal of the document,
+ * see [StreamingYamlGenerator]. Each value is written when it is passed - only the stack of the enclosing containers is kept.
+ *
+ * Strings are only quoted if they would not be read back as the same string otherwise.
+ * Multi-line strings - like example bodies - are written as literal blocks.
+ *
+ * Empty mappings and sequences are written as `{}` and `[]` - so writing a container is deferred until its first entry.
+ */
+class StreamingYamlWriter(
+    private val out: Writer,
+) {
+    private val containers = ArrayList<Container>()
+
+    fun startMapping() {
+        containers += Container(sequence = false)
+    }
+
+    fun endMapping() = endContainer()
+
+    fun startSequence() {
+        containers += Container(sequence = true)
+    }
+
+    fun endSequence() = endContainer()
+
+    fun key(name: String) {
+        val mapping = containers.last()
+        check(!mapping.sequence) { "Key '$name' outside of a mapping" }
+        open(containers.lastIndex)
+        mapping.key = name
+    }
+
+    /**
+     * Writes a string - quoted or as literal block if needed.
+     */
+    fun string(value: String) {
+        val parent = containers.lastOrNull()
+        val style = styleOf(value, literalAllowed = parent != null)
+        writeEntryPrefix(block = false)
+        when (style) {
+            Style.PLAIN -> out.write(value)
+            Style.SINGLE_QUOTED -> writeSingleQuoted(value)
+            Style.DOUBLE_QUOTED -> writeDoubleQuoted(value)
+            Style.LITERAL -> writeLiteral(value, parent!!.indent + INDENT)
+        }
+        if (style != Style.LITERAL) out.write('\n'.code)
+    }
+
+    /**
+     * Writes a number, boolean or null as is.
+     */
+    fun plain(value: String) {
+        writeEntryPrefix(block = false)
+        out.write(value)
+        out.write('\n'.code)
+    }
+
+    fun flush() = out.flush()
+
+    private fun endContainer() {
+        val container = containers.removeAt(containers.lastIndex)
+        if (!container.opened) plain(if (container.sequence) "[]" else "{}")
+    }
+
+    /**
+     * Writes the beginning of the container at [index] - and of the containers enclosing it.
+     */
+    private fun open(index: Int) {
+        val container = containers[index]
+        if (container.opened) return
+        val parent = containers.getOrNull(index - 1)
+        if (parent != null) writeEntryPrefix(index - 1, block = true)
+        when {
+            parent == null -> container.indent = 0
+            parent.sequence -> {
+                container.indent = parent.indent + INDENT
+                container.inline = true
+            }
+            // sequences are not indented relative to their key
+            container.sequence -> container.indent = parent.indent
+            else -> container.indent = parent.indent + INDENT
+        }
+        container.opened = true
+    }
+
+    /**
+     * Writes what precedes a value in the container at [index] - the key of a mapping entry or the dash of a sequence entry.
+     */
+    private fun writeEntryPrefix(
+        index: Int = containers.lastIndex,
+        block: Boolean,
+    ) {
+        if (index < 0) return
+        open(index)
+        val container = containers[index]
+        if (container.inline) container.inline = false else writeIndent(container.indent)
+        if (container.sequence) {
+            out.write("- ")
+        } else {
+            val key = checkNotNull(container.key) { "Value without key in mapping" }
+            when (styleOf(key, literalAllowed = false)) {
+                Style.PLAIN -> out.write(key)
+                Style.SINGLE_QUOTED -> writeSingleQuoted(key)
+                else -> writeDoubleQuoted(key)
+            }
+            container.key = null
+            out.write(if (block) ":\n" else ": ")
+        }
+    }
+
+    private fun writeIndent(indent: Int) {
+        var remaining = indent
+        while (remaining > 0) {
+            val count = minOf(remaining, SPACES.length)
+            out.write(SPACES, 0, count)
+            remaining -= count
+        }
+    }
+
+    private fun writeSingleQuoted(value: String) {
+        out.write('\''.code)
+        out.write(value.replace("'", "''"))
+        out.write('\''.code)
+    }
+
+    private fun writeDoubleQuoted(value: String) {
+        out.write('"'.code)
+        value.forEach { c ->
+            when (c) {
+                '"' -> out.write("\\\"")
+                '\\' -> out.write("\\\\")
+                '\n' -> out.write("\\n")
+                '\r' -> out.write("\\r")
+                '\t' -> out.write("\\t")
+                else -> if (requiresEscape(c)) out.write("\\u%04x".format(c.code)) else out.write(c.code)
+            }
+        }
+        out.write('"'.code)
+    }
+
+    /**
+     * The indentation indicator is only added if the content starts with spaces - it cannot be detected then.
+     */
+    private fun writeLiteral(
+        value: String,
+        contentIndent: Int,
+    ) {
+        out.write("|")
+        if (value.trimStart('\n').startsWith(' ')) out.write(INDENT.toString())
+        when {
+            !value.endsWith('\n') -> out.write("-")
+            // clipping would drop the line breaks of a block without content
+            value.endsWith("\n\n") || value == "\n" -> out.write("+")
+        }
+        out.write('\n'.code)
+        val lines = value.removeSuffix("\n").split('\n')
+        lines.forEach { line ->
+            if (line.isNotEmpty()) {
+                writeIndent(contentIndent)
+                out.write(line)
+            }
+            out.write('\n'.code)
+        }
+    }
+
+    private class Container(
+        val sequence: Boolean,
+    ) {
+        var opened = false
+        var indent = 0
+
+        /**
+         * The first entry continues the line of the enclosing sequence entry.
+         */
+        var inline = false
+        var key: String? = null
+    }
+
+    private enum class Style {
+        PLAIN,
+        SINGLE_QUOTED,
+        DOUBLE_QUOTED,
+        LITERAL,
+    }
+
+    private companion object {
+        const val INDENT = 2
+        const val SPACES = "                                "
+        const val INDICATORS = "-?:,[]{}#&*!|>'\"%@`"
+
+        /**
+         * YAML 1.1 reads these as booleans or null.
+         */
+        val RESERVED_WORDS = setOf("y", "n", "yes", "no", "on", "off", "true", "false", "null", "~", "=", "<<")
+
+        fun styleOf(
+            value: String,
+            literalAllowed: Boolean,
+        ): Style {
+            if (value.isEmpty()) return Style.SINGLE_QUOTED
+            var multiLine = false
+            value.forEach { c ->
+                if (c == '\n') {
+                    multiLine = true
+                } else if (requiresEscape(c) || c == '\r') {
+                    return Style.DOUBLE_QUOTED
+                }
+            }
+            return when {
+                multiLine -> if (literalAllowed) Style.LITERAL else Style.DOUBLE_QUOTED
+                requiresQuotes(value) -> Style.SINGLE_QUOTED
+                else -> Style.PLAIN
+            }
+        }
+
+        fun requiresEscape(c: Char) =
+            (c < ' ' && c != '\t' && c != '\n') || c in '\u007f'..'\u009f' || c == '\u2028' || c == '\u2029' || c == '\ufeff'
+
+        /**
+         * Conservative - anything that may start a number, an indicator or a comment is quoted.
+         */
+        fun requiresQuotes(value: String): Boolean {
+            val first = value.first()
+            return first in INDICATORS ||
+                first == ' ' ||
+                first == '.' ||
+                first == '+' ||
+                first.isDigit() ||
+                value.last() == ' ' ||
+                value.last() == ':' ||
+                value.contains('\t') ||
+                value.contains(": ") ||
+                value.contains(" #") ||
+                value.lowercase() in RESERVED_WORDS
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.epages.restdocs.apispec.model
+
+import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.Test
+
+class PathIndexTest {
+    @Test
+    fun `should order paths by first segment, then depth, then path`() {
+        val paths =
+            PathIndex.sortPaths(
+                listOf(
+                    "/products/{id}/images",
+                    "/products-v2",
+                    "/products/{id}",
+                    "/carts/{id}",
+                    "/products",
+                    "/products/search",
+                    "/",
+                ),
+            )
+
+        then(paths).containsExactly(
+            "/",
+            "/carts/{id}",
+            "/products",
+            "/products/search",
+            "/products/{id}",
+            "/products/{id}/images",
+            "/products-v2",
+        )
+    }
+
+    @Test
+    fun `should group resource models by path in path order`() {
+        val index =
+            PathIndex(
+                listOf(
+                    givenResourceModel("/products/{id}", HTTPMethod.GET),
+                    givenResourceModel("/carts", HTTPMethod.POST),
+                    givenResourceModel("/products/{id}", HTTPMethod.DELETE),
+                    givenResourceModel("/products", HTTPMethod.GET),
+                ),
+            )
+
+        then(index.entries.map { it.path }).containsExactly("/carts", "/products", "/products/{id}")
+        then(index.byPath().getValue("/products/{id}").map { it.request.method }).containsExactly(HTTPMethod.GET, HTTPMethod.DELETE)
+    }
+
+    @Test
+    fun `should order references like resource models`() {
+        val index =
+            PathIndex.ofReferences(
+                listOf("/products/{id}", "/products", "/carts/{id}").map {
+                    ResourceReference(path = it, method = HTTPMethod.GET, operationId = it, privateResource = false, location = it)
+                },
+            ) { givenResourceModel(it.path, it.method) }
+
+        then(index.entries.map { it.path }).containsExactly("/carts/{id}", "/products", "/products/{id}")
+        then(index.entries.first().loadResources().single().request.path).isEqualTo("/carts/{id}")
+    }
+
+    private fun givenResourceModel(
+        path: String,
+        method: HTTPMethod,
+    ) = ResourceModel(
+        operationId = "$method $path",
+        privateResource = false,
+        deprecated = false,
+        request =
+            RequestModel(
+                path = path,
+                method = method,
+                headers = emptyList(),
+                pathParameters = emptyList(),
+                queryParameters = emptyList(),
+                requestFields = emptyList(),
+            ),
+        response =
+            ResponseModel(
+                status = 200,
+                contentType = null,
+                headers = emptyList(),
+            ),
+    )
+}
@@ -0,0 +1,58 @@
+package com.epages.restdocs.apispec.model
+
+import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import java.io.File
+
+class ResourceIndexTest {
+    @TempDir
+    lateinit var snippetsDirectory: File
+
+    @Test
+    fun `should read last line of each location`() {
+        givenResourceIndex(
+            line("product-get", path = "/products/{id}"),
+            line("cart-get", path = "/carts/{id}"),
+            line("product-get", path = "/products/{productId}"),
+        )
+
+        val references = ResourceIndex.read(snippetsDirectory)!!
+
+        then(references.map { it.operationId }).containsExactly("product-get", "cart-get")
+        then(references.first().path).isEqualTo("/products/{productId}")
+        then(references.first().location).isEqualTo(File(snippetsDirectory, "product-get/resource.json").path)
+    }
+
+    @Test
+    fun `should skip incomplete lines and lines with missing or unknown fields`() {
+        givenResourceIndex(
+            line("product-get"),
+            line("cart-get").take(20),
+            """{"location":"no-path/resource.json","method":"GET","operationId":"no-path"}""",
+            """{"location":"no-method/resource.json","path":"/products","operationId":"no-method"}""",
+            line("unknown-method", method = "FETCH"),
+            """{"location":"wrong-type/resource.json","path":["/products"],"method":"GET","operationId":"wrong-type"}""",
+            line("product-delete", method = "DELETE"),
+        )
+
+        val references = ResourceIndex.read(snippetsDirectory)!!
+
+        then(references.map { it.operationId }).containsExactly("product-get", "product-delete")
+    }
+
+    @Test
+    fun `should return null without index`() {
+        then(ResourceIndex.read(snippetsDirectory)).isNull()
+    }
+
+    private fun givenResourceIndex(vararg lines: String) {
+        File(snippetsDirectory, ResourceIndex.FILE_NAME).writeText(lines.joinToString(separator = "\n", postfix = "\n"))
+    }
+
+    private fun line(
+        operationId: String,
+        path: String = "/products/{id}",
+        method: String = "GET",
+    ) = """{"location":"$operationId/resource.json","path":"$path","method":"$method","operationId":"$operationId"}"""
+}
@@ -0,0 +1,106 @@
+package com.epages.restdocs.apispec.model
+
+import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.Test
+
+class ResourceModelCanonicalizerTest {
+    private val canonicalizer = ResourceModelCanonicalizer()
+
+    @Test
+    fun `should share equal values between resource models`() {
+        val first = canonicalizer.canonicalize(givenResourceModel("product-get"))
+        val second = canonicalizer.canonicalize(givenResourceModel("product-head"))
+
+        then(second.request.path).isSameAs(first.request.path)
+        then(second.request.contentType).isSameAs(first.request.contentType)
+        then(second.tags.single()).isSameAs(first.tags.single())
+        then(second.request.pathParameters.single().attributes).isSameAs(first.request.pathParameters.single().attributes)
+        then(second.request.requestFields.first().description).isSameAs(first.request.requestFields.first().description)
+        then(second.request.requestFields.first().attributes).isSameAs(first.request.requestFields.first().attributes)
+        then(second.response.example).isSameAs(first.response.example)
+        then(second.operationId).isNotEqualTo(first.operationId)
+    }
+
+    @Test
+    fun `should keep order of tags, audiences and fields`() {
+        val model = canonicalizer.canonicalize(givenResourceModel("product-get", tags = setOf("b", "a", "c")))
+
+        then(model.tags).containsExactly("b", "a", "c")
+        then(model.audiences).containsExactly("partner", "internal")
+        then(model.request.requestFields.map { it.path }).containsExactly("name", "price")
+    }
+
+    @Test
+    fun `should return equal values when canonicalizing canonicalized model`() {
+        val once = canonicalizer.canonicalize(givenResourceModel("product-get"))
+
+        val twice = canonicalizer.canonicalize(once)
+
+        then(twice.copy(request = twice.request.copy(requestFields = emptyList())))
+            .isEqualTo(once.copy(request = once.request.copy(requestFields = emptyList())))
+        then(twice.request.path).isSameAs(once.request.path)
+        then(twice.request.pathParameters.single().attributes).isSameAs(once.request.pathParameters.single().attributes)
+        twice.request.requestFields.zip(once.request.requestFields).forEach { (fieldTwice, fieldOnce) ->
+            then(fieldTwice.path).isSameAs(fieldOnce.path)
+            then(fieldTwice.attributes).isSameAs(fieldOnce.attributes)
+        }
+    }
+
+    @Test
+    fun `should not share examples if disabled`() {
+        val canonicalizer = ResourceModelCanonicalizer(canonicalizeExamples = false)
+
+        val first = canonicalizer.canonicalize(givenResourceModel("product-get"))
+        val second = canonicalizer.canonicalize(givenResourceModel("product-head"))
+
+        then(second.response.example).isEqualTo(first.response.example).isNotSameAs(first.response.example)
+        then(second.request.path).isSameAs(first.request.path)
+    }
+
+    /**
+     * All strings are distinct instances - like the strings of resource models read from separate resource fragments.
+     */
+    private fun givenResourceModel(
+        operationId: String,
+        tags: Set<String> = setOf("product"),
+    ) = ResourceModel(
+        operationId = copyOf(operationId),
+        privateResource = false,
+        deprecated = false,
+        tags = tags.mapTo(LinkedHashSet()) { copyOf(it) },
+        audiences = linkedSetOf(copyOf("partner"), copyOf("internal")),
+        request =
+            RequestModel(
+                path = copyOf("/products/{id}"),
+                method = HTTPMethod.GET,
+                contentType = copyOf("application/json"),
+                headers = emptyList(),
+                pathParameters =
+                    listOf(
+                        ParameterDescriptor(
+                            name = copyOf("id"),
+                            description = copyOf("The id of the product"),
+                            type = copyOf("STRING"),
+                            optional = false,
+                            ignored = false,
+                            attributes = Attributes(validationConstraints = listOf(Constraint(copyOf("NotNull"), emptyMap()))),
+                        ),
+                    ),
+                queryParameters = emptyList(),
+                requestFields =
+                    listOf(
+                        FieldDescriptor(path = copyOf("name"), description = copyOf("The name"), type = copyOf("STRING")),
+                        FieldDescriptor(path = copyOf("price"), description = copyOf("The price"), type = copyOf("NUMBER")),
+                    ),
+            ),
+        response =
+            ResponseModel(
+                status = 200,
+                contentType = copyOf("application/json"),
+                headers = emptyList(),
+                example = copyOf("""{ "name" : "Fancy pants" }"""),
+            ),
+    )
+
+    private fun copyOf(string: String) = String(string.toCharArray())
+}
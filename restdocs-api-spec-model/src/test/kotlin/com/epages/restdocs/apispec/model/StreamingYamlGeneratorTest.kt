@@ -0,0 +1,104 @@
+package com.epages.restdocs.apispec.model
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.util.RawValue
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory
+import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.Test
+
+class StreamingYamlGeneratorTest {
+    private val objectMapper = ObjectMapper()
+
+    private val yamlMapper = ObjectMapper(YAMLFactory())
+
+    @Test
+    fun `should read back strings that need quotes`() {
+        val strings =
+            listOf(
+                "",
+                "plain text",
+                "yes",
+                "NO",
+                "null",
+                "~",
+                "42",
+                "1.5",
+                ".5",
+                "-1",
+                "+1",
+                "2024-01-01",
+                "- item",
+                "key: value",
+                "text # no comment",
+                "ends with colon:",
+                " leading space",
+                "trailing space ",
+                "'single' and \"double\" quotes",
+                "tab\tseparated",
+                "control\u0001character",
+                "/products/{id}",
+                "@handle",
+                "#hash",
+            )
+
+        thenReadBackEqual(mapOf("strings" to strings, "keys" to strings.filter { it.isNotEmpty() }.associateWith { it }))
+    }
+
+    @Test
+    fun `should write multi-line strings as literal blocks`() {
+        val strings =
+            listOf(
+                "{\n  \"id\": 1\n}",
+                "trailing line break\n",
+                "trailing line breaks\n\n",
+                "\n",
+                "\n\nleading line breaks",
+                "  indented first line\nsecond line",
+                "\n   \nindented empty lines",
+                "windows\r\nline breaks",
+            )
+        val value = mapOf("sequence" to strings, "mapping" to mapOf("example" to strings.first()))
+
+        val yaml = StreamingYamlGenerator.serialize(value, objectMapper)
+
+        then(yaml).contains("example: |-\n    {\n      \"id\": 1\n    }\n")
+        thenReadBackEqual(value)
+    }
+
+    @Test
+    fun `should write nested and empty containers`() {
+        thenReadBackEqual(
+            mapOf(
+                "empty" to mapOf<String, Any>(),
+                "emptyList" to listOf<Any>(),
+                "nested" to listOf(listOf(1, 2), listOf<Any>(), mapOf("a" to mapOf<String, Any>(), "b" to listOf(true, null))),
+                "number" to 1.5,
+            ),
+        )
+    }
+
+    @Test
+    fun `should write raw json and binary values`() {
+        val value = mapOf("raw" to RawValue("""{ "id" : [ 1, "one" ] }"""), "binary" to byteArrayOf(1, 2, 3))
+
+        val yaml = StreamingYamlGenerator.serialize(value, objectMapper)
+
+        then(yamlMapper.readValue(yaml, Map::class.java))
+            .describedAs(yaml)
+            .isEqualTo(mapOf("raw" to mapOf("id" to listOf(1, "one")), "binary" to "AQID"))
+    }
+
+    @Test
+    fun `should write tree`() {
+        val node = objectMapper.readTree("""{ "paths" : { "/products" : { "get" : { "tags" : [ "product" ] } } } }""")
+
+        then(StreamingYamlGenerator.serialize(node, objectMapper))
+            .isEqualTo("paths:\n  /products:\n    get:\n      tags:\n      - product\n")
+    }
+
+    private fun thenReadBackEqual(value: Map<String, Any>) {
+        val yaml = StreamingYamlGenerator.serialize(value, objectMapper)
+
+        then(yamlMapper.readValue(yaml, Map::class.java)).describedAs(yaml).isEqualTo(value)
+    }
+}
@@ -0,0 +1,88 @@
+package com.epages.restdocs.apispec.model
+
+import org.assertj.core.api.BDDAssertions.then
+import org.assertj.core.api.BDDAssertions.thenThrownBy
+import org.junit.jupiter.api.Test
+import java.io.StringWriter
+
+class StreamingYamlWriterTest {
+    private val out = StringWriter()
+
+    private val yaml = StreamingYamlWriter(out)
+
+    @Test
+    fun `should write mappings and sequences in block style`() {
+        with(yaml) {
+            startMapping()
+            key("openapi")
+            string("3.0.1")
+            key("tags")
+            startSequence()
+            startMapping()
+            key("name")
+            string("product")
+            key("description")
+            string("yes")
+            endMapping()
+            endSequence()
+            key("empty")
+            startMapping()
+            endMapping()
+            key("list")
+            startSequence()
+            endSequence()
+            key("example")
+            string("{\n  \"id\": 1\n}")
+            endMapping()
+        }
+
+        then(out.toString()).isEqualTo(
+            """
+            openapi: '3.0.1'
+            tags:
+            - name: product
+              description: 'yes'
+            empty: {}
+            list: []
+            example: |-
+              {
+                "id": 1
+              }
+
+            """.trimIndent(),
+        )
+    }
+
+    @Test
+    fun `should quote keys and escape control characters`() {
+        with(yaml) {
+            startMapping()
+            key("200")
+            string("line\u0001")
+            endMapping()
+        }
+
+        then(out.toString()).isEqualTo("'200': \"line\\u0001\"\n")
+    }
+
+    @Test
+    fun `should continue the line of the enclosing sequence entry`() {
+        with(yaml) {
+            startSequence()
+            startSequence()
+            plain("1")
+            plain("2")
+            endSequence()
+            endSequence()
+        }
+
+        then(out.toString()).isEqualTo("- - 1\n  - 2\n")
+    }
+
+    @Test
+    fun `should reject key outside of mapping`() {
+        yaml.startSequence()
+
+        thenThrownBy { yaml.key("name") }.isInstanceOf(IllegalStateException::class.java)
+    }
+}
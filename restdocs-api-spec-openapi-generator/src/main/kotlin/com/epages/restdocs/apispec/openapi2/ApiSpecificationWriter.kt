@@ -1,5 +1,6 @@
 package com.epages.restdocs.apispec.openapi2
 
+import com.epages.restdocs.apispec.model.StreamingYamlGenerator
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter
 import io.swagger.models.Swagger
 import io.swagger.util.Json
@@ -7,14 +8,23 @@ import io.swagger.util.Json
 object ApiSpecificationWriter {
     private val yamlFormats = setOf("yaml", "yml")
     private val jsonFormats = setOf("json")
+    private val streamingYamlObjectMapper = OptimizedYamlSerializationObjectMapperFactory.createYaml()
 
+    /**
+     * @param streamingYaml write YAML with the [StreamingYamlGenerator] instead of the SnakeYAML based object mapper
+     */
     fun serialize(
         format: String,
         apiSpecification: Swagger,
+        streamingYaml: Boolean = false,
     ): String {
         validateFormat(format)
         return if (yamlFormats.contains(format)) {
-            optimizedYaml().writeValueAsString(apiSpecification)
+            if (streamingYaml) {
+                StreamingYamlGenerator.serialize(apiSpecification, streamingYamlObjectMapper)
+            } else {
+                optimizedYaml().writeValueAsString(apiSpecification)
+            }
         } else {
             Json.pretty().writeValueAsString(apiSpecification)
         }
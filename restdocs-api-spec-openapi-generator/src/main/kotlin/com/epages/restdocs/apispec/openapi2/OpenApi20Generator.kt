@@ -1,16 +1,24 @@
 package com.epages.restdocs.apispec.openapi2
 
 import com.epages.restdocs.apispec.jsonschema.JsonSchemaFromFieldDescriptorsGenerator
+import com.epages.restdocs.apispec.model.ExampleStore
 import com.epages.restdocs.apispec.model.FieldDescriptor
 import com.epages.restdocs.apispec.model.HTTPMethod
 import com.epages.restdocs.apispec.model.HeaderDescriptor
 import com.epages.restdocs.apispec.model.Oauth2Configuration
 import com.epages.restdocs.apispec.model.ParameterDescriptor
+import com.epages.restdocs.apispec.model.PathIndex
 import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ResourceModelProjection
 import com.epages.restdocs.apispec.model.ResponseModel
 import com.epages.restdocs.apispec.model.Schema
+import com.epages.restdocs.apispec.model.SchemaNameContext
+import com.epages.restdocs.apispec.model.SchemaNamingStrategy
+import com.epages.restdocs.apispec.model.SecurityIndex
 import com.epages.restdocs.apispec.model.SecurityRequirements
 import com.epages.restdocs.apispec.model.SecurityType
+import com.epages.restdocs.apispec.model.groupByMethod
+import com.epages.restdocs.apispec.model.withResolvedExamples
 import io.swagger.models.Info
 import io.swagger.models.Model
 import io.swagger.models.ModelImpl
@@ -32,8 +40,6 @@ import io.swagger.models.parameters.PathParameter
 import io.swagger.models.parameters.QueryParameter
 import io.swagger.models.properties.PropertyBuilder
 import io.swagger.util.Json
-import java.util.Comparator.comparing
-import java.util.Comparator.comparingInt
 
 object OpenApi20Generator {
     private const val API_KEY_SECURITY_NAME = "api_key"
@@ -41,8 +47,11 @@ object OpenApi20Generator {
     private const val OAUTH2_SECURITY_NAME = "oauth2"
     private val PATH_PARAMETER_PATTERN = """\{([^/}]+)}""".toRegex()
 
+    @JvmField
+    val RESOURCE_MODEL_PROJECTION = ResourceModelProjection.FULL
+
     internal fun generate(
-        resources: List<ResourceModel>,
+        pathIndex: PathIndex,
         basePath: String? = null,
         host: String = "localhost",
         schemes: List<String> = listOf("http"),
@@ -51,8 +60,11 @@ object OpenApi20Generator {
         tagDescriptions: Map<String, String> = emptyMap(),
         version: String = "1.0.0",
         oauth2SecuritySchemeDefinition: Oauth2Configuration? = null,
-    ): Swagger =
-        Swagger()
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+    ): Swagger {
+        val securityIndex = SecurityIndex()
+        return Swagger()
             .apply {
                 this.basePath = basePath
                 this.host = host
@@ -73,17 +85,21 @@ object OpenApi20Generator {
                 )
                 paths =
                     generatePaths(
-                        resources,
+                        pathIndex,
                         oauth2SecuritySchemeDefinition,
+                        exampleStore,
+                        securityIndex,
                     )
 
-                extractDefinitions(this)
+                extractDefinitions(this, schemaNamingStrategy)
             }.apply {
                 addSecurityDefinitions(
                     this,
                     oauth2SecuritySchemeDefinition,
+                    securityIndex,
                 )
             }
+    }
 
     fun generateAndSerialize(
         resources: List<ResourceModel>,
@@ -96,51 +112,97 @@ object OpenApi20Generator {
         version: String = "1.0.0",
         oauth2SecuritySchemeDefinition: Oauth2Configuration? = null,
         format: String,
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        streamingYaml: Boolean = false,
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+    ): String =
+        generateAndSerialize(
+            PathIndex(resources),
+            basePath,
+            host,
+            schemes,
+            title,
+            description,
+            tagDescriptions,
+            version,
+            oauth2SecuritySchemeDefinition,
+            format,
+            exampleStore,
+            streamingYaml,
+            schemaNamingStrategy,
+        )
+
+    /**
+     * Loads the resources of one path of the [PathIndex] at a time - see [PathIndex.ofReferences].
+     */
+    fun generateAndSerialize(
+        pathIndex: PathIndex,
+        basePath: String? = null,
+        host: String = "localhost",
+        schemes: List<String> = listOf("http"),
+        title: String = "API",
+        description: String? = null,
+        tagDescriptions: Map<String, String> = emptyMap(),
+        version: String = "1.0.0",
+        oauth2SecuritySchemeDefinition: Oauth2Configuration? = null,
+        format: String,
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        streamingYaml: Boolean = false,
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
     ): String {
         val specification =
-            generate(resources, basePath, host, schemes, title, description, tagDescriptions, version, oauth2SecuritySchemeDefinition)
-        return ApiSpecificationWriter.serialize(format, specification)
+            generate(
+                pathIndex,
+                basePath,
+                host,
+                schemes,
+                title,
+                description,
+                tagDescriptions,
+                version,
+                oauth2SecuritySchemeDefinition,
+                exampleStore,
+                schemaNamingStrategy,
+            )
+        return ApiSpecificationWriter.serialize(format, specification, streamingYaml)
     }
 
-    private fun extractDefinitions(swagger: Swagger): Swagger {
-        val schemasToKeys = HashMap<Model, String>()
-        val operationToPathKey = HashMap<Operation, String>()
+    private fun extractDefinitions(
+        swagger: Swagger,
+        schemaNamingStrategy: SchemaNamingStrategy,
+    ): Swagger {
+        val schemasToKeys = LinkedHashMap<Model, String>()
+        // the values of schemasToKeys - as a set, so a name is checked in constant time
+        val takenNames = HashSet<String>()
+
+        swagger.paths.forEach { (pathKey, path) ->
+            path.operationMap.forEach { (method, operation) ->
+                extractBodyParameter(operation.parameters)
+                    ?.takeIf { it.schema != null }
+                    ?.let {
+                        it.schema(
+                            extractOrFindSchema(
+                                schemasToKeys,
+                                takenNames,
+                                it.schema,
+                                generateSchemaName(pathKey, method.name, null, schemaNamingStrategy),
+                            ),
+                        )
+                    }
 
-        swagger.paths
-            .map { it.key to it.value.operations }
-            .forEach {
-                val pathKey = it.first
-                it.second.forEach { operation ->
-                    operationToPathKey[operation] = pathKey
-                }
+                operation.responses
+                    .filter { it.value.responseSchema != null }
+                    .forEach { (status, response) ->
+                        response.responseSchema(
+                            extractOrFindSchema(
+                                schemasToKeys,
+                                takenNames,
+                                response.responseSchema,
+                                generateSchemaName(pathKey, method.name, status, schemaNamingStrategy),
+                            ),
+                        )
+                    }
             }
-
-        operationToPathKey.keys.forEach { operation ->
-            val pathKey = operationToPathKey[operation]!!
-
-            extractBodyParameter(operation.parameters)
-                ?.takeIf { it.schema != null }
-                ?.let {
-                    it.schema(
-                        extractOrFindSchema(
-                            schemasToKeys,
-                            it.schema,
-                            generateSchemaName(pathKey),
-                        ),
-                    )
-                }
-
-            operation.responses.values
-                .filter { it.responseSchema != null }
-                .forEach {
-                    it.responseSchema(
-                        extractOrFindSchema(
-                            schemasToKeys,
-                            it.responseSchema,
-                            generateSchemaName(pathKey),
-                        ),
-                    )
-                }
         }
 
         swagger.definitions = schemasToKeys.keys.associateBy { schemasToKeys.getValue(it) }
@@ -153,64 +215,74 @@ object OpenApi20Generator {
             ?.map { it as BodyParameter }
             ?.firstOrNull()
 
+    /**
+     * A generated name already taken by another schema gets a counter appended.
+     */
     internal fun extractOrFindSchema(
         schemasToKeys: MutableMap<Model, String>,
+        takenNames: MutableSet<String>,
         schema: Model,
         schemaNameGenerator: (Model) -> String,
     ): Model {
         val schemaKey =
-            if (schemasToKeys.containsKey(schema)) {
-                schemasToKeys[schema]!!
-            } else {
-                val name = schema.reference ?: schemaNameGenerator(schema)
-                schemasToKeys[schema] = name
-                name
+            schemasToKeys.getOrPut(schema) {
+                (schema.reference ?: uniqueName(schemaNameGenerator(schema), takenNames)).also { takenNames += it }
             }
         return RefModel("#/definitions/$schemaKey")
     }
 
-    internal fun generateSchemaName(path: String): (Model) -> String =
+    private fun uniqueName(
+        name: String,
+        takenNames: Set<String>,
+    ): String =
+        if (name !in takenNames) {
+            name
+        } else {
+            generateSequence(2) { it + 1 }.map { "${name}_$it" }.first { it !in takenNames }
+        }
+
+    internal fun generateSchemaName(
+        path: String,
+        method: String,
+        status: String?,
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+    ): (Model) -> String =
         { schema ->
-            path
-                .replaceFirst("/", "")
-                .replace("/", "_")
-                .replace(Regex.fromLiteral("{"), "")
-                .replace(Regex.fromLiteral("}"), "")
-                .plus(schema.hashCode())
+            schemaNamingStrategy.schemaName(
+                SchemaNameContext(
+                    path = path,
+                    pathName =
+                        path
+                            .replaceFirst("/", "")
+                            .replace("/", "_")
+                            .replace(Regex.fromLiteral("{"), "")
+                            .replace(Regex.fromLiteral("}"), ""),
+                    separator = "_",
+                    method = method,
+                    status = status,
+                    title = schema.title,
+                    content = { Json.mapper().convertValue(schema, Any::class.java) },
+                ),
+            )
         }
 
     private fun generatePaths(
-        resources: List<ResourceModel>,
+        pathIndex: PathIndex,
         oauth2SecuritySchemeDefinition: Oauth2Configuration?,
+        exampleStore: ExampleStore,
+        securityIndex: SecurityIndex,
     ): Map<String, Path> =
-        groupByPath(resources)
+        pathIndex
             .entries
-            .associate {
-                it.key to
+            .associate { pathEntry ->
+                pathEntry.path to
                     resourceModels2Path(
-                        it.value,
+                        pathEntry.loadResources().map { it.withResolvedExamples(exampleStore) },
                         oauth2SecuritySchemeDefinition,
+                        securityIndex,
                     )
             }
 
-    private fun groupByPath(resources: List<ResourceModel>) =
-        resources
-            .sortedWith(
-                // by first path segment, then path length, then path
-                comparing<ResourceModel, String> {
-                    it.request.path
-                        .split("/")
-                        .firstOrNull { s -> s.isNotEmpty() }
-                        .orEmpty()
-                }.thenComparing(comparingInt { it.request.path.count { c -> c == '/' } })
-                    .thenComparing(comparing { it.request.path }),
-            ).groupBy { it.request.path }
-
-    private fun groupByHttpMethod(resources: List<ResourceModel>): Map<HTTPMethod, List<ResourceModel>> =
-        resources.groupBy {
-            it.request.method
-        }
-
     private fun responsesByStatusCode(resources: List<ResourceModel>): Map<String, ResponseModel> =
         resources
             .groupBy { it.response.status }
@@ -220,9 +292,11 @@ object OpenApi20Generator {
     private fun resourceModels2Path(
         modelsWithSamePath: List<ResourceModel>,
         oauth2SecuritySchemeDefinition: Oauth2Configuration?,
+        securityIndex: SecurityIndex,
     ): Path {
         val path = Path()
-        groupByHttpMethod(modelsWithSamePath)
+        modelsWithSamePath
+            .groupByMethod()
             .entries
             .forEach {
                 when (it.key) {
@@ -231,6 +305,7 @@ object OpenApi20Generator {
                             resourceModels2Operation(
                                 it.value,
                                 oauth2SecuritySchemeDefinition,
+                                securityIndex,
                             ),
                         )
                     HTTPMethod.POST ->
@@ -238,6 +313,7 @@ object OpenApi20Generator {
                             resourceModels2Operation(
                                 it.value,
                                 oauth2SecuritySchemeDefinition,
+                                securityIndex,
                             ),
                         )
                     HTTPMethod.PUT ->
@@ -245,6 +321,7 @@ object OpenApi20Generator {
                             resourceModels2Operation(
                                 it.value,
                                 oauth2SecuritySchemeDefinition,
+                                securityIndex,
                             ),
                         )
                     HTTPMethod.DELETE ->
@@ -252,6 +329,7 @@ object OpenApi20Generator {
                             resourceModels2Operation(
                                 it.value,
                                 oauth2SecuritySchemeDefinition,
+                                securityIndex,
                             ),
                         )
                     HTTPMethod.PATCH ->
@@ -259,6 +337,7 @@ object OpenApi20Generator {
                             resourceModels2Operation(
                                 it.value,
                                 oauth2SecuritySchemeDefinition,
+                                securityIndex,
                             ),
                         )
                     HTTPMethod.HEAD ->
@@ -266,6 +345,7 @@ object OpenApi20Generator {
                             resourceModels2Operation(
                                 it.value,
                                 oauth2SecuritySchemeDefinition,
+                                securityIndex,
                             ),
                         )
                     HTTPMethod.OPTIONS ->
@@ -273,6 +353,7 @@ object OpenApi20Generator {
                             resourceModels2Operation(
                                 it.value,
                                 oauth2SecuritySchemeDefinition,
+                                securityIndex,
                             ),
                         )
                 }
@@ -284,6 +365,7 @@ object OpenApi20Generator {
     private fun resourceModels2Operation(
         modelsWithSamePathAndMethod: List<ResourceModel>,
         @Suppress("unused") oauth2SecuritySchemeDefinition: Oauth2Configuration?,
+        securityIndex: SecurityIndex,
     ): Operation {
         val firstModelForPathAndMethod = modelsWithSamePathAndMethod.first()
         return Operation()
@@ -348,6 +430,10 @@ object OpenApi20Generator {
                         SecurityType.JWT_BEARER -> { /* not specified for OpenApi 2.0 */ }
                     }
                 }
+                // recorded while the operation is generated - so the definitions are added without scanning the operations again
+                security?.forEach { requirement ->
+                    requirement.forEach { (schemeName, scopes) -> securityIndex.add(schemeName, scopes.orEmpty()) }
+                }
             }
     }
 
@@ -378,70 +464,41 @@ object OpenApi20Generator {
     private fun addSecurityDefinitions(
         openApi: Swagger,
         oauth2SecuritySchemeDefinition: Oauth2Configuration?,
+        securityIndex: SecurityIndex,
     ) {
-        oauth2SecuritySchemeDefinition?.flows?.map { flow ->
+        oauth2SecuritySchemeDefinition?.flows?.let { flows ->
             val scopeAndDescriptions = oauth2SecuritySchemeDefinition.scopes
-            val allScopes =
-                collectScopesFromOperations(openApi)
-
-            val oauth2Definition =
-                when (flow) {
-                    "accessCode" ->
-                        OAuth2Definition().accessCode(
-                            oauth2SecuritySchemeDefinition.authorizationUrl,
-                            oauth2SecuritySchemeDefinition.tokenUrl,
-                        )
-                    "application" -> OAuth2Definition().application(oauth2SecuritySchemeDefinition.tokenUrl)
-                    "password" -> OAuth2Definition().password(oauth2SecuritySchemeDefinition.tokenUrl)
-                    "implicit" -> OAuth2Definition().implicit(oauth2SecuritySchemeDefinition.authorizationUrl)
-                    else -> throw IllegalArgumentException("Unknown flow '$flow' in oauth2SecuritySchemeDefinition")
-                }.apply {
-                    allScopes.forEach {
-                        addScope(it, scopeAndDescriptions.getOrDefault(it, "No description"))
+            val allScopes = securityIndex.scopes(OAUTH2_SECURITY_NAME)
+
+            flows.forEach { flow ->
+                val oauth2Definition =
+                    when (flow) {
+                        "accessCode" ->
+                            OAuth2Definition().accessCode(
+                                oauth2SecuritySchemeDefinition.authorizationUrl,
+                                oauth2SecuritySchemeDefinition.tokenUrl,
+                            )
+                        "application" -> OAuth2Definition().application(oauth2SecuritySchemeDefinition.tokenUrl)
+                        "password" -> OAuth2Definition().password(oauth2SecuritySchemeDefinition.tokenUrl)
+                        "implicit" -> OAuth2Definition().implicit(oauth2SecuritySchemeDefinition.authorizationUrl)
+                        else -> throw IllegalArgumentException("Unknown flow '$flow' in oauth2SecuritySchemeDefinition")
+                    }.apply {
+                        allScopes.forEach {
+                            addScope(it, scopeAndDescriptions.getOrDefault(it, "No description"))
+                        }
                     }
-                }
-            openApi.addSecurityDefinition(oauth2SecuritySchemeDefinition.securitySchemeName(), oauth2Definition)
+                openApi.addSecurityDefinition(oauth2SecuritySchemeDefinition.securitySchemeName(), oauth2Definition)
+            }
         }
-        if (hasAnyOperationWithSecurityName(
-                openApi,
-                BASIC_SECURITY_NAME,
-            )
-        ) {
+        if (securityIndex.requires(BASIC_SECURITY_NAME)) {
             openApi.addSecurityDefinition(BASIC_SECURITY_NAME, BasicAuthDefinition())
         }
 
-        if (hasAnyOperationWithSecurityName(
-                openApi,
-                API_KEY_SECURITY_NAME,
-            )
-        ) {
+        if (securityIndex.requires(API_KEY_SECURITY_NAME)) {
             openApi.addSecurityDefinition(API_KEY_SECURITY_NAME, ApiKeyAuthDefinition())
         }
     }
 
-    private fun hasAnyOperationWithSecurityName(
-        openApi: Swagger,
-        name: String,
-    ) = openApi.paths
-        .flatMap { it.value.operations }
-        .mapNotNull { it.security }
-        .flatMap { it }
-        .flatMap { it.keys }
-        .any { it == name }
-
-    private fun collectScopesFromOperations(openApi: Swagger): Set<String> =
-        openApi.paths
-            .flatMap { path ->
-                path.value.operations
-                    .flatMap { operation ->
-                        operation
-                            ?.security
-                            ?.filter { s -> s.filterKeys { it.startsWith("oauth2") }.isNotEmpty() }
-                            ?.flatMap { oauthSecurity -> oauthSecurity.values.flatMap { it } }
-                            ?: listOf()
-                    }
-            }.toSet()
-
     private fun pathParameterDescriptor2Parameter(parameterDescriptor: ParameterDescriptor): PathParameter =
         PathParameter().apply {
             name = parameterDescriptor.name
@@ -8,6 +8,7 @@ import com.epages.restdocs.apispec.model.HTTPMethod
 import com.epages.restdocs.apispec.model.HeaderDescriptor
 import com.epages.restdocs.apispec.model.Oauth2Configuration
 import com.epages.restdocs.apispec.model.ParameterDescriptor
+import com.epages.restdocs.apispec.model.PathIndex
 import com.epages.restdocs.apispec.model.RequestModel
 import com.epages.restdocs.apispec.model.ResourceModel
 import com.epages.restdocs.apispec.model.ResponseModel
@@ -217,6 +218,17 @@ class OpenApi20GeneratorTest {
         then(schemaNameAndSchemaMap.size).isEqualTo(2)
     }
 
+    @Test
+    fun `should generate same schema name for equal schemas`() {
+        val schemaName = OpenApi20Generator.generateSchemaName("/orders/{id}", "GET", "200")
+
+        val name = schemaName(givenModel(givenFieldDescriptors("_embedded.orders[]")))
+
+        then(name).matches("orders_id_[0-9a-f]{8}")
+        then(schemaName(givenModel(givenFieldDescriptors("_embedded.orders[]")))).isEqualTo(name)
+        then(schemaName(givenModel(givenFieldDescriptors("_embedded.shops[]")))).isNotEqualTo(name)
+    }
+
     @Test
     fun `should use custom schema name from resource model`() {
         val api = givenPostProductResourceModelWithCustomSchemaNames()
@@ -292,8 +304,19 @@ class OpenApi20GeneratorTest {
         ordersSchema: Model,
         shopsSchema: Model,
     ) {
-        OpenApi20Generator.extractOrFindSchema(schemaNameAndSchemaMap, ordersSchema, OpenApi20Generator.generateSchemaName("/orders"))
-        OpenApi20Generator.extractOrFindSchema(schemaNameAndSchemaMap, shopsSchema, OpenApi20Generator.generateSchemaName("/shops"))
+        val takenNames = HashSet(schemaNameAndSchemaMap.values)
+        OpenApi20Generator.extractOrFindSchema(
+            schemaNameAndSchemaMap,
+            takenNames,
+            ordersSchema,
+            OpenApi20Generator.generateSchemaName("/orders", "GET", "200"),
+        )
+        OpenApi20Generator.extractOrFindSchema(
+            schemaNameAndSchemaMap,
+            takenNames,
+            shopsSchema,
+            OpenApi20Generator.generateSchemaName("/shops", "GET", "200"),
+        )
     }
 
     private fun givenModel(fieldDescriptors: List<FieldDescriptor>): Model {
@@ -317,7 +340,7 @@ class OpenApi20GeneratorTest {
     private fun whenOpenApiObjectGenerated(api: List<ResourceModel>): Swagger {
         val openapi =
             OpenApi20Generator.generate(
-                resources = api,
+                pathIndex = PathIndex(api),
                 oauth2SecuritySchemeDefinition =
                     Oauth2Configuration(
                         "http://example.com/token",
@@ -1,5 +1,7 @@
 package com.epages.restdocs.apispec.openapi3
 
+import com.epages.restdocs.apispec.model.StreamingYamlGenerator
+import com.fasterxml.jackson.databind.JsonNode
 import io.swagger.v3.core.util.Json
 import io.swagger.v3.core.util.Yaml
 import io.swagger.v3.oas.models.OpenAPI
@@ -8,18 +10,35 @@ internal object ApiSpecificationWriter {
     private val yamlFormats = setOf("yaml", "yml")
     private val jsonFormats = setOf("json")
 
+    /**
+     * @param streamingYaml write YAML with the [StreamingYamlGenerator] instead of the swagger YAML object mapper
+     */
     fun serialize(
         format: String,
         openApi: OpenAPI,
+        streamingYaml: Boolean = false,
     ): String {
         validateFormat(format)
         return if (yamlFormats.contains(format)) {
-            Yaml.pretty().writeValueAsString(openApi)
+            if (streamingYaml) StreamingYamlGenerator.serialize(openApi, Yaml.mapper()) else Yaml.pretty().writeValueAsString(openApi)
         } else {
             Json.pretty().writeValueAsString(openApi)
         }
     }
 
+    fun serialize(
+        format: String,
+        node: JsonNode,
+        streamingYaml: Boolean = false,
+    ): String {
+        validateFormat(format)
+        return if (yamlFormats.contains(format)) {
+            if (streamingYaml) StreamingYamlGenerator.serialize(node, Json.mapper()) else Yaml.pretty().writeValueAsString(node)
+        } else {
+            Json.pretty().writeValueAsString(node)
+        }
+    }
+
     fun supportedFormats() = yamlFormats + jsonFormats
 
     fun validateFormat(format: String) {
@@ -0,0 +1,107 @@
+package com.epages.restdocs.apispec.openapi3
+
+import com.fasterxml.jackson.core.JacksonException
+import io.swagger.v3.core.util.Json
+import io.swagger.v3.oas.models.examples.Example
+
+/**
+ * Selects the examples added to a media type.
+ *
+ * Operations documented by many tests would otherwise get one example per test - most of them nearly identical.
+ */
+data class ExampleSelectionPolicy(
+    /**
+     * Add at most this number of examples per media type.
+     */
+    val maxExamples: Int? = null,
+    /**
+     * Add examples with equal content only once - JSON examples are compared structurally.
+     */
+    val deduplicate: Boolean = false,
+    /**
+     * Prefer the smallest examples over the first ones if there are more than [maxExamples].
+     */
+    val preferSmallest: Boolean = false,
+) {
+    init {
+        require(maxExamples == null || maxExamples > 0) { "maxExamples must be positive" }
+    }
+
+    companion object {
+        @JvmField
+        val ALL = ExampleSelectionPolicy()
+    }
+}
+
+internal class ExampleCandidate(
+    val operationId: String,
+    val example: String?,
+    val exampleRef: String?,
+    val rawExample: Boolean = false,
+)
+
+/**
+ * Applies the [ExampleSelectionPolicy] while consuming the candidates - only the selected examples are kept.
+ *
+ * @param sharedExamples the examples referenced by [ExampleCandidate.exampleRef]
+ */
+internal class ExampleSelector(
+    private val policy: ExampleSelectionPolicy,
+    private val sharedExamples: SharedExamples,
+) {
+    /**
+     * The candidates are consumed lazily - unless the smallest examples are preferred, no more candidates are consumed
+     * once [ExampleSelectionPolicy.maxExamples] examples are selected.
+     *
+     * @return the selected examples by operationId in the order of the candidates
+     */
+    fun select(candidates: Sequence<ExampleCandidate>): Map<String, Example> {
+        val maxExamples = policy.maxExamples
+        val selected = ArrayList<SelectedExample>()
+        val selectedContents = HashSet<Any>()
+
+        for ((index, candidate) in candidates.withIndex()) {
+            if (maxExamples != null && selected.size >= maxExamples && !policy.preferSmallest) break
+            val content = candidate.example ?: candidate.exampleRef?.let { sharedExamples[it]?.value as? String } ?: continue
+            val normalizedContent = if (policy.deduplicate) normalize(content) else null
+            if (normalizedContent != null && normalizedContent in selectedContents) continue
+
+            if (maxExamples != null && selected.size >= maxExamples) {
+                val largest = selected.maxBy { it.size }
+                if (content.length >= largest.size) continue
+                selected.remove(largest)
+                largest.normalizedContent?.let { selectedContents.remove(it) }
+            }
+            selected += SelectedExample(index, candidate, content.length, normalizedContent)
+            normalizedContent?.let { selectedContents += it }
+        }
+
+        return selected
+            .sortedBy { it.index }
+            .associate { it.candidate.operationId to toExample(it.candidate) }
+    }
+
+    private fun toExample(candidate: ExampleCandidate): Example =
+        if (candidate.exampleRef != null) {
+            Example().apply { `$ref`("#/components/examples/${candidate.exampleRef}") }
+        } else {
+            Example().apply { value(if (candidate.rawExample) RawJsonValue(candidate.example!!) else candidate.example) }
+        }
+
+    /**
+     * @return the parsed JSON - it is equal for JSON examples only differing in formatting or property order
+     */
+    private fun normalize(content: String): Any =
+        try {
+            Json.mapper().readTree(content) ?: content.trim()
+        } catch (_: JacksonException) {
+            content.trim()
+        }
+
+    private class SelectedExample(
+        val index: Int,
+        val candidate: ExampleCandidate,
+        val size: Int,
+        val normalizedContent: Any?,
+    )
+}
@@ -3,18 +3,27 @@ package com.epages.restdocs.apispec.openapi3
 import com.epages.restdocs.apispec.jsonschema.JsonSchemaFromFieldDescriptorsGenerator
 import com.epages.restdocs.apispec.model.AbstractParameterDescriptor
 import com.epages.restdocs.apispec.model.Attributes
+import com.epages.restdocs.apispec.model.Audience
+import com.epages.restdocs.apispec.model.ExampleStore
 import com.epages.restdocs.apispec.model.FieldDescriptor
 import com.epages.restdocs.apispec.model.HTTPMethod
 import com.epages.restdocs.apispec.model.HeaderDescriptor
 import com.epages.restdocs.apispec.model.Oauth2Configuration
 import com.epages.restdocs.apispec.model.ParameterDescriptor
+import com.epages.restdocs.apispec.model.PathIndex
 import com.epages.restdocs.apispec.model.RequestModel
 import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ResourceModelProjection
 import com.epages.restdocs.apispec.model.ResponseModel
+import com.epages.restdocs.apispec.model.SchemaNameContext
+import com.epages.restdocs.apispec.model.SchemaNamingStrategy
+import com.epages.restdocs.apispec.model.SecurityIndex
 import com.epages.restdocs.apispec.model.SimpleType
-import com.epages.restdocs.apispec.model.groupByPath
+import com.epages.restdocs.apispec.model.groupByMethod
 import com.epages.restdocs.apispec.openapi3.SecuritySchemeGenerator.addSecurityDefinitions
-import com.epages.restdocs.apispec.openapi3.SecuritySchemeGenerator.addSecurityItemFromSecurityRequirements
+import com.epages.restdocs.apispec.openapi3.SecuritySchemeGenerator.addRequirements
+import com.epages.restdocs.apispec.openapi3.SecuritySchemeGenerator.addSecurityItems
+import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.module.kotlin.jacksonObjectMapper
 import com.fasterxml.jackson.module.kotlin.readValue
 import io.swagger.v3.core.util.Json
@@ -43,12 +52,19 @@ import io.swagger.v3.oas.models.responses.ApiResponses
 import io.swagger.v3.oas.models.servers.Server
 import io.swagger.v3.oas.models.tags.Tag
 import java.math.BigDecimal
+import java.util.Collections
+import java.util.IdentityHashMap
 
 object OpenApi3Generator {
+    private const val SCHEMA_REF_PREFIX = "#/components/schemas/"
+    private const val EXAMPLE_REF_PREFIX = "#/components/examples/"
     private val PATH_PARAMETER_PATTERN = """\{([^/}]+)}""".toRegex()
 
+    @JvmField
+    val RESOURCE_MODEL_PROJECTION = ResourceModelProjection.FULL
+
     internal fun generate(
-        resources: List<ResourceModel>,
+        pathIndex: PathIndex,
         servers: List<Server>,
         title: String = "API",
         description: String? = null,
@@ -56,37 +72,148 @@ object OpenApi3Generator {
         version: String = "1.0.0",
         oauth2SecuritySchemeDefinition: Oauth2Configuration? = null,
         contact: Contact? = null,
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        pathItemCache: PathItemCache = PathItemCache.NONE,
+        exampleSelectionPolicy: ExampleSelectionPolicy = ExampleSelectionPolicy.ALL,
+        securitySchemeExtractors: List<SecuritySchemeExtractor> = emptyList(),
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+        repeatedSchemaMinSize: Int? = null,
     ): OpenAPI =
-        OpenAPI().apply {
-            this.servers = servers
-            info =
-                Info().apply {
-                    this.title = title
-                    this.description = description
-                    this.version = version
-                    this.contact = contact
+        generateForAudiences(
+            pathIndex = pathIndex,
+            audiences = emptyList(),
+            servers = servers,
+            title = title,
+            description = description,
+            tagDescriptions = tagDescriptions,
+            version = version,
+            oauth2SecuritySchemeDefinition = oauth2SecuritySchemeDefinition,
+            contact = contact,
+            exampleStore = exampleStore,
+            pathItemCache = pathItemCache,
+            exampleSelectionPolicy = exampleSelectionPolicy,
+            securitySchemeExtractors = securitySchemeExtractors,
+            schemaNamingStrategy = schemaNamingStrategy,
+            repeatedSchemaMinSize = repeatedSchemaMinSize,
+        ).getValue(null)
+
+    /**
+     * Generates the specification of all resources and the specifications of the [audiences] in a single pass.
+     *
+     * The visibility of the resources is checked while their path is generated - path items only containing resources visible
+     * to an audience are shared with its specification, only paths mixing visible and hidden resources are generated again.
+     * The schemas are extracted once for all specifications - each specification only keeps the components it references.
+     *
+     * @param repeatedSchemaMinSize extract nested object schemas occurring more than once and consisting of at least this number
+     * of schemas into the components, see [RepeatedSchemas] - null keeps them inline
+     *
+     * @return the specifications by audience - the specification of all resources has no audience
+     */
+    internal fun generateForAudiences(
+        pathIndex: PathIndex,
+        audiences: List<Audience>,
+        servers: List<Server>,
+        title: String = "API",
+        description: String? = null,
+        tagDescriptions: Map<String, String> = emptyMap(),
+        version: String = "1.0.0",
+        oauth2SecuritySchemeDefinition: Oauth2Configuration? = null,
+        contact: Contact? = null,
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        pathItemCache: PathItemCache = PathItemCache.NONE,
+        exampleSelectionPolicy: ExampleSelectionPolicy = ExampleSelectionPolicy.ALL,
+        securitySchemeExtractors: List<SecuritySchemeExtractor> = emptyList(),
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+        repeatedSchemaMinSize: Int? = null,
+    ): Map<Audience?, OpenAPI> {
+        val sharedExamples = SharedExamples(exampleStore)
+        val pathsByAudience =
+            generatePaths(
+                pathIndex,
+                audiences,
+                oauth2SecuritySchemeDefinition,
+                pathItemCache,
+                exampleSelectionPolicy,
+                sharedExamples,
+                securitySchemeExtractors,
+            )
+        val specifications =
+            pathsByAudience.mapValues { (_, indexedPaths) ->
+                OpenAPI().apply {
+                    this.servers = servers
+                    info =
+                        Info().apply {
+                            this.title = title
+                            this.description = description
+                            this.version = version
+                            this.contact = contact
+                        }
+                    this.tags(
+                        tagDescriptions.map {
+                            Tag().apply {
+                                this.name = it.key
+                                this.description = it.value
+                            }
+                        },
+                    )
+                    this.paths = indexedPaths.paths
                 }
-            this.tags(
-                tagDescriptions.map {
-                    Tag().apply {
-                        this.name = it.key
-                        this.description = it.value
-                    }
-                },
+            }
+
+        val components = extractDefinitions(specifications.values, schemaNamingStrategy)
+        components.examples = sharedExamples.components().nullIfEmpty()
+        components.makeSubSchema()
+        if (repeatedSchemaMinSize != null) {
+            components.schemas = RepeatedSchemas(repeatedSchemaMinSize, SCHEMA_REF_PREFIX).extract(components.schemas)
+        }
+        specifications.forEach { (audience, specification) ->
+            specification.components = if (audiences.isEmpty()) components else components.referencedBy(specification.paths)
+            specification.addSecurityDefinitions(
+                oauth2SecuritySchemeDefinition,
+                pathsByAudience.getValue(audience).securityIndex,
+                securitySchemeExtractors,
             )
-            paths =
-                generatePaths(
-                    resources,
-                    oauth2SecuritySchemeDefinition,
-                )
+        }
+        return specifications
+    }
+
+    /**
+     * @return the components directly or transitively referenced by the paths
+     */
+    private fun Components.referencedBy(paths: Paths): Components {
+        val schemaNames = HashSet<String>()
+        val exampleNames = HashSet<String>()
+        val pending = ArrayDeque<JsonNode>().apply { add(Json.mapper().valueToTree(paths)) }
+        while (pending.isNotEmpty()) {
+            pending.removeFirst().findValuesAsText("\$ref").forEach { ref ->
+                when {
+                    ref.startsWith(SCHEMA_REF_PREFIX) -> {
+                        val name = ref.removePrefix(SCHEMA_REF_PREFIX)
+                        if (schemaNames.add(name)) schemas?.get(name)?.let { pending.add(Json.mapper().valueToTree(it)) }
+                    }
+                    ref.startsWith(EXAMPLE_REF_PREFIX) -> exampleNames.add(ref.removePrefix(EXAMPLE_REF_PREFIX))
+                }
+            }
+        }
+        return Components()
+            .schemas(schemas?.filterKeys { it in schemaNames })
+            .examples(examples?.filterKeys { it in exampleNames }?.nullIfEmpty())
+    }
 
-            extractDefinitions()
-            makeSubSchema()
-            addSecurityDefinitions(oauth2SecuritySchemeDefinition)
+    private fun ResourceModel.withoutUnresolvedExampleRefs(sharedExamples: SharedExamples): ResourceModel {
+        val requestExampleRef = request.exampleRef?.takeIf { sharedExamples[it] != null }
+        val responseExampleRef = response.exampleRef?.takeIf { sharedExamples[it] != null }
+        return if (requestExampleRef == request.exampleRef && responseExampleRef == response.exampleRef) {
+            this
+        } else {
+            copy(
+                request = request.copy(exampleRef = requestExampleRef),
+                response = response.copy(exampleRef = responseExampleRef),
+            )
         }
+    }
 
-    private fun OpenAPI.makeSubSchema() {
-        val schemas = this.components.schemas
+    private fun Components.makeSubSchema() {
         val subSchemas = LinkedHashMap<String, Schema<Any>?>()
         schemas.forEach {
             val schema = it.value
@@ -96,7 +223,7 @@ object OpenApi3Generator {
         }
 
         if (subSchemas.isNotEmpty()) {
-            this.components.schemas.putAll(subSchemas)
+            schemas.putAll(subSchemas)
         }
     }
 
@@ -110,7 +237,7 @@ object OpenApi3Generator {
             val strSubSchema = objectMapper.writeValueAsString(subSchema)
             val copySchema = objectMapper.readValue(strSubSchema, subSchema?.javaClass)
             val schemaTitle = copySchema.title
-            subSchema?.`$ref`("#/components/schemas/$schemaTitle")
+            subSchema?.`$ref`("$SCHEMA_REF_PREFIX$schemaTitle")
             schemas[schemaTitle] = copySchema
             makeSubSchema(schemas, copySchema.properties)
         }
@@ -126,10 +253,56 @@ object OpenApi3Generator {
         oauth2SecuritySchemeDefinition: Oauth2Configuration? = null,
         format: String,
         contact: Contact? = null,
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        pathItemCache: PathItemCache = PathItemCache.NONE,
+        exampleSelectionPolicy: ExampleSelectionPolicy = ExampleSelectionPolicy.ALL,
+        securitySchemeExtractors: List<SecuritySchemeExtractor> = emptyList(),
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+        repeatedSchemaMinSize: Int? = null,
+        streamingYaml: Boolean = false,
+    ) = generateAndSerialize(
+        pathIndex = PathIndex(resources),
+        servers = servers,
+        title = title,
+        description = description,
+        tagDescriptions = tagDescriptions,
+        version = version,
+        oauth2SecuritySchemeDefinition = oauth2SecuritySchemeDefinition,
+        format = format,
+        contact = contact,
+        exampleStore = exampleStore,
+        pathItemCache = pathItemCache,
+        exampleSelectionPolicy = exampleSelectionPolicy,
+        securitySchemeExtractors = securitySchemeExtractors,
+        schemaNamingStrategy = schemaNamingStrategy,
+        repeatedSchemaMinSize = repeatedSchemaMinSize,
+        streamingYaml = streamingYaml,
+    )
+
+    /**
+     * Loads the resources of one path of the [PathIndex] at a time - see [PathIndex.ofReferences].
+     */
+    fun generateAndSerialize(
+        pathIndex: PathIndex,
+        servers: List<Server>,
+        title: String = "API",
+        description: String? = null,
+        tagDescriptions: Map<String, String> = emptyMap(),
+        version: String = "1.0.0",
+        oauth2SecuritySchemeDefinition: Oauth2Configuration? = null,
+        format: String,
+        contact: Contact? = null,
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        pathItemCache: PathItemCache = PathItemCache.NONE,
+        exampleSelectionPolicy: ExampleSelectionPolicy = ExampleSelectionPolicy.ALL,
+        securitySchemeExtractors: List<SecuritySchemeExtractor> = emptyList(),
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+        repeatedSchemaMinSize: Int? = null,
+        streamingYaml: Boolean = false,
     ) = ApiSpecificationWriter.serialize(
         format,
         generate(
-            resources = resources,
+            pathIndex = pathIndex,
             servers = servers,
             title = title,
             description = description,
@@ -137,118 +310,262 @@ object OpenApi3Generator {
             version = version,
             oauth2SecuritySchemeDefinition = oauth2SecuritySchemeDefinition,
             contact = contact,
+            exampleStore = exampleStore,
+            pathItemCache = pathItemCache,
+            exampleSelectionPolicy = exampleSelectionPolicy,
+            securitySchemeExtractors = securitySchemeExtractors,
+            schemaNamingStrategy = schemaNamingStrategy,
+            repeatedSchemaMinSize = repeatedSchemaMinSize,
         ),
+        streamingYaml,
     )
 
-    private fun OpenAPI.extractDefinitions() {
+    /**
+     * Generates the specification of all resources and the specifications of the [audiences] in a single pass.
+     *
+     * @return the serialized specifications by audience - the specification of all resources has no audience
+     */
+    fun generateAndSerializeForAudiences(
+        pathIndex: PathIndex,
+        audiences: List<Audience>,
+        servers: List<Server>,
+        title: String = "API",
+        description: String? = null,
+        tagDescriptions: Map<String, String> = emptyMap(),
+        version: String = "1.0.0",
+        oauth2SecuritySchemeDefinition: Oauth2Configuration? = null,
+        format: String,
+        contact: Contact? = null,
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        pathItemCache: PathItemCache = PathItemCache.NONE,
+        exampleSelectionPolicy: ExampleSelectionPolicy = ExampleSelectionPolicy.ALL,
+        securitySchemeExtractors: List<SecuritySchemeExtractor> = emptyList(),
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+        repeatedSchemaMinSize: Int? = null,
+        streamingYaml: Boolean = false,
+    ): Map<Audience?, String> =
+        generateForAudiences(
+            pathIndex = pathIndex,
+            audiences = audiences,
+            servers = servers,
+            title = title,
+            description = description,
+            tagDescriptions = tagDescriptions,
+            version = version,
+            oauth2SecuritySchemeDefinition = oauth2SecuritySchemeDefinition,
+            contact = contact,
+            exampleStore = exampleStore,
+            pathItemCache = pathItemCache,
+            exampleSelectionPolicy = exampleSelectionPolicy,
+            securitySchemeExtractors = securitySchemeExtractors,
+            schemaNamingStrategy = schemaNamingStrategy,
+            repeatedSchemaMinSize = repeatedSchemaMinSize,
+        ).mapValues { ApiSpecificationWriter.serialize(format, it.value, streamingYaml) }
+
+    /**
+     * Serializes the specification into a main file named [name] and a directory of the same name
+     * containing one file per path and per schema and example component.
+     * The specifications of the [audiences] are split the same way - named by [Audience.specificationName].
+     *
+     * @return the content of the files by their path relative to the main file
+     */
+    fun generateAndSerializeSplit(
+        pathIndex: PathIndex,
+        servers: List<Server>,
+        title: String = "API",
+        description: String? = null,
+        tagDescriptions: Map<String, String> = emptyMap(),
+        version: String = "1.0.0",
+        oauth2SecuritySchemeDefinition: Oauth2Configuration? = null,
+        format: String,
+        name: String,
+        contact: Contact? = null,
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        pathItemCache: PathItemCache = PathItemCache.NONE,
+        exampleSelectionPolicy: ExampleSelectionPolicy = ExampleSelectionPolicy.ALL,
+        securitySchemeExtractors: List<SecuritySchemeExtractor> = emptyList(),
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+        repeatedSchemaMinSize: Int? = null,
+        streamingYaml: Boolean = false,
+        audiences: List<Audience> = emptyList(),
+    ): Map<String, String> =
+        generateForAudiences(
+            pathIndex = pathIndex,
+            audiences = audiences,
+            servers = servers,
+            title = title,
+            description = description,
+            tagDescriptions = tagDescriptions,
+            version = version,
+            oauth2SecuritySchemeDefinition = oauth2SecuritySchemeDefinition,
+            contact = contact,
+            exampleStore = exampleStore,
+            pathItemCache = pathItemCache,
+            exampleSelectionPolicy = exampleSelectionPolicy,
+            securitySchemeExtractors = securitySchemeExtractors,
+            schemaNamingStrategy = schemaNamingStrategy,
+            repeatedSchemaMinSize = repeatedSchemaMinSize,
+        ).entries
+            .flatMap { (audience, specification) ->
+                SplitApiSpecificationWriter
+                    .serialize(format, audience?.specificationName(name) ?: name, specification, streamingYaml)
+                    .entries
+            }.associate { it.key to it.value }
+
+    /**
+     * Replaces the schemas of the requests and responses by references to components shared by all specifications.
+     * Path items shared between the specifications are only visited once.
+     */
+    private fun extractDefinitions(
+        specifications: Collection<OpenAPI>,
+        schemaNamingStrategy: SchemaNamingStrategy,
+    ): Components {
         val schemasToKeys = LinkedHashMap<Schema<Any>, String>()
-        val operationToPathKey = LinkedHashMap<Operation, String>()
+        // the values of schemasToKeys - as a set, so a name is checked in constant time
+        val takenNames = HashSet<String>()
+        val visitedOperations = Collections.newSetFromMap(IdentityHashMap<Operation, Boolean>())
 
-        paths
-            .map { it.key to it.value.readOperations() }
+        specifications
+            .flatMap { specification -> specification.paths.map { it.key to it.value.readOperationsMap() } }
             .forEach { (path, operations) ->
-                operations.forEach { operation ->
-                    operationToPathKey[operation] = path
-                }
+                operations
+                    .filter { visitedOperations.add(it.value) }
+                    .forEach { (method, operation) ->
+                        operation.requestBody
+                            ?.content
+                            ?.mapNotNull { it.value }
+                            ?.extractSchemas(schemasToKeys, takenNames, schemaNamingStrategy, path, method.name, null)
+
+                        operation.responses.forEach { (status, response) ->
+                            response.content
+                                ?.values
+                                ?.toList()
+                                ?.extractSchemas(schemasToKeys, takenNames, schemaNamingStrategy, path, method.name, status)
+                        }
+                    }
             }
 
-        operationToPathKey.keys.forEach { operation ->
-            val path = operationToPathKey[operation]!!
-
-            operation.requestBody
-                ?.content
-                ?.mapNotNull { it.value }
-                ?.extractSchemas(schemasToKeys, path)
-
-            operation.responses.values
-                .mapNotNull { it.content }
-                .flatMap { it.values }
-                .extractSchemas(schemasToKeys, path)
+        return Components().apply {
+            schemas =
+                schemasToKeys.keys
+                    .map {
+                        schemasToKeys.getValue(it) to it
+                    }.toMap()
         }
-
-        this.components =
-            Components().apply {
-                schemas =
-                    schemasToKeys.keys
-                        .map {
-                            schemasToKeys.getValue(it) to it
-                        }.toMap()
-            }
-
-        this.components
     }
 
     private fun List<MediaType>.extractSchemas(
         schemasToKeys: MutableMap<Schema<Any>, String>,
+        takenNames: MutableSet<String>,
+        schemaNamingStrategy: SchemaNamingStrategy,
         path: String,
+        method: String,
+        status: String?,
     ) {
         this
             .filter { it.schema != null }
             .forEach {
                 it.schema(
-                    extractOrFindSchema(
-                        schemasToKeys,
-                        it.schema,
-                        generateSchemaName(path),
-                    ),
+                    extractOrFindSchema(schemasToKeys, takenNames, it.schema) { schema ->
+                        schemaNamingStrategy.schemaName(
+                            SchemaNameContext(
+                                path = path,
+                                pathName = pathName(path),
+                                separator = "-",
+                                method = method,
+                                status = status,
+                                title = schema.title,
+                                content = { Json.mapper().convertValue(schema, Any::class.java) },
+                            ),
+                        )
+                    },
                 )
             }
     }
 
+    /**
+     * A generated name already taken by another schema gets a counter appended.
+     */
     private fun extractOrFindSchema(
         schemasToKeys: MutableMap<Schema<Any>, String>,
+        takenNames: MutableSet<String>,
         schema: Schema<Any>,
         schemaNameGenerator: (Schema<Any>) -> String,
     ): Schema<Any> {
         val schemaKey =
-            if (schemasToKeys.containsKey(schema)) {
-                schemasToKeys[schema]!!
-            } else {
-                val name = schema.name ?: schemaNameGenerator(schema)
-                schemasToKeys[schema] = name
-                name
+            schemasToKeys.getOrPut(schema) {
+                (schema.name ?: uniqueName(schemaNameGenerator(schema), takenNames)).also { takenNames += it }
             }
-        return Schema<Any>().apply { `$ref`("#/components/schemas/$schemaKey") }
+        return Schema<Any>().apply { `$ref`("$SCHEMA_REF_PREFIX$schemaKey") }
     }
 
-    private fun generateSchemaName(path: String): (Schema<Any>) -> String =
-        { schema ->
-            path
-                .removePrefix("/")
-                .replace("/", "-")
-                .replace(Regex.fromLiteral("{"), "")
-                .replace(Regex.fromLiteral("}"), "")
-                .plus(schema.hashCode())
+    private fun uniqueName(
+        name: String,
+        takenNames: Set<String>,
+    ): String =
+        if (name !in takenNames) {
+            name
+        } else {
+            generateSequence(2) { it + 1 }.map { "$name-$it" }.first { it !in takenNames }
         }
 
+    private fun pathName(path: String): String =
+        path
+            .removePrefix("/")
+            .replace("/", "-")
+            .replace(Regex.fromLiteral("{"), "")
+            .replace(Regex.fromLiteral("}"), "")
+
     private fun generatePaths(
-        resources: List<ResourceModel>,
+        pathIndex: PathIndex,
+        audiences: List<Audience>,
         oauth2SecuritySchemeDefinition: Oauth2Configuration?,
-    ): Paths =
-        resources
-            .groupByPath()
-            .entries
-            .map {
-                it.key to
-                    resourceModels2PathItem(
-                        it.value,
-                        oauth2SecuritySchemeDefinition,
-                    )
-            }.let { pathAndPathItem ->
-                Paths().apply { pathAndPathItem.forEach { addPathItem(it.first, it.second) } }
+        pathItemCache: PathItemCache,
+        exampleSelectionPolicy: ExampleSelectionPolicy,
+        sharedExamples: SharedExamples,
+        securitySchemeExtractors: List<SecuritySchemeExtractor>,
+    ): Map<Audience?, IndexedPaths> {
+        val exampleSelector = ExampleSelector(exampleSelectionPolicy, sharedExamples)
+        // the custom schemes change the path items - the names identify them for the cache
+        val cacheSettings = PathItemSettings(exampleSelectionPolicy, securitySchemeExtractors.map { it.name })
+        val generatePathItem = { modelsWithSamePath: List<ResourceModel> ->
+            pathItemCache.getOrPut(modelsWithSamePath, cacheSettings) {
+                resourceModels2PathItem(
+                    modelsWithSamePath,
+                    oauth2SecuritySchemeDefinition,
+                    exampleSelector,
+                    securitySchemeExtractors,
+                )
+            }.also { sharedExamples.addReferences(it) }
+        }
+        val paths = IndexedPaths()
+        val pathsByAudience = audiences.associateWith { IndexedPaths() }
+        // the resources are loaded once per path - and released before the next path is visited
+        pathIndex.entries.forEach { pathEntry ->
+            val modelsWithSamePath = pathEntry.loadResources().map { it.withoutUnresolvedExampleRefs(sharedExamples) }
+            val pathItem = generatePathItem(modelsWithSamePath)
+            paths.addPathItem(pathEntry.path, pathItem)
+            pathsByAudience.forEach { (audience, pathsOfAudience) ->
+                val visibleModels = modelsWithSamePath.filter { audience.includes(it) }
+                when (visibleModels.size) {
+                    0 -> Unit
+                    modelsWithSamePath.size -> pathsOfAudience.addPathItem(pathEntry.path, pathItem)
+                    else -> pathsOfAudience.addPathItem(pathEntry.path, generatePathItem(visibleModels))
+                }
             }
-
-    private fun groupByHttpMethod(resources: List<ResourceModel>): Map<HTTPMethod, List<ResourceModel>> =
-        resources.groupBy {
-            it.request.method
         }
+        return mapOf<Audience?, IndexedPaths>(null to paths) + pathsByAudience
+    }
 
     private fun resourceModels2PathItem(
         modelsWithSamePath: List<ResourceModel>,
         oauth2SecuritySchemeDefinition: Oauth2Configuration?,
+        exampleSelector: ExampleSelector,
+        securitySchemeExtractors: List<SecuritySchemeExtractor>,
     ): PathItem {
         val path = PathItem()
-        groupByHttpMethod(modelsWithSamePath)
+        modelsWithSamePath
+            .groupByMethod()
             .entries
             .forEach {
                 addOperation(
@@ -258,6 +575,8 @@ object OpenApi3Generator {
                         resourceModels2Operation(
                             it.value,
                             oauth2SecuritySchemeDefinition,
+                            exampleSelector,
+                            securitySchemeExtractors,
                         ),
                 )
             }
@@ -282,6 +601,8 @@ object OpenApi3Generator {
     private fun resourceModels2Operation(
         modelsWithSamePathAndMethod: List<ResourceModel>,
         @Suppress("unused") oauth2SecuritySchemeDefinition: Oauth2Configuration?,
+        exampleSelector: ExampleSelector,
+        securitySchemeExtractors: List<SecuritySchemeExtractor>,
     ): Operation {
         val firstModelForPathAndMethod = modelsWithSamePathAndMethod.first()
         val operationIds = modelsWithSamePathAndMethod.map { model -> model.operationId }
@@ -314,6 +635,7 @@ object OpenApi3Generator {
                                 it.request,
                             )
                         },
+                        exampleSelector,
                     )
                 responses =
                     resourceModelsToApiResponses(
@@ -323,8 +645,9 @@ object OpenApi3Generator {
                                 it.response,
                             )
                         },
+                        exampleSelector,
                     )
-            }.apply { addSecurityItemFromSecurityRequirements(firstModelForPathAndMethod.request.securityRequirements) }
+            }.apply { addSecurityItems(modelsWithSamePathAndMethod, securitySchemeExtractors) }
     }
 
     private fun operationId(operationIds: List<String>): String {
@@ -340,7 +663,10 @@ object OpenApi3Generator {
         return prefix
     }
 
-    private fun resourceModelsToRequestBody(requestModelsWithOperationId: List<RequestModelWithOperationId>): RequestBody? {
+    private fun resourceModelsToRequestBody(
+        requestModelsWithOperationId: List<RequestModelWithOperationId>,
+        exampleSelector: ExampleSelector,
+    ): RequestBody? {
         val requestByContentType =
             requestModelsWithOperationId
                 .filter { it.request.contentType != null }
@@ -362,10 +688,11 @@ object OpenApi3Generator {
                             }
                         },
                     examplesWithOperationId =
-                        requests
-                            .filter { it.request.example != null }
-                            .map { it.operationId to it.request.example!! }
-                            .toMap(),
+                        exampleSelector.select(
+                            requests.asSequence().map {
+                                ExampleCandidate(it.operationId, it.request.example, it.request.exampleRef, it.request.rawExample)
+                            },
+                        ),
                     contentType = contentType,
                     schemaName =
                         requests
@@ -386,7 +713,10 @@ object OpenApi3Generator {
             }
     }
 
-    private fun resourceModelsToApiResponses(responseModelsWithOperationId: List<ResponseModelWithOperationId>): ApiResponses? {
+    private fun resourceModelsToApiResponses(
+        responseModelsWithOperationId: List<ResponseModelWithOperationId>,
+        exampleSelector: ExampleSelector,
+    ): ApiResponses? {
         val responsesByStatus =
             responseModelsWithOperationId
                 .groupBy { it.response.status }
@@ -399,6 +729,7 @@ object OpenApi3Generator {
             .mapValues { (_, responses) ->
                 responsesWithSameStatusToApiResponse(
                     responses,
+                    exampleSelector,
                 )
             }.let {
                 ApiResponses().apply {
@@ -407,7 +738,10 @@ object OpenApi3Generator {
             }
     }
 
-    private fun responsesWithSameStatusToApiResponse(responseModelsSameStatus: List<ResponseModelWithOperationId>): ApiResponse {
+    private fun responsesWithSameStatusToApiResponse(
+        responseModelsSameStatus: List<ResponseModelWithOperationId>,
+        exampleSelector: ExampleSelector,
+    ): ApiResponse {
         val responsesByContentType =
             responseModelsSameStatus
                 .filter { it.response.contentType != null }
@@ -423,20 +757,24 @@ object OpenApi3Generator {
                 headers =
                     responseModelsSameStatus
                         .flatMap { it.response.headers }
-                        .map {
+                        .associate {
                             it.name to
                                 Header().apply {
                                     description(it.description)
                                     schema = simpleTypeToSchema(it)
                                 }
-                        }.toMap()
-                        .nullIfEmpty()
+                        }.nullIfEmpty()
             }
         return responsesByContentType
             .map { (contentType, requests) ->
                 toMediaType(
                     requestFields = requests.flatMap { it.response.responseFields },
-                    examplesWithOperationId = requests.map { it.operationId to it.response.example!! }.toMap(),
+                    examplesWithOperationId =
+                        exampleSelector.select(
+                            requests.asSequence().map {
+                                ExampleCandidate(it.operationId, it.response.example, it.response.exampleRef, it.response.rawExample)
+                            },
+                        ),
                     contentType = contentType,
                     schemaName =
                         requests
@@ -460,7 +798,7 @@ object OpenApi3Generator {
 
     private fun toMediaType(
         requestFields: List<FieldDescriptor>,
-        examplesWithOperationId: Map<String, String>,
+        examplesWithOperationId: Map<String, Example>,
         contentType: String,
         schemaName: String? = null,
     ): Pair<String, MediaType> {
@@ -474,7 +812,7 @@ object OpenApi3Generator {
         return contentType to
             MediaType()
                 .schema(schema)
-                .examples(examplesWithOperationId.map { it.key to Example().apply { value(it.value) } }.toMap().nullIfEmpty())
+                .examples(examplesWithOperationId.nullIfEmpty())
     }
 
     private fun extractPathParameters(resourceModel: ResourceModel): List<PathParameter> {
@@ -629,6 +967,22 @@ object OpenApi3Generator {
         val operationId: String,
         val response: ResponseModel,
     )
+
+    /**
+     * The paths of a specification - and the security schemes their operations require, recorded while the path items are added.
+     */
+    private class IndexedPaths {
+        val paths = Paths()
+        val securityIndex = SecurityIndex()
+
+        fun addPathItem(
+            path: String,
+            pathItem: PathItem,
+        ) {
+            paths.addPathItem(path, pathItem)
+            pathItem.readOperations().forEach { securityIndex.addRequirements(it) }
+        }
+    }
 }
 
 /**
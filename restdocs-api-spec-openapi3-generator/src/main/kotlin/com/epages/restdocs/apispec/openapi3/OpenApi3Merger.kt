@@ -0,0 +1,450 @@
+package com.epages.restdocs.apispec.openapi3
+
+import com.epages.restdocs.apispec.model.PathIndex
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ArrayNode
+import com.fasterxml.jackson.databind.node.ObjectNode
+import io.swagger.v3.core.util.Json
+import io.swagger.v3.core.util.Yaml
+
+/**
+ * Merges OpenAPI 3 specifications - e.g. generated from the resource fragments of several test shards - into one specification.
+ *
+ * The specifications are merged as JSON trees - each node is visited a constant number of times, so merging takes time linear
+ * in the total size of the specifications.
+ *
+ * - The paths are ordered like the generator orders them, the components and tags by name - so the merged specification
+ *   does not depend on how the resources were distributed across the specifications.
+ * - Components with equal content are kept once - also if they are named differently. References to them are rewritten.
+ * - A component named like a different component of a previous specification is renamed by appending a counter - and reported.
+ * - Operations documented in several specifications are merged field by field - the responses by status, their content by media
+ *   type and the examples by name, the parameters by name and location. So an operation may document a status in each shard.
+ * - Responses, examples, parameters and other operation fields, security schemes, tags and infos differing from those of a previous
+ *   specification are reported - the first one is kept.
+ */
+object OpenApi3Merger {
+    private const val COMPONENTS_REF_PREFIX = "#/components/"
+    private const val REF = "\$ref"
+
+    private val OPERATION_KEYS = listOf("get", "put", "post", "delete", "options", "head", "patch", "trace")
+    private val COMPONENT_TYPES =
+        listOf("schemas", "responses", "parameters", "examples", "requestBodies", "headers", "securitySchemes", "links", "callbacks")
+
+    /**
+     * Security schemes are referenced by name from security requirements - they cannot be renamed.
+     */
+    private const val SECURITY_SCHEMES = "securitySchemes"
+
+    /**
+     * The specifications are modified while they are merged.
+     */
+    fun merge(specifications: List<JsonNode>): MergeResult<JsonNode> {
+        val merge = Merge()
+        specifications.forEachIndexed { index, specification -> merge.add(index, specification) }
+        return MergeResult(merge.result(), merge.conflicts)
+    }
+
+    /**
+     * @param specifications the specifications in JSON or YAML
+     * @param format the format of the merged specification - `json` or `yaml`
+     * @param streamingYaml write YAML with the streaming writer instead of the swagger YAML object mapper
+     */
+    fun mergeAndSerialize(
+        specifications: List<String>,
+        format: String,
+        streamingYaml: Boolean = false,
+    ): MergeResult<String> {
+        ApiSpecificationWriter.validateFormat(format)
+        val merged = merge(specifications.map { (if (it.trimStart().startsWith("{")) Json.mapper() else Yaml.mapper()).readTree(it) })
+        return MergeResult(ApiSpecificationWriter.serialize(format, merged.specification, streamingYaml), merged.conflicts)
+    }
+
+    private class Merge {
+        val conflicts = ArrayList<MergeConflict>()
+        private var first: ObjectNode? = null
+        private val servers = LinkedHashSet<JsonNode>()
+        private val security = LinkedHashSet<JsonNode>()
+        private val tags = HashMap<String, JsonNode>()
+        private val paths = HashMap<String, LinkedHashMap<String, JsonNode>>()
+        private val components = HashMap<String, HashMap<String, JsonNode>>()
+        private val componentNamesByContent = HashMap<String, HashMap<JsonNode, String>>()
+
+        fun add(
+            index: Int,
+            specification: JsonNode,
+        ) {
+            require(specification is ObjectNode) { "Specification ${index + 1} is not an object" }
+            if (first == null) {
+                first = specification
+            } else if (specification["info"] != first!!["info"]) {
+                conflicts += MergeConflict(index, "/info", "Differs from the info of a previous specification - the first one is kept")
+            }
+            specification["servers"]?.forEach { servers += it }
+            specification["security"]?.forEach { security += it }
+            specification["tags"]?.forEach { tag ->
+                val name = tag["name"].asText()
+                val existing = tags.putIfAbsent(name, tag)
+                if (existing != null && existing != tag) {
+                    conflicts +=
+                        MergeConflict(
+                            index,
+                            "/tags",
+                            "Tag '$name' differs from the tag of a previous specification - the first one is kept",
+                        )
+                }
+            }
+
+            val renames = ComponentMerge(index, specification["components"] as? ObjectNode).merge()
+            specification["paths"]?.properties()?.forEach { (path, pathItem) ->
+                rewriteRefs(pathItem) { holder, ref -> renames[ref]?.let { holder.put(REF, it) } }
+                val merged = paths.getOrPut(path) { LinkedHashMap() }
+                pathItem.properties().forEach { (key, value) ->
+                    val existing = merged.putIfAbsent(key, value)
+                    if (existing == null || existing == value) return@forEach
+                    val pointer = "/paths/${escape(path)}/$key"
+                    val mergedFields =
+                        when (key) {
+                            in OPERATION_KEYS -> mergeOperation(index, pointer, existing, value)
+                            "parameters" -> mergeParameters(index, pointer, existing, value)
+                            else -> false
+                        }
+                    if (!mergedFields) conflicts += conflict(index, pointer)
+                }
+            }
+        }
+
+        private fun mergeOperation(
+            index: Int,
+            pointer: String,
+            existing: JsonNode,
+            operation: JsonNode,
+        ): Boolean =
+            mergeFields(index, pointer, existing, operation) { key, fieldPointer, existingValue, value ->
+                when (key) {
+                    "responses" ->
+                        mergeFields(index, fieldPointer, existingValue, value) { _, responsePointer, existingResponse, response ->
+                            mergeBody(index, responsePointer, existingResponse, response)
+                        }.also { if (it) sortFields(existingValue as ObjectNode) }
+                    "requestBody" -> mergeBody(index, fieldPointer, existingValue, value)
+                    "parameters" -> mergeParameters(index, fieldPointer, existingValue, value)
+                    else -> false
+                }
+            }
+
+        /**
+         * Merges a response or a request body - the content by media type and its examples by name, the headers by name.
+         */
+        private fun mergeBody(
+            index: Int,
+            pointer: String,
+            existing: JsonNode,
+            body: JsonNode,
+        ): Boolean =
+            mergeFields(index, pointer, existing, body) { key, fieldPointer, existingValue, value ->
+                when (key) {
+                    "content" ->
+                        mergeFields(index, fieldPointer, existingValue, value) { _, mediaTypePointer, existingMediaType, mediaType ->
+                            mergeMediaType(index, mediaTypePointer, existingMediaType, mediaType)
+                        }
+                    "headers" -> mergeFields(index, fieldPointer, existingValue, value)
+                    else -> false
+                }
+            }
+
+        private fun mergeMediaType(
+            index: Int,
+            pointer: String,
+            existing: JsonNode,
+            mediaType: JsonNode,
+        ): Boolean =
+            mergeFields(index, pointer, existing, mediaType) { key, fieldPointer, existingValue, value ->
+                key == "examples" && mergeFields(index, fieldPointer, existingValue, value)
+            }
+
+        /**
+         * Adds the fields of the node missing in the existing node - and merges the differing ones with [mergeField].
+         * Differing fields [mergeField] cannot merge are reported.
+         *
+         * @return false if the nodes cannot be merged - if they are no objects or references
+         */
+        private fun mergeFields(
+            index: Int,
+            pointer: String,
+            existing: JsonNode,
+            node: JsonNode,
+            mergeField: (key: String, pointer: String, existing: JsonNode, value: JsonNode) -> Boolean = { _, _, _, _ -> false },
+        ): Boolean {
+            if (existing !is ObjectNode || node !is ObjectNode || existing.has(REF) || node.has(REF)) return false
+            node.properties().forEach { (key, value) ->
+                val existingValue = existing[key]
+                val fieldPointer = "$pointer/${escape(key)}"
+                when {
+                    existingValue == null -> existing.set<JsonNode>(key, value)
+                    existingValue == value -> Unit
+                    !mergeField(key, fieldPointer, existingValue, value) -> conflicts += conflict(index, fieldPointer)
+                }
+            }
+            return true
+        }
+
+        /**
+         * Parameters are identified by name and location - or by their reference.
+         */
+        private fun mergeParameters(
+            index: Int,
+            pointer: String,
+            existing: JsonNode,
+            parameters: JsonNode,
+        ): Boolean {
+            if (existing !is ArrayNode || !parameters.isArray) return false
+            val existingByKey = existing.associateBy { parameterKey(it) }
+            parameters.forEachIndexed { parameterIndex, parameter ->
+                val existingParameter = existingByKey[parameterKey(parameter)]
+                when {
+                    existingParameter == null -> existing.add(parameter)
+                    existingParameter != parameter -> conflicts += conflict(index, "$pointer/$parameterIndex")
+                }
+            }
+            return true
+        }
+
+        private fun parameterKey(parameter: JsonNode): String =
+            parameter[REF]?.asText() ?: "${parameter["in"]?.asText()}:${parameter["name"]?.asText()}"
+
+        private fun conflict(
+            index: Int,
+            pointer: String,
+        ) = MergeConflict(index, pointer, "Differs from the one of a previous specification - the first one is kept")
+
+        /**
+         * The fields of the first specification keep their order - merged fields it does not contain are appended.
+         */
+        fun result(): ObjectNode {
+            val result = Json.mapper().createObjectNode()
+            val merged =
+                linkedMapOf(
+                    "servers" to servers.takeIf { it.isNotEmpty() }?.let { arrayNode(it) },
+                    "security" to security.takeIf { it.isNotEmpty() }?.let { arrayNode(it) },
+                    "tags" to tags.takeIf { it.isNotEmpty() }?.let { arrayNode(it.toSortedMap().values) },
+                    "paths" to pathsNode(),
+                    "components" to componentsNode(),
+                )
+            first?.properties()?.forEach { (key, value) ->
+                if (key in merged) merged.remove(key)?.let { result.set<JsonNode>(key, it) } else result.set<JsonNode>(key, value)
+            }
+            merged.forEach { (key, value) -> if (value != null) result.set<JsonNode>(key, value) }
+            return result
+        }
+
+        private fun pathsNode(): ObjectNode =
+            Json.mapper().createObjectNode().also { node ->
+                PathIndex.sortPaths(paths.keys).forEach { path ->
+                    val pathItem = Json.mapper().createObjectNode()
+                    paths
+                        .getValue(path)
+                        .entries
+                        .sortedBy { (key, _) -> pathItemKeyRank(key) }
+                        .forEach { (key, value) -> pathItem.set<JsonNode>(key, value) }
+                    node.set<JsonNode>(path, pathItem)
+                }
+            }
+
+        private fun componentsNode(): ObjectNode? =
+            components
+                .filterValues { it.isNotEmpty() }
+                .takeIf { it.isNotEmpty() }
+                ?.let { componentsByType ->
+                    Json.mapper().createObjectNode().also { node ->
+                        componentsByType.keys
+                            .sortedWith(compareBy<String> { componentTypeRank(it) }.thenBy { it })
+                            .forEach { type ->
+                                val typeNode = Json.mapper().createObjectNode()
+                                componentsByType
+                                    .getValue(type)
+                                    .toSortedMap()
+                                    .forEach { (name, value) -> typeNode.set<JsonNode>(name, value) }
+                                node.set<JsonNode>(type, typeNode)
+                            }
+                    }
+                }
+
+        private fun componentTypeRank(type: String): Int = COMPONENT_TYPES.indexOf(type).let { if (it < 0) COMPONENT_TYPES.size else it }
+
+        /**
+         * Summary and description first, then the operations in their usual order, then the other fields in their original order.
+         */
+        private fun pathItemKeyRank(key: String): Int =
+            when (key) {
+                "summary" -> 0
+                "description" -> 1
+                in OPERATION_KEYS -> 2 + OPERATION_KEYS.indexOf(key)
+                else -> 2 + OPERATION_KEYS.size
+            }
+
+        /**
+         * Merges the components of one specification - a component is merged after the components it references,
+         * so its references are already rewritten when its content is compared.
+         */
+        private inner class ComponentMerge(
+            private val index: Int,
+            private val specificationComponents: ObjectNode?,
+        ) {
+            /**
+             * The renamed references of this specification - by their original reference.
+             */
+            private val renames = HashMap<String, String>()
+            private val merging = HashSet<String>()
+            private val merged = HashSet<String>()
+
+            /**
+             * References to components on a reference cycle - only rewritten after all components are merged.
+             */
+            private val cyclicReferences = ArrayList<Pair<ObjectNode, String>>()
+            private val added = ArrayList<Pair<String, String>>()
+
+            fun merge(): Map<String, String> {
+                specificationComponents?.properties()?.forEach { (type, componentsOfType) ->
+                    componentsOfType.properties().forEach { (name, _) -> merge(type, name) }
+                }
+                cyclicReferences.forEach { (holder, ref) -> renames[ref]?.let { holder.put(REF, it) } }
+                // indexed after the cyclic references are rewritten - rewriting them changes the hash codes
+                added.filter { (type, _) -> type != SECURITY_SCHEMES }.forEach { (type, name) ->
+                    componentNamesByContent.getOrPut(type) { HashMap() }.putIfAbsent(components.getValue(type).getValue(name), name)
+                }
+                return renames
+            }
+
+            private fun merge(ref: String) {
+                val typeAndName = ref.removePrefix(COMPONENTS_REF_PREFIX).split('/', limit = 2)
+                if (ref.startsWith(COMPONENTS_REF_PREFIX) && typeAndName.size == 2) merge(typeAndName[0], typeAndName[1])
+            }
+
+            private fun merge(
+                type: String,
+                name: String,
+            ) {
+                val ref = "$COMPONENTS_REF_PREFIX$type/$name"
+                val component = specificationComponents?.get(type)?.get(name) ?: return
+                if (ref in merged || !merging.add(ref)) return
+                rewriteRefs(component) { holder, target ->
+                    if (target in merging) {
+                        cyclicReferences += holder to target
+                    } else {
+                        merge(target)
+                        renames[target]?.let { holder.put(REF, it) }
+                    }
+                }
+                mergeComponent(type, name, component)
+                merging.remove(ref)
+                merged += ref
+            }
+
+            private fun mergeComponent(
+                type: String,
+                name: String,
+                component: JsonNode,
+            ) {
+                val componentsOfType = components.getOrPut(type) { HashMap() }
+                val existing = componentsOfType[name]
+                if (existing == component) return
+                if (type == SECURITY_SCHEMES) {
+                    mergeSecurityScheme(name, component, existing)
+                    return
+                }
+                val nameOfEqualComponent = componentNamesByContent[type]?.get(component)
+                when {
+                    nameOfEqualComponent != null -> rename(type, name, nameOfEqualComponent)
+                    existing == null -> add(type, name, component)
+                    else -> {
+                        val uniqueName = generateSequence(2) { it + 1 }.map { "$name-$it" }.first { it !in componentsOfType }
+                        add(type, uniqueName, component)
+                        rename(type, name, uniqueName)
+                        conflicts +=
+                            MergeConflict(
+                                index,
+                                "/components/$type/$name",
+                                "Differs from the component of a previous specification - renamed to '$uniqueName'",
+                            )
+                    }
+                }
+            }
+
+            /**
+             * Security schemes are neither deduplicated by content nor renamed - see [SECURITY_SCHEMES].
+             */
+            private fun mergeSecurityScheme(
+                name: String,
+                component: JsonNode,
+                existing: JsonNode?,
+            ) {
+                if (existing == null) {
+                    add(SECURITY_SCHEMES, name, component)
+                } else {
+                    conflicts +=
+                        MergeConflict(
+                            index,
+                            "/components/$SECURITY_SCHEMES/$name",
+                            "Differs from the security scheme of a previous specification - the first one is kept",
+                        )
+                }
+            }
+
+            private fun add(
+                type: String,
+                name: String,
+                component: JsonNode,
+            ) {
+                components.getValue(type)[name] = component
+                added += type to name
+            }
+
+            private fun rename(
+                type: String,
+                name: String,
+                newName: String,
+            ) {
+                if (name != newName) renames["$COMPONENTS_REF_PREFIX$type/$name"] = "$COMPONENTS_REF_PREFIX$type/$newName"
+            }
+        }
+    }
+
+    private fun rewriteRefs(
+        node: JsonNode,
+        rewrite: (holder: ObjectNode, ref: String) -> Unit,
+    ) {
+        if (node is ObjectNode) {
+            node[REF]?.takeIf { it.isTextual }?.let { rewrite(node, it.asText()) }
+        }
+        if (node.isContainerNode) node.forEach { rewriteRefs(it, rewrite) }
+    }
+
+    /**
+     * Orders the fields by name - e.g. the responses by status, so they do not depend on the order of the specifications.
+     */
+    private fun sortFields(node: ObjectNode) {
+        val fields = node.properties().associateTo(sortedMapOf<String, JsonNode>()) { (key, value) -> key to value }
+        node.removeAll()
+        node.setAll<JsonNode>(fields)
+    }
+
+    private fun arrayNode(values: Collection<JsonNode>) = Json.mapper().createArrayNode().addAll(values)
+
+    private fun escape(path: String) = path.replace("~", "~0").replace("/", "~1")
+}
+
+/**
+ * @param specification the index of the specification the conflict was found in
+ * @param pointer the JSON pointer of the conflicting node in this specification
+ */
+data class MergeConflict(
+    val specification: Int,
+    val pointer: String,
+    val message: String,
+) {
+    override fun toString() = "Specification ${specification + 1} $pointer: $message"
+}
+
+class MergeResult<T>(
+    val specification: T,
+    val conflicts: List<MergeConflict>,
+)
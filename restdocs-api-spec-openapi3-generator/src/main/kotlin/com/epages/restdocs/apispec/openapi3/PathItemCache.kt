@@ -0,0 +1,184 @@
+package com.epages.restdocs.apispec.openapi3
+
+import com.epages.restdocs.apispec.model.ResourceModel
+import com.fasterxml.jackson.module.kotlin.convertValue
+import com.fasterxml.jackson.module.kotlin.jacksonObjectMapper
+import io.swagger.v3.core.util.Json
+import io.swagger.v3.oas.models.PathItem
+import io.swagger.v3.oas.models.media.MediaType
+import java.io.File
+import java.io.IOException
+import java.security.MessageDigest
+import java.util.HexFormat
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Caches the [PathItem]s generated for the resource models with the same path.
+ *
+ * Only path items whose resource models changed are generated again - the definitions are still extracted from all path items.
+ */
+fun interface PathItemCache {
+    /**
+     * @param settings the generator settings affecting the path item - a cached path item is only used for the same settings
+     */
+    fun getOrPut(
+        modelsWithSamePath: List<ResourceModel>,
+        settings: PathItemSettings,
+        generate: () -> PathItem,
+    ): PathItem
+
+    companion object {
+        @JvmField
+        val NONE = PathItemCache { _, _, generate -> generate() }
+    }
+}
+
+/**
+ * The generator settings a path item is generated with - besides the resource models of its path.
+ * Part of the fingerprint of a cached path item, so they must be serializable with Jackson.
+ */
+data class PathItemSettings(
+    val exampleSelectionPolicy: ExampleSelectionPolicy = ExampleSelectionPolicy(),
+    /**
+     * The names of the custom security schemes - their extractors add security requirements to the operations.
+     */
+    val securitySchemes: List<String> = emptyList(),
+)
+
+/**
+ * Persists the generated [PathItem]s in the given directory - keyed by a fingerprint of the resource models they are generated from.
+ */
+class DirectoryPathItemCache(
+    private val directory: File,
+) : SerializingPathItemCache() {
+    override fun read(fingerprint: String): String? =
+        try {
+            File(directory, "$fingerprint.json").takeIf { it.isFile }?.readText()
+        } catch (_: IOException) {
+            null
+        }
+
+    override fun write(
+        fingerprint: String,
+        entry: String,
+    ) {
+        directory.mkdirs()
+        File(directory, "$fingerprint.json").writeText(entry)
+    }
+
+    override fun removeEntries(usedFingerprints: Set<String>) {
+        directory
+            .listFiles { file -> file.extension == "json" && file.nameWithoutExtension !in usedFingerprints }
+            ?.forEach { it.delete() }
+    }
+}
+
+/**
+ * Keeps the generated [PathItem]s in memory - for processes generating the specification again and again, e.g. a dev server.
+ *
+ * Thread safe.
+ */
+class MemoryPathItemCache : SerializingPathItemCache() {
+    private val entries = ConcurrentHashMap<String, String>()
+
+    override fun read(fingerprint: String): String? = entries[fingerprint]
+
+    override fun write(
+        fingerprint: String,
+        entry: String,
+    ) {
+        entries[fingerprint] = entry
+    }
+
+    override fun removeEntries(usedFingerprints: Set<String>) {
+        entries.keys.retainAll(usedFingerprints)
+    }
+}
+
+/**
+ * Stores the generated [PathItem]s serialized - the generator modifies the path items it gets, so they cannot be shared.
+ */
+abstract class SerializingPathItemCache : PathItemCache {
+    private val usedFingerprints = ConcurrentHashMap.newKeySet<String>()
+
+    protected abstract fun read(fingerprint: String): String?
+
+    protected abstract fun write(
+        fingerprint: String,
+        entry: String,
+    )
+
+    protected abstract fun removeEntries(usedFingerprints: Set<String>)
+
+    override fun getOrPut(
+        modelsWithSamePath: List<ResourceModel>,
+        settings: PathItemSettings,
+        generate: () -> PathItem,
+    ): PathItem {
+        val fingerprint = fingerprint(modelsWithSamePath, settings)
+        usedFingerprints += fingerprint
+        return read(fingerprint)?.let { deserialize(it) } ?: generate().also { write(fingerprint, serialize(it)) }
+    }
+
+    /**
+     * Deletes the path items that were not used since this cache was created or since this method was last called
+     * - i.e. the path items of changed or removed resources.
+     */
+    fun removeUnusedEntries() {
+        removeEntries(usedFingerprints.toSet())
+        usedFingerprints.clear()
+    }
+
+    private fun deserialize(entry: String): PathItem? =
+        try {
+            val node = Json.mapper().readTree(entry)
+            val schemaNames = objectMapper.convertValue<Map<String, String>>(node[SCHEMA_NAMES])
+            Json.mapper().treeToValue(node[PATH_ITEM], PathItem::class.java).apply {
+                mediaTypes().forEach { (key, mediaType) -> schemaNames[key]?.let { mediaType.schema?.name = it } }
+            }
+        } catch (_: IOException) {
+            null // unreadable entries are generated again
+        }
+
+    /**
+     * The schema names are not serialized - but are needed to extract the definitions. So we store them next to the path item.
+     */
+    private fun serialize(pathItem: PathItem): String {
+        val schemaNames = pathItem.mediaTypes().mapNotNull { (key, mediaType) -> mediaType.schema?.name?.let { key to it } }.toMap()
+        return Json.mapper().writeValueAsString(mapOf(SCHEMA_NAMES to schemaNames, PATH_ITEM to pathItem))
+    }
+
+    private fun PathItem.mediaTypes(): Sequence<Pair<String, MediaType>> =
+        readOperationsMap().asSequence().flatMap { (method, operation) ->
+            val requestMediaTypes = operation.requestBody?.content.orEmpty().map { "$method request ${it.key}" to it.value }
+            val responseMediaTypes =
+                operation.responses.orEmpty().flatMap { (status, response) ->
+                    response.content.orEmpty().map { "$method $status ${it.key}" to it.value }
+                }
+            requestMediaTypes + responseMediaTypes
+        }
+
+    companion object {
+        /**
+         * Part of the fingerprint - must be changed whenever the generated path items change for the same resource models.
+         */
+        private const val CACHE_VERSION = "1"
+        private const val SCHEMA_NAMES = "schemaNames"
+        private const val PATH_ITEM = "pathItem"
+
+        private val objectMapper = jacksonObjectMapper()
+
+        private fun fingerprint(
+            modelsWithSamePath: List<ResourceModel>,
+            settings: PathItemSettings,
+        ): String =
+            MessageDigest
+                .getInstance("SHA-256")
+                .apply {
+                    update(CACHE_VERSION.toByteArray())
+                    update(objectMapper.writeValueAsBytes(settings))
+                    update(objectMapper.writeValueAsBytes(modelsWithSamePath))
+                }.digest()
+                .let { HexFormat.of().formatHex(it) }
+    }
+}
@@ -0,0 +1,44 @@
+package com.epages.restdocs.apispec.openapi3
+
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl
+import com.fasterxml.jackson.databind.JsonSerializable
+import com.fasterxml.jackson.databind.SerializerProvider
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer
+import io.swagger.v3.core.util.Json
+
+/**
+ * An example value given as JSON text - see [com.epages.restdocs.apispec.model.RequestModel.rawExample].
+ *
+ * JSON specifications get the text as raw value - without parsing and escaping it.
+ * Other generators - like YAML or the token buffers of the split specifications - get the tokens of the parsed text.
+ */
+internal class RawJsonValue(
+    private val json: String,
+) : JsonSerializable.Base() {
+    override fun serialize(
+        gen: JsonGenerator,
+        serializers: SerializerProvider,
+    ) {
+        if (gen is JsonGeneratorImpl) {
+            gen.writeRawValue(json)
+        } else {
+            Json.mapper().createParser(json).use { parser ->
+                parser.nextToken()
+                gen.copyCurrentStructure(parser)
+            }
+        }
+    }
+
+    override fun serializeWithType(
+        gen: JsonGenerator,
+        serializers: SerializerProvider,
+        typeSer: TypeSerializer,
+    ) = serialize(gen, serializers)
+
+    override fun equals(other: Any?) = other is RawJsonValue && other.json == json
+
+    override fun hashCode() = json.hashCode()
+
+    override fun toString() = json
+}
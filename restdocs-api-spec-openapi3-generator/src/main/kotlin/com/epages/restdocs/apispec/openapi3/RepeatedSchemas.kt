@@ -0,0 +1,119 @@
+package com.epages.restdocs.apispec.openapi3
+
+import io.swagger.v3.oas.models.media.Schema
+
+/**
+ * Extracts nested object schemas occurring more than once into the components - each occurrence is replaced by a reference.
+ *
+ * Structurally equal schemas are looked up by their equality - so each distinct structure is kept once.
+ * Nested schemas equal to a component are replaced by a reference to it regardless of their size.
+ *
+ * @param minSize the minimum number of schemas - the object itself and all nested ones - a repeated object needs to be extracted
+ */
+internal class RepeatedSchemas(
+    private val minSize: Int,
+    private val refPrefix: String,
+) {
+    init {
+        require(minSize > 0) { "repeatedSchemaMinSize must be positive" }
+    }
+
+    private val occurrences = HashMap<Schema<*>, Occurrence>()
+    private val names = HashMap<Schema<*>, String>()
+    private val extracted = LinkedHashMap<String, Schema<Any>>()
+    private val replacements = ArrayList<() -> Unit>()
+
+    /**
+     * The schemas are not modified until all occurrences are looked up - modifying them changes their hash code.
+     *
+     * @return the components with the extracted schemas added
+     */
+    fun extract(components: Map<String, Schema<Any>>): Map<String, Schema<Any>> {
+        components.forEach { (name, schema) ->
+            if (schema.isObject()) names.putIfAbsent(schema, name)
+            schema.children().forEach { count(it) }
+        }
+        components.values.forEach { replaceChildren(it, components.keys) }
+        replacements.forEach { it() }
+        return components + extracted
+    }
+
+    /**
+     * Nested schemas of a repeated schema are only counted at its first occurrence - all occurrences end up in a single component.
+     *
+     * @return the size of the schema
+     */
+    private fun count(schema: Schema<*>): Int {
+        if (schema.`$ref` != null) return 1
+        if (!schema.isObject()) return 1 + schema.children().sumOf { count(it) }
+        occurrences[schema]?.let {
+            it.count++
+            return it.size
+        }
+        val occurrence = Occurrence().also { occurrences[schema] = it }
+        occurrence.size = 1 + schema.children().sumOf { count(it) }
+        return occurrence.size
+    }
+
+    private fun replaceChildren(
+        schema: Schema<*>,
+        componentNames: Set<String>,
+    ) {
+        @Suppress("UNCHECKED_CAST")
+        val properties = schema.properties as MutableMap<String, Schema<*>>?
+        properties?.forEach { (name, property) ->
+            reference(property, name, componentNames)?.let { replacements += { properties[name] = it } }
+        }
+        schema.items?.let { items ->
+            reference(items, "item", componentNames)?.let { replacements += { schema.items = it } }
+        }
+        (schema.additionalProperties as? Schema<*>)?.let { additionalProperties ->
+            reference(additionalProperties, "value", componentNames)?.let { replacements += { schema.additionalProperties = it } }
+        }
+    }
+
+    /**
+     * @return the reference replacing the schema - null if the schema is kept
+     */
+    private fun reference(
+        schema: Schema<*>,
+        name: String,
+        componentNames: Set<String>,
+    ): Schema<Any>? {
+        if (schema.`$ref` != null) return null
+        if (schema.isObject()) {
+            names[schema]?.let { return ref(it) }
+            val occurrence = occurrences.getValue(schema)
+            if (occurrence.count > 1 && occurrence.size >= minSize) {
+                val componentName = uniqueName(schema.title ?: name, componentNames)
+                names[schema] = componentName
+                @Suppress("UNCHECKED_CAST")
+                extracted[componentName] = schema as Schema<Any>
+                replaceChildren(schema, componentNames)
+                return ref(componentName)
+            }
+        }
+        replaceChildren(schema, componentNames)
+        return null
+    }
+
+    private fun uniqueName(
+        name: String,
+        componentNames: Set<String>,
+    ): String {
+        val isTaken = { candidate: String -> candidate in componentNames || candidate in extracted }
+        return if (!isTaken(name)) name else generateSequence(2) { it + 1 }.map { "$name-$it" }.first { !isTaken(it) }
+    }
+
+    private fun ref(name: String): Schema<Any> = Schema<Any>().apply { `$ref`("$refPrefix$name") }
+
+    private fun Schema<*>.isObject() = properties != null && `$ref` == null
+
+    private fun Schema<*>.children(): List<Schema<*>> =
+        properties?.values.orEmpty().filterNotNull() + listOfNotNull(items, additionalProperties as? Schema<*>)
+
+    private class Occurrence {
+        var count = 1
+        var size = 0
+    }
+}
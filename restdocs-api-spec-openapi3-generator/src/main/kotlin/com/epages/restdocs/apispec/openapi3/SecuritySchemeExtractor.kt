@@ -0,0 +1,29 @@
+package com.epages.restdocs.apispec.openapi3
+
+import com.epages.restdocs.apispec.model.ResourceModel
+import io.swagger.v3.oas.models.security.SecurityScheme
+
+/**
+ * Adds a security scheme to the generated specifications - e.g. an API key in a custom header or mutual TLS,
+ * which the security requirements of the resource models cannot express.
+ *
+ * The operations requiring the scheme are recorded in the same index as those requiring the built-in schemes -
+ * so the scheme is only defined in specifications containing such an operation.
+ */
+interface SecuritySchemeExtractor {
+    /**
+     * The name of the scheme in the security requirements and in the components of the specification.
+     */
+    val name: String
+
+    /**
+     * @param modelsWithSamePathAndMethod the resource models the operation is generated from
+     * @return the scopes the operation requires - empty for schemes without scopes, null if the operation does not require the scheme
+     */
+    fun requiredScopes(modelsWithSamePathAndMethod: List<ResourceModel>): List<String>?
+
+    /**
+     * @param scopes the scopes required by the operations of the specification
+     */
+    fun securityScheme(scopes: Set<String>): SecurityScheme
+}
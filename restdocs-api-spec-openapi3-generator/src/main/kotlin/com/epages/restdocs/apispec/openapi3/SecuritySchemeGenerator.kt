@@ -1,7 +1,8 @@
 package com.epages.restdocs.apispec.openapi3
 
 import com.epages.restdocs.apispec.model.Oauth2Configuration
-import com.epages.restdocs.apispec.model.SecurityRequirements
+import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.SecurityIndex
 import com.epages.restdocs.apispec.model.SecurityType
 import io.swagger.v3.oas.models.OpenAPI
 import io.swagger.v3.oas.models.Operation
@@ -12,12 +13,37 @@ import io.swagger.v3.oas.models.security.SecurityRequirement
 import io.swagger.v3.oas.models.security.SecurityScheme
 
 internal object SecuritySchemeGenerator {
-    private const val API_KEY_SECURITY_NAME = "api_key"
-    private const val BASIC_SECURITY_NAME = "basic"
-    private const val JWT_BEARER_SECURITY_NAME = "bearerAuthJWT"
     private const val OAUTH2_SECURITY_NAME = "oauth2"
 
-    fun OpenAPI.addSecurityDefinitions(oauth2SecuritySchemeDefinition: Oauth2Configuration?) {
+    /**
+     * The schemes of the security types without scopes - extracted like custom schemes.
+     */
+    private val BUILT_IN_SCHEMES =
+        listOf(
+            BuiltInScheme("basic", SecurityType.BASIC) {
+                type = SecurityScheme.Type.HTTP
+                scheme = "basic"
+            },
+            BuiltInScheme("api_key", SecurityType.API_KEY) {
+                type = SecurityScheme.Type.APIKEY
+                `in` = SecurityScheme.In.HEADER
+                name = "Authorization"
+            },
+            BuiltInScheme("bearerAuthJWT", SecurityType.JWT_BEARER) {
+                type = SecurityScheme.Type.HTTP
+                scheme = "bearer"
+                bearerFormat = "JWT"
+            },
+        )
+
+    /**
+     * @param securityIndex the schemes required by the operations of this specification
+     */
+    fun OpenAPI.addSecurityDefinitions(
+        oauth2SecuritySchemeDefinition: Oauth2Configuration?,
+        securityIndex: SecurityIndex,
+        securitySchemeExtractors: List<SecuritySchemeExtractor>,
+    ) {
         if (oauth2SecuritySchemeDefinition?.flows?.isNotEmpty() == true) {
             val flows = OAuthFlows()
             components.addSecuritySchemes(
@@ -27,10 +53,9 @@ internal object SecuritySchemeGenerator {
                     this.flows = flows
                 },
             )
+            val scopeAndDescriptions = oauth2SecuritySchemeDefinition.scopes
+            val allScopes = securityIndex.scopes(OAUTH2_SECURITY_NAME)
             oauth2SecuritySchemeDefinition.flows.forEach { flow ->
-                val scopeAndDescriptions = oauth2SecuritySchemeDefinition.scopes
-                val allScopes = collectScopesFromOperations()
-
                 when (flow) {
                     "authorizationCode" ->
                         flows.authorizationCode(
@@ -61,61 +86,35 @@ internal object SecuritySchemeGenerator {
                 }
             }
         }
-        if (hasAnyOperationWithSecurityName(this, BASIC_SECURITY_NAME)) {
-            components.addSecuritySchemes(
-                BASIC_SECURITY_NAME,
-                SecurityScheme().apply {
-                    type = SecurityScheme.Type.HTTP
-                    scheme = "basic"
-                },
-            )
-        }
-
-        if (hasAnyOperationWithSecurityName(this, API_KEY_SECURITY_NAME)) {
-            components.addSecuritySchemes(
-                API_KEY_SECURITY_NAME,
-                SecurityScheme().apply {
-                    type = SecurityScheme.Type.APIKEY
-                    `in` = SecurityScheme.In.HEADER
-                    name = "Authorization"
-                },
-            )
-        }
 
-        if (hasAnyOperationWithSecurityName(this, JWT_BEARER_SECURITY_NAME)) {
-            components.addSecuritySchemes(
-                JWT_BEARER_SECURITY_NAME,
-                SecurityScheme().apply {
-                    type = SecurityScheme.Type.HTTP
-                    scheme = "bearer"
-                    bearerFormat = "JWT"
-                },
-            )
-        }
+        (BUILT_IN_SCHEMES + securitySchemeExtractors)
+            .filter { securityIndex.requires(it.name) }
+            .forEach { components.addSecuritySchemes(it.name, it.securityScheme(securityIndex.scopes(it.name))) }
     }
 
-    fun Operation.addSecurityItemFromSecurityRequirements(securityRequirements: SecurityRequirements?) {
-        if (securityRequirements != null) {
-            when (securityRequirements.type) {
-                SecurityType.OAUTH2 ->
-                    addSecurityItem(
-                        SecurityRequirement().addList(OAUTH2_SECURITY_NAME, securityRequirements2ScopesList(securityRequirements)),
-                    )
-                SecurityType.BASIC -> addSecurityItem(SecurityRequirement().addList(BASIC_SECURITY_NAME))
-                SecurityType.API_KEY -> addSecurityItem(SecurityRequirement().addList(API_KEY_SECURITY_NAME))
-                SecurityType.JWT_BEARER -> addSecurityItem(SecurityRequirement().addList(JWT_BEARER_SECURITY_NAME))
-            }
+    fun Operation.addSecurityItems(
+        modelsWithSamePathAndMethod: List<ResourceModel>,
+        securitySchemeExtractors: List<SecuritySchemeExtractor>,
+    ) {
+        val securityRequirements = modelsWithSamePathAndMethod.first().request.securityRequirements
+        if (securityRequirements?.type == SecurityType.OAUTH2) {
+            addSecurityItem(SecurityRequirement().addList(OAUTH2_SECURITY_NAME, securityRequirements.requiredScopes.orEmpty()))
+        }
+        (BUILT_IN_SCHEMES + securitySchemeExtractors).forEach { extractor ->
+            extractor
+                .requiredScopes(modelsWithSamePathAndMethod)
+                ?.let { addSecurityItem(SecurityRequirement().addList(extractor.name, it)) }
         }
     }
 
-    private fun securityRequirements2ScopesList(securityRequirements: SecurityRequirements): List<String> =
-        if (securityRequirements.type == SecurityType.OAUTH2 &&
-            securityRequirements.requiredScopes != null
-        ) {
-            securityRequirements.requiredScopes!!
-        } else {
-            listOf()
+    /**
+     * Records the schemes the operation requires.
+     */
+    fun SecurityIndex.addRequirements(operation: Operation) {
+        operation.security?.forEach { requirement ->
+            requirement.forEach { (schemeName, scopes) -> add(schemeName, scopes) }
         }
+    }
 
     private fun OAuthFlow.scopes(
         scopes: Set<String>,
@@ -128,27 +127,14 @@ internal object SecuritySchemeGenerator {
         }.also { this.scopes(it) }
         .let { this }
 
-    private fun hasAnyOperationWithSecurityName(
-        openApi: OpenAPI,
-        name: String,
-    ) = openApi.paths
-        .flatMap { it.value.readOperations() }
-        .mapNotNull { it.security }
-        .flatMap { it }
-        .flatMap { it.keys }
-        .any { it == name }
+    private class BuiltInScheme(
+        override val name: String,
+        private val securityType: SecurityType,
+        private val configure: SecurityScheme.() -> Unit,
+    ) : SecuritySchemeExtractor {
+        override fun requiredScopes(modelsWithSamePathAndMethod: List<ResourceModel>): List<String>? =
+            if (modelsWithSamePathAndMethod.first().request.securityRequirements?.type == securityType) emptyList() else null
 
-    private fun OpenAPI.collectScopesFromOperations(): Set<String> =
-        paths
-            .flatMap { path ->
-                path.value
-                    .readOperations()
-                    .flatMap { operation ->
-                        operation
-                            ?.security
-                            ?.filter { s -> s.filterKeys { it.startsWith("oauth2") }.isNotEmpty() }
-                            ?.flatMap { oauthSecurity -> oauthSecurity.values.flatMap { it } }
-                            ?: listOf()
-                    }
-            }.toSet()
+        override fun securityScheme(scopes: Set<String>): SecurityScheme = SecurityScheme().apply(configure)
+    }
 }
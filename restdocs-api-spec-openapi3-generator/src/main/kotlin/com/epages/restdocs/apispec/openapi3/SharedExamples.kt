@@ -0,0 +1,53 @@
+package com.epages.restdocs.apispec.openapi3
+
+import com.epages.restdocs.apispec.model.ExampleStore
+import io.swagger.v3.oas.models.PathItem
+import io.swagger.v3.oas.models.examples.Example
+import java.util.TreeMap
+
+/**
+ * Examples stored in the [ExampleStore] are added to the components once - and referenced by all operations using them.
+ *
+ * The examples are loaded when first referenced - so only the examples of the resources visited so far are held in memory.
+ * Only the examples the path items reference are added to the components - not those the [ExampleSelectionPolicy] dropped.
+ */
+internal class SharedExamples(
+    private val exampleStore: ExampleStore,
+) {
+    private val examples = HashMap<String, Example?>()
+    private val referenced = HashSet<String>()
+
+    /**
+     * @return the referenced example - or null if it is not contained in the [ExampleStore]
+     */
+    operator fun get(ref: String): Example? =
+        if (examples.containsKey(ref)) {
+            examples[ref]
+        } else {
+            exampleStore.load(ref)?.let { Example().apply { value(it) } }.also { examples[ref] = it }
+        }
+
+    /**
+     * Adds the examples referenced by the operations of the path item to the components - also if it was taken from a cache.
+     */
+    fun addReferences(pathItem: PathItem) {
+        pathItem.readOperations().forEach { operation ->
+            val contents = listOfNotNull(operation.requestBody?.content) + operation.responses.orEmpty().values.mapNotNull { it.content }
+            contents.flatMap { it.values }.forEach { mediaType ->
+                mediaType.examples?.values?.forEach { example ->
+                    example.`$ref`?.takeIf { it.startsWith(EXAMPLE_REF_PREFIX) }?.let { referenced += it.removePrefix(EXAMPLE_REF_PREFIX) }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the resolved and referenced examples sorted by their reference
+     */
+    fun components(): Map<String, Example> =
+        referenced.mapNotNull { ref -> examples[ref]?.let { ref to it } }.toMap(TreeMap())
+
+    companion object {
+        private const val EXAMPLE_REF_PREFIX = "#/components/examples/"
+    }
+}
@@ -0,0 +1,102 @@
+package com.epages.restdocs.apispec.openapi3
+
+import com.epages.restdocs.apispec.model.StreamingYamlGenerator
+import com.fasterxml.jackson.databind.JsonNode
+import com.fasterxml.jackson.databind.node.ObjectNode
+import io.swagger.v3.core.util.Json
+import io.swagger.v3.core.util.Yaml
+import io.swagger.v3.oas.models.OpenAPI
+import java.nio.file.Path
+
+/**
+ * Serializes a specification into a main file, one file per path and one file per schema and example component.
+ *
+ * The parts are placed in a directory named like the main file and connected by relative `$ref`s.
+ */
+internal object SplitApiSpecificationWriter {
+    private const val REF = "\$ref"
+    private const val LOCAL_COMPONENT_REF_PREFIX = "#/components/"
+    private val SPLIT_COMPONENT_TYPES = listOf("schemas", "examples")
+    private val UNSAFE_FILE_NAME_CHARACTERS = "[^A-Za-z0-9._-]".toRegex()
+
+    /**
+     * @return the content of the files by their path relative to the main file - the main file comes first
+     */
+    fun serialize(
+        format: String,
+        name: String,
+        openApi: OpenAPI,
+        streamingYaml: Boolean = false,
+    ): Map<String, String> {
+        ApiSpecificationWriter.validateFormat(format)
+        val root = Json.mapper().valueToTree<ObjectNode>(openApi)
+
+        val parts = LinkedHashMap<String, JsonNode>()
+        val componentFiles = HashMap<String, String>()
+        val components = root["components"] as? ObjectNode
+        SPLIT_COMPONENT_TYPES.forEach { type ->
+            val componentsOfType = components?.get(type) as? ObjectNode ?: return@forEach
+            val fileNames = UniqueFileNames()
+            componentsOfType.properties().forEach { (componentName, component) ->
+                val file = "components/$type/${fileNames.next(componentName)}.$format"
+                componentFiles["$LOCAL_COMPONENT_REF_PREFIX$type/$componentName"] = file
+                parts[file] = component
+                componentsOfType.replace(componentName, reference("$name/$file"))
+            }
+        }
+
+        val paths = root["paths"] as? ObjectNode
+        val pathFileNames = UniqueFileNames()
+        paths?.properties()?.forEach { (path, pathItem) ->
+            val file = "paths/${pathFileNames.next(path.trim('/').ifEmpty { "root" })}.$format"
+            parts[file] = pathItem
+            paths.replace(path, reference("$name/$file"))
+        }
+
+        parts.forEach { (file, part) -> relativizeComponentRefs(part, Path.of(file).parent, componentFiles) }
+
+        return linkedMapOf("$name.$format" to write(format, root, streamingYaml)) +
+            parts.map { (file, part) -> "$name/$file" to write(format, part, streamingYaml) }
+    }
+
+    private fun relativizeComponentRefs(
+        node: JsonNode,
+        directory: Path,
+        componentFiles: Map<String, String>,
+    ) {
+        if (node is ObjectNode) {
+            node[REF]
+                ?.takeIf { it.isTextual }
+                ?.let { componentFiles[it.asText()] }
+                ?.let { node.put(REF, directory.relativize(Path.of(it)).joinToString("/")) }
+        }
+        node.forEach { relativizeComponentRefs(it, directory, componentFiles) }
+    }
+
+    private fun reference(ref: String): ObjectNode = Json.mapper().createObjectNode().put(REF, ref)
+
+    private fun write(
+        format: String,
+        node: JsonNode,
+        streamingYaml: Boolean,
+    ): String =
+        when {
+            format == "json" -> Json.pretty().writeValueAsString(node)
+            streamingYaml -> StreamingYamlGenerator.serialize(node, Json.mapper())
+            else -> Yaml.pretty().writeValueAsString(node)
+        }
+
+    /**
+     * Derives file names that are safe to use in references - and unique, even if the names only differ in unsafe characters.
+     */
+    private class UniqueFileNames {
+        private val usedFileNames = HashSet<String>()
+
+        fun next(name: String): String {
+            val fileName = name.replace("/", "-").replace(UNSAFE_FILE_NAME_CHARACTERS, "").ifEmpty { "_" }
+            return generateSequence(1) { it + 1 }
+                .map { if (it == 1) fileName else "$fileName-$it" }
+                .first { usedFileNames.add(it) }
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.epages.restdocs.apispec.openapi3
 
 import com.epages.restdocs.apispec.model.Attributes
+import com.epages.restdocs.apispec.model.Audience
 import com.epages.restdocs.apispec.model.Constraint
+import com.epages.restdocs.apispec.model.ExampleStore
 import com.epages.restdocs.apispec.model.FieldDescriptor
 import com.epages.restdocs.apispec.model.HTTPMethod
 import com.epages.restdocs.apispec.model.HeaderDescriptor
 import com.epages.restdocs.apispec.model.Oauth2Configuration
 import com.epages.restdocs.apispec.model.ParameterDescriptor
+import com.epages.restdocs.apispec.model.PathIndex
 import com.epages.restdocs.apispec.model.RequestModel
 import com.epages.restdocs.apispec.model.ResourceModel
+import com.epages.restdocs.apispec.model.ResourceReference
 import com.epages.restdocs.apispec.model.ResponseModel
 import com.epages.restdocs.apispec.model.Schema
+import com.epages.restdocs.apispec.model.SchemaNamingStrategy
 import com.epages.restdocs.apispec.model.SecurityRequirements
 import com.epages.restdocs.apispec.model.SecurityType
 import com.jayway.jsonpath.Configuration
@@ -18,12 +23,16 @@ import com.jayway.jsonpath.DocumentContext
 import com.jayway.jsonpath.JsonPath
 import com.jayway.jsonpath.Option
 import io.swagger.parser.OpenAPIParser
+import io.swagger.v3.core.util.Yaml
 import io.swagger.v3.oas.models.info.Contact
+import io.swagger.v3.oas.models.security.SecurityScheme
 import io.swagger.v3.oas.models.servers.Server
 import io.swagger.v3.parser.core.models.ParseOptions
 import org.assertj.core.api.BDDAssertions.then
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.assertThrows
+import org.junit.jupiter.api.io.TempDir
+import java.io.File
 
 class OpenApi3GeneratorTest {
     lateinit var resources: List<ResourceModel>
@@ -64,6 +73,37 @@ class OpenApi3GeneratorTest {
         thenJWTSecuritySchemesPresent()
     }
 
+    @Test
+    fun `should add security scheme of custom extractor`() {
+        givenGetProductResourceModel()
+
+        whenOpenApiObjectGenerated(
+            securitySchemeExtractors =
+                listOf(
+                    object : SecuritySchemeExtractor {
+                        override val name = "tenant"
+
+                        override fun requiredScopes(modelsWithSamePathAndMethod: List<ResourceModel>) = listOf("read")
+
+                        override fun securityScheme(scopes: Set<String>): SecurityScheme =
+                            SecurityScheme().apply {
+                                type = SecurityScheme.Type.APIKEY
+                                `in` = SecurityScheme.In.HEADER
+                                name = "X-Tenant"
+                                description = scopes.joinToString()
+                            }
+                    },
+                ),
+        )
+
+        then(openApiJsonPathContext.read<String>("components.securitySchemes.tenant.type")).isEqualTo("apiKey")
+        then(openApiJsonPathContext.read<String>("components.securitySchemes.tenant.description")).isEqualTo("read")
+        then(openApiJsonPathContext.read<List<List<String>>>("paths./products/{id}.get.security[*].tenant").flatMap { it })
+            .containsExactly("read")
+        thenOAuth2SecuritySchemesPresent()
+        thenOpenApiSpecIsValid()
+    }
+
     @Test
     fun `should convert single delete resource model to openapi`() {
         givenDeleteProductResourceModel()
@@ -126,6 +166,312 @@ class OpenApi3GeneratorTest {
         thenOpenApiSpecIsValid()
     }
 
+    @Test
+    fun `should reference shared examples from components`() {
+        givenResourcesWithSamePathAndContentType()
+        resources = resources.map { it.copy(response = it.response.copy(example = null, exampleRef = "some-ref")) }
+
+        whenOpenApiObjectGenerated(exampleStore = { ref -> if (ref == "some-ref") """{ "id": "some" }""" else null })
+
+        val productGetByIdPath = "paths./products/{id}.get"
+        then(openApiJsonPathContext.read<String>("$productGetByIdPath.responses.200.content.application/json.examples.test.\$ref"))
+            .isEqualTo("#/components/examples/some-ref")
+        then(openApiJsonPathContext.read<String>("$productGetByIdPath.responses.200.content.application/json.examples.test-1.\$ref"))
+            .isEqualTo("#/components/examples/some-ref")
+        then(openApiJsonPathContext.read<String>("components.examples.some-ref.value")).isEqualTo("""{ "id": "some" }""")
+
+        thenOpenApiSpecIsValid()
+    }
+
+    @Test
+    fun `should generate same specification from cached path items`(
+        @TempDir cacheDirectory: File,
+    ) {
+        givenPatchProductResourceModelWithCustomSchemaNames()
+        whenOpenApiObjectGenerated(pathItemCache = DirectoryPathItemCache(cacheDirectory))
+        val specificationWithoutCache = openApiSpecJsonString
+
+        whenOpenApiObjectGenerated(pathItemCache = DirectoryPathItemCache(cacheDirectory))
+
+        then(openApiSpecJsonString).isEqualTo(specificationWithoutCache)
+        then(openApiJsonPathContext.read<Any>("components.schemas.ProductResponse")).isNotNull()
+        then(cacheDirectory.listFiles()).hasSize(1)
+    }
+
+    @Test
+    fun `should regenerate path items of changed resources`(
+        @TempDir cacheDirectory: File,
+    ) {
+        givenPatchProductResourceModelWithCustomSchemaNames()
+        whenOpenApiObjectGenerated(pathItemCache = DirectoryPathItemCache(cacheDirectory))
+        resources = resources.map { it.copy(summary = "changed summary") }
+
+        val pathItemCache = DirectoryPathItemCache(cacheDirectory)
+        whenOpenApiObjectGenerated(pathItemCache = pathItemCache)
+        pathItemCache.removeUnusedEntries()
+
+        then(openApiJsonPathContext.read<String>("paths./products/{id}.patch.summary")).isEqualTo("changed summary")
+        then(cacheDirectory.listFiles()).hasSize(1)
+    }
+
+    @Test
+    fun `should generate same specification from path items cached in memory`() {
+        givenPatchProductResourceModelWithCustomSchemaNames()
+        val pathItemCache = MemoryPathItemCache()
+        whenOpenApiObjectGenerated(pathItemCache = pathItemCache)
+        val specificationWithoutCache = openApiSpecJsonString
+
+        whenOpenApiObjectGenerated(pathItemCache = pathItemCache)
+        then(openApiSpecJsonString).isEqualTo(specificationWithoutCache)
+
+        resources = resources.map { it.copy(summary = "changed summary") }
+        whenOpenApiObjectGenerated(pathItemCache = pathItemCache)
+        pathItemCache.removeUnusedEntries()
+        then(openApiJsonPathContext.read<String>("paths./products/{id}.patch.summary")).isEqualTo("changed summary")
+    }
+
+    @Test
+    fun `should write equivalent yaml with streaming writer`() {
+        givenPatchProductResourceModelWithCustomSchemaNames()
+
+        val specifications =
+            listOf(false, true).map { streamingYaml ->
+                OpenApi3Generator.generateAndSerialize(
+                    resources = resources,
+                    servers = listOf(Server().apply { url = "https://localhost/api" }),
+                    format = "yaml",
+                    streamingYaml = streamingYaml,
+                )
+            }
+
+        then(Yaml.mapper().readTree(specifications[1])).isEqualTo(Yaml.mapper().readTree(specifications[0]))
+        then(OpenAPIParser().readContents(specifications[1], emptyList(), ParseOptions()).messages).isEmpty()
+    }
+
+    @Test
+    fun `should split specification into files connected by relative references`() {
+        givenPatchProductResourceModelWithCustomSchemaNames()
+
+        val files =
+            OpenApi3Generator.generateAndSerializeSplit(
+                pathIndex = PathIndex(resources),
+                servers = listOf(Server().apply { url = "https://localhost/api" }),
+                format = "json",
+                name = "openapi3",
+            )
+
+        then(files.keys).contains(
+            "openapi3.json",
+            "openapi3/paths/products-id.json",
+            "openapi3/components/schemas/ProductRequest.json",
+            "openapi3/components/schemas/ProductResponse.json",
+        )
+        val main = JsonPath.parse(files["openapi3.json"])
+        then(main.read<String>("paths./products/{id}.\$ref")).isEqualTo("openapi3/paths/products-id.json")
+        then(main.read<String>("components.schemas.ProductResponse.\$ref")).isEqualTo("openapi3/components/schemas/ProductResponse.json")
+        val pathItem = JsonPath.parse(files["openapi3/paths/products-id.json"])
+        then(pathItem.read<String>("patch.responses.200.content.application/json.schema.\$ref"))
+            .isEqualTo("../components/schemas/ProductResponse.json")
+    }
+
+    @Test
+    fun `should generate same specification from resource references`() {
+        givenResourcesWithSamePathAndContentType()
+        whenOpenApiObjectGenerated()
+        val specificationFromResources = openApiSpecJsonString
+        val resourcesByOperationId = resources.associateBy { it.operationId }
+        val references =
+            resources.map { ResourceReference(it.request.path, it.request.method, it.operationId, it.privateResource, it.operationId) }
+        val loadedOperationIds = mutableListOf<String>()
+
+        val specificationFromReferences =
+            OpenApi3Generator.generateAndSerialize(
+                pathIndex =
+                    PathIndex.ofReferences(references) {
+                        loadedOperationIds.add(it.location)
+                        resourcesByOperationId.getValue(it.location)
+                    },
+                servers = listOf(Server().apply { url = "https://localhost/api" }),
+                oauth2SecuritySchemeDefinition =
+                    Oauth2Configuration(
+                        "http://example.com/token",
+                        "http://example.com/authorize",
+                        arrayOf("clientCredentials", "authorizationCode"),
+                    ),
+                format = "json",
+                description = "API Description",
+                tagDescriptions = mapOf("tag1" to "tag1 description", "tag2" to "tag2 description"),
+                contact = Contact().apply { name = "Test Contact" },
+            )
+
+        then(specificationFromReferences).isEqualTo(specificationFromResources)
+        then(loadedOperationIds).containsExactlyInAnyOrderElementsOf(resourcesByOperationId.keys)
+    }
+
+    @Test
+    fun `should generate specifications of audiences in a single pass`() {
+        givenResourcesWithSamePathAndContentType()
+        resources =
+            listOf(
+                resources[0].copy(response = resources[0].response.copy(example = """{"id":1}""")),
+                resources[1].copy(
+                    privateResource = true,
+                    audiences = setOf("partner"),
+                    response = resources[1].response.copy(example = """{"id":2}"""),
+                ),
+            )
+        val partner = Audience("partner")
+
+        val specifications =
+            OpenApi3Generator.generateAndSerializeForAudiences(
+                pathIndex = PathIndex(resources),
+                audiences = listOf(Audience.PUBLIC, partner),
+                servers = listOf(Server().apply { url = "https://localhost/api" }),
+                format = "json",
+            )
+
+        val productGetByIdExamples = "paths./products/{id}.get.responses.200.content.application/json.examples"
+        then(JsonPath.parse(specifications[null]).read<Map<String, Any>>(productGetByIdExamples).keys).containsExactly("test", "test-1")
+        then(JsonPath.parse(specifications[partner]).read<Map<String, Any>>(productGetByIdExamples).keys).containsExactly("test", "test-1")
+        val publicSpecification = JsonPath.parse(specifications[Audience.PUBLIC])
+        then(publicSpecification.read<Map<String, Any>>(productGetByIdExamples).keys).containsExactly("test")
+        val schemaRef = publicSpecification.read<String>("paths./products/{id}.get.responses.200.content.application/json.schema.\$ref")
+        then(publicSpecification.read<Any>("components.schemas.${schemaRef.substringAfterLast("/")}")).isNotNull()
+    }
+
+    @Test
+    fun `should write raw json examples as json values`() {
+        givenGetProductResourceModel()
+        resources = resources.map { it.copy(response = it.response.copy(rawExample = true)) }
+
+        whenOpenApiObjectGenerated()
+
+        val examplePath = "paths./products/{id}.get.responses.200.content.application/json.examples.test.value"
+        then(openApiJsonPathContext.read<String>("$examplePath._id")).isEqualTo("123")
+        thenOpenApiSpecIsValid()
+    }
+
+    @Test
+    fun `should add equal examples only once`() {
+        givenResourcesWithSamePathAndContentType()
+        val examples = listOf("""{"id":1,"name":"a"}""", """{ "name": "a", "id": 1 }""")
+        resources = resources.mapIndexed { index, resource -> resource.copy(response = resource.response.copy(example = examples[index])) }
+
+        whenOpenApiObjectGenerated(exampleSelectionPolicy = ExampleSelectionPolicy(deduplicate = true))
+
+        val productGetByIdContent = "paths./products/{id}.get.responses.200.content.application/json"
+        val selectedExamples = openApiJsonPathContext.read<Map<String, Any>>("$productGetByIdContent.examples")
+        then(selectedExamples.keys).containsExactly("test")
+    }
+
+    @Test
+    fun `should prefer smallest examples when exceeding max examples`() {
+        givenResourcesWithSamePathAndContentType()
+        val examples = listOf("""{"id":1,"name":"a"}""", """{"id":2}""")
+        resources = resources.mapIndexed { index, resource -> resource.copy(response = resource.response.copy(example = examples[index])) }
+
+        whenOpenApiObjectGenerated(exampleSelectionPolicy = ExampleSelectionPolicy(maxExamples = 1, preferSmallest = true))
+
+        val productGetByIdContent = "paths./products/{id}.get.responses.200.content.application/json"
+        val selectedExamples = openApiJsonPathContext.read<Map<String, Any>>("$productGetByIdContent.examples")
+        then(selectedExamples.keys).containsExactly("test-1")
+    }
+
+    @Test
+    fun `should omit unresolved example references`() {
+        givenResourcesWithSamePathAndContentType()
+        resources = resources.map { it.copy(response = it.response.copy(example = null, exampleRef = "unknown-ref")) }
+
+        whenOpenApiObjectGenerated()
+
+        then(openApiJsonPathContext.read<Any>("paths./products/{id}.get.responses.200.content.application/json.examples")).isNull()
+        then(openApiJsonPathContext.read<Any>("components.examples")).isNull()
+    }
+
+    @Test
+    fun `should only add shared examples selected by policy to components`() {
+        givenResourcesWithSamePathAndContentType()
+        resources =
+            (resources + resources.first().copy(operationId = "test-2")).mapIndexed { index, resource ->
+                resource.copy(response = resource.response.copy(example = null, exampleRef = "ref-$index"))
+            }
+        val pathItemCache = MemoryPathItemCache()
+
+        // the second run takes the path item from the cache
+        repeat(2) {
+            whenOpenApiObjectGenerated(
+                exampleStore = { ref -> """{ "id": "$ref" }""" },
+                pathItemCache = pathItemCache,
+                exampleSelectionPolicy = ExampleSelectionPolicy(maxExamples = 1),
+            )
+
+            then(openApiJsonPathContext.read<Map<String, Any>>("components.examples").keys).containsExactly("ref-0")
+        }
+        thenOpenApiSpecIsValid()
+    }
+
+    @Test
+    fun `should name schemas by path and content hash`() {
+        givenResourcesWithSamePathAndDifferentMethods()
+
+        whenOpenApiObjectGenerated()
+
+        then(openApiJsonPathContext.read<String>("paths./products/{id}.get.responses.200.content.application/json.schema.\$ref"))
+            .matches("#/components/schemas/products-id-[0-9a-f]{8}")
+        thenOpenApiSpecIsValid()
+    }
+
+    @Test
+    fun `should name schemas by path and method`() {
+        givenResourcesWithSamePathAndDifferentMethods()
+
+        whenOpenApiObjectGenerated(schemaNamingStrategy = SchemaNamingStrategy.PATH_AND_METHOD)
+
+        then(openApiJsonPathContext.read<String>("paths./products/{id}.get.responses.200.content.application/json.schema.\$ref"))
+            .isEqualTo("#/components/schemas/products-id-get-200")
+        then(openApiJsonPathContext.read<String>("paths./products/{id}.patch.responses.200.content.application/json.schema.\$ref"))
+            .isEqualTo("#/components/schemas/products-id-get-200")
+        thenOpenApiSpecIsValid()
+    }
+
+    @Test
+    fun `should append counter to schema names taken by other schemas`() {
+        givenResourcesWithSamePathAndDifferentMethods()
+
+        whenOpenApiObjectGenerated(schemaNamingStrategy = { "Product" })
+
+        then(openApiJsonPathContext.read<Map<String, Any>>("components.schemas").keys).contains("Product", "Product-2")
+        thenOpenApiSpecIsValid()
+    }
+
+    @Test
+    fun `should extract repeated nested schemas into components`() {
+        givenGetProductResourceModelWithAddresses()
+
+        whenOpenApiObjectGenerated(repeatedSchemaMinSize = 3)
+
+        val schemaId =
+            openApiJsonPathContext
+                .read<String>("paths./products/{id}.get.responses.200.content.application/json.schema.\$ref")
+                .removePrefix("#/components/schemas/")
+        val addressRef = openApiJsonPathContext.read<String>("components.schemas.$schemaId.properties.shippingAddress.\$ref")
+        then(addressRef).isIn("#/components/schemas/shippingAddress", "#/components/schemas/billingAddress")
+        then(openApiJsonPathContext.read<String>("components.schemas.$schemaId.properties.billingAddress.\$ref")).isEqualTo(addressRef)
+        then(openApiJsonPathContext.read<Map<String, Any>>("components.schemas.${addressRef.substringAfterLast("/")}.properties").keys)
+            .containsExactlyInAnyOrder("street", "city")
+        thenOpenApiSpecIsValid()
+    }
+
+    @Test
+    fun `should keep repeated nested schemas below min size inline`() {
+        givenGetProductResourceModelWithAddresses()
+
+        whenOpenApiObjectGenerated(repeatedSchemaMinSize = 4)
+
+        then(openApiJsonPathContext.read<Map<String, Any>>("components.schemas").keys).doesNotContain("shippingAddress", "billingAddress")
+        thenOpenApiSpecIsValid()
+    }
+
     @Test
     fun `should aggregate responses with same path and content type but different status`() {
         givenResourcesWithSamePathAndContentTypeButDifferentStatus()
@@ -728,7 +1074,14 @@ class OpenApi3GeneratorTest {
         then(responseEnum["enum"] as List<*>).containsExactly("FIRST_VALUE", "SECOND_VALUE", "THIRD_VALUE")
     }
 
-    private fun whenOpenApiObjectGenerated() {
+    private fun whenOpenApiObjectGenerated(
+        exampleStore: ExampleStore = ExampleStore.NONE,
+        pathItemCache: PathItemCache = PathItemCache.NONE,
+        exampleSelectionPolicy: ExampleSelectionPolicy = ExampleSelectionPolicy.ALL,
+        securitySchemeExtractors: List<SecuritySchemeExtractor> = emptyList(),
+        schemaNamingStrategy: SchemaNamingStrategy = SchemaNamingStrategy.CONTENT_HASH,
+        repeatedSchemaMinSize: Int? = null,
+    ) {
         openApiSpecJsonString =
             OpenApi3Generator.generateAndSerialize(
                 resources = resources,
@@ -743,6 +1096,12 @@ class OpenApi3GeneratorTest {
                 description = "API Description",
                 tagDescriptions = mapOf("tag1" to "tag1 description", "tag2" to "tag2 description"),
                 contact = Contact().apply { name = "Test Contact" },
+                exampleStore = exampleStore,
+                pathItemCache = pathItemCache,
+                exampleSelectionPolicy = exampleSelectionPolicy,
+                securitySchemeExtractors = securitySchemeExtractors,
+                schemaNamingStrategy = schemaNamingStrategy,
+                repeatedSchemaMinSize = repeatedSchemaMinSize,
             )
 
         println(openApiSpecJsonString)
@@ -1290,6 +1649,29 @@ class OpenApi3GeneratorTest {
             )
     }
 
+    private fun givenGetProductResourceModelWithAddresses() {
+        val addressFields =
+            listOf("shippingAddress", "billingAddress").flatMap { address ->
+                listOf(
+                    FieldDescriptor(path = "$address.street", description = "The street", type = "STRING"),
+                    FieldDescriptor(path = "$address.city", description = "The city", type = "STRING"),
+                )
+            }
+        resources =
+            listOf(
+                ResourceModel(
+                    operationId = "test",
+                    summary = "summary",
+                    description = "description",
+                    privateResource = false,
+                    deprecated = false,
+                    tags = setOf("tag1", "tag2"),
+                    request = getProductRequest(),
+                    response = getProductResponse().copy(responseFields = addressFields, example = null),
+                ),
+            )
+    }
+
     private fun givenGetProductResourceModelWithJWTSecurityRequirement() {
         resources =
             listOf(
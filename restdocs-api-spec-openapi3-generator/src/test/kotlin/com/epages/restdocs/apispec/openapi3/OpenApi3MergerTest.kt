@@ -0,0 +1,215 @@
+package com.epages.restdocs.apispec.openapi3
+
+import com.fasterxml.jackson.databind.JsonNode
+import io.swagger.v3.core.util.Json
+import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.Test
+
+class OpenApi3MergerTest {
+    @Test
+    fun `should merge paths in generator order`() {
+        val first = specification(paths = """"/products/{id}": { "get": { "operationId": "product-get" } }""")
+        val second =
+            specification(
+                paths = """"/carts": { "post": { "operationId": "cart-create" } }, "/products": { "get": { "operationId": "products" } }""",
+            )
+
+        val result = OpenApi3Merger.merge(listOf(first, second))
+
+        then(result.conflicts).isEmpty()
+        then(result.specification["paths"].fieldNames().asSequence().toList()).containsExactly("/carts", "/products", "/products/{id}")
+        then(result.specification["info"]["title"].asText()).isEqualTo("API")
+    }
+
+    @Test
+    fun `should keep equal components once and rewrite references to them`() {
+        val first =
+            specification(
+                paths = """"/products/{id}": { "get": { "responses": { "200": { "${'$'}ref": "#/components/responses/product" } } } }""",
+                components = """"responses": { "product": { "description": "a product" } }""",
+            )
+        val second =
+            specification(
+                paths = """"/products": { "get": { "responses": { "200": { "${'$'}ref": "#/components/responses/products-1" } } } }""",
+                components = """"responses": { "products-1": { "description": "a product" } }""",
+            )
+
+        val result = OpenApi3Merger.merge(listOf(first, second))
+
+        then(result.conflicts).isEmpty()
+        then(result.specification["components"]["responses"].fieldNames().asSequence().toList()).containsExactly("product")
+        then(result.specification.at("/paths/~1products/get/responses/200/${'$'}ref").asText()).isEqualTo("#/components/responses/product")
+    }
+
+    @Test
+    fun `should rename conflicting components and report them`() {
+        val first =
+            specification(
+                components = """"schemas": { "item": { "type": "string" } }""",
+            )
+        val second =
+            specification(
+                paths = """"/carts": { "get": { "responses": { "200": { "${'$'}ref": "#/components/responses/cart" } } } }""",
+                components =
+                    """
+                    "schemas": {
+                        "cart": { "type": "array", "items": { "${'$'}ref": "#/components/schemas/item" } },
+                        "item": { "type": "integer" }
+                    },
+                    "responses": {
+                        "cart": { "description": "cart", "content": { "application/json": { "schema": { "${'$'}ref": "#/components/schemas/cart" } } } }
+                    }
+                    """,
+            )
+
+        val result = OpenApi3Merger.merge(listOf(first, second))
+
+        then(result.conflicts.map { it.pointer }).containsExactly("/components/schemas/item")
+        then(result.conflicts.single().specification).isEqualTo(1)
+        with(result.specification["components"]["schemas"]) {
+            then(fieldNames().asSequence().toList()).containsExactly("cart", "item", "item-2")
+            then(this["item"]["type"].asText()).isEqualTo("string")
+            then(this["item-2"]["type"].asText()).isEqualTo("integer")
+            then(this["cart"]["items"]["${'$'}ref"].asText()).isEqualTo("#/components/schemas/item-2")
+        }
+    }
+
+    @Test
+    fun `should keep equal security schemes with different names`() {
+        val first =
+            specification(
+                paths = """"/products": { "get": { "security": [ { "oauth2": [ ] } ] } }""",
+                components = """"securitySchemes": { "oauth2": { "type": "http", "scheme": "bearer" } }""",
+            )
+        val second =
+            specification(
+                paths = """"/carts": { "get": { "security": [ { "bearer": [ ] } ] } }""",
+                components = """"securitySchemes": { "bearer": { "type": "http", "scheme": "bearer" } }""",
+            )
+
+        val result = OpenApi3Merger.merge(listOf(first, second))
+
+        then(result.conflicts).isEmpty()
+        then(result.specification["components"]["securitySchemes"].fieldNames().asSequence().toList()).containsExactly("bearer", "oauth2")
+    }
+
+    @Test
+    fun `should report differing security schemes with the same name`() {
+        val first = specification(components = """"securitySchemes": { "oauth2": { "type": "http", "scheme": "bearer" } }""")
+        val second = specification(components = """"securitySchemes": { "oauth2": { "type": "http", "scheme": "basic" } }""")
+
+        val result = OpenApi3Merger.merge(listOf(first, second))
+
+        then(result.conflicts.map { it.pointer }).containsExactly("/components/securitySchemes/oauth2")
+        then(result.specification.at("/components/securitySchemes/oauth2/scheme").asText()).isEqualTo("bearer")
+    }
+
+    @Test
+    fun `should keep first operation field and report differing one`() {
+        val first = specification(paths = """"/products": { "get": { "operationId": "products" } }""")
+        val second = specification(paths = """"/products": { "get": { "operationId": "products-list" } }""")
+
+        val result = OpenApi3Merger.merge(listOf(first, second))
+
+        then(result.conflicts.map { it.pointer }).containsExactly("/paths/~1products/get/operationId")
+        then(result.specification.at("/paths/~1products/get/operationId").asText()).isEqualTo("products")
+    }
+
+    @Test
+    fun `should merge responses of operation documented in several specifications`() {
+        val first = specification(paths = """"/products/{id}": { "get": ${operation("404", "product-get-not-found")} }""")
+        val second = specification(paths = """"/products/{id}": { "get": ${operation("200", "product-get")} }""")
+
+        val result = OpenApi3Merger.merge(listOf(first, second))
+
+        then(result.conflicts).isEmpty()
+        with(result.specification.at("/paths/~1products~1{id}/get")) {
+            then(this["responses"].fieldNames().asSequence().toList()).containsExactly("200", "404")
+            then(at("/responses/200/content/application~1json/examples/product-get/value/id").asText()).isEqualTo("product-get")
+            then(at("/responses/404/content/application~1json/examples/product-get-not-found/value/id").asText())
+                .isEqualTo("product-get-not-found")
+            then(this["parameters"].map { it["name"].asText() }).containsExactly("id", "product-get-not-found", "product-get")
+        }
+    }
+
+    @Test
+    fun `should merge examples of the same response and report differing example`() {
+        val first = specification(paths = """"/products/{id}": { "get": ${operation("200", "product-get")} }""")
+        val second = specification(paths = """"/products/{id}": { "get": ${operation("200", "product-get-by-sku")} }""")
+        val third = specification(paths = """"/products/{id}": { "get": ${operation("200", "product-get", value = "other")} }""")
+
+        val result = OpenApi3Merger.merge(listOf(first, second, third))
+
+        then(result.conflicts.map { it.pointer })
+            .containsExactly("/paths/~1products~1{id}/get/responses/200/content/application~1json/examples/product-get")
+        then(result.conflicts.single().specification).isEqualTo(2)
+        with(result.specification.at("/paths/~1products~1{id}/get/responses/200/content/application~1json/examples")) {
+            then(fieldNames().asSequence().toList()).containsExactly("product-get", "product-get-by-sku")
+            then(at("/product-get/value/id").asText()).isEqualTo("product-get")
+        }
+    }
+
+    @Test
+    fun `should report differing parameter with the same name and location`() {
+        val first = specification(paths = """"/products/{id}": { "get": ${operation("200", "product-get")} }""")
+        val second =
+            specification(
+                paths = """"/products/{id}": { "get": { "parameters": [ { "name": "id", "in": "path", "required": false } ] } }""",
+            )
+
+        val result = OpenApi3Merger.merge(listOf(first, second))
+
+        then(result.conflicts.map { it.pointer }).containsExactly("/paths/~1products~1{id}/get/parameters/0")
+        then(result.specification.at("/paths/~1products~1{id}/get/parameters/0/required").asBoolean()).isTrue()
+    }
+
+    @Test
+    fun `should serialize merged specification`() {
+        val result =
+            OpenApi3Merger.mergeAndSerialize(
+                listOf(
+                    specification(paths = """"/products": { "get": { "operationId": "products" } }""").toString(),
+                    "openapi: 3.0.1\ninfo:\n  title: API\n  version: 1.0.0\npaths:\n  /carts:\n    get:\n      operationId: carts\n",
+                ),
+                format = "yaml",
+                streamingYaml = true,
+            )
+
+        then(result.conflicts).isEmpty()
+        then(result.specification).contains("operationId: carts").contains("operationId: products")
+    }
+
+    private fun operation(
+        status: String,
+        example: String,
+        value: String = example,
+    ) = """
+        {
+            "parameters": [
+                { "name": "id", "in": "path", "required": true },
+                { "name": "$example", "in": "query" }
+            ],
+            "responses": {
+                "$status": {
+                    "description": "$status",
+                    "content": { "application/json": { "examples": { "$example": { "value": { "id": "$value" } } } } }
+                }
+            }
+        }
+        """
+
+    private fun specification(
+        paths: String = "",
+        components: String = "",
+    ): JsonNode =
+        Json.mapper().readTree(
+            """
+            {
+                "openapi": "3.0.1",
+                "info": { "title": "API", "version": "1.0.0" },
+                "paths": { $paths },
+                "components": { $components }
+            }
+            """,
+        )
+}
@@ -1,8 +1,12 @@
 package com.epages.restdocs.apispec.postman
 
+import com.epages.restdocs.apispec.model.ExampleStore
 import com.epages.restdocs.apispec.model.HeaderDescriptor
+import com.epages.restdocs.apispec.model.PathIndex
 import com.epages.restdocs.apispec.model.ResourceModel
-import com.epages.restdocs.apispec.model.groupByPath
+import com.epages.restdocs.apispec.model.ResourceModelProjection
+import com.epages.restdocs.apispec.model.groupByMethod
+import com.epages.restdocs.apispec.model.withResolvedExamples
 import com.epages.restdocs.apispec.postman.model.Body
 import com.epages.restdocs.apispec.postman.model.Collection
 import com.epages.restdocs.apispec.postman.model.Header
@@ -17,11 +21,29 @@ import java.net.URI
 import java.net.URL
 
 object PostmanCollectionGenerator {
+    /**
+     * Requests are generated from their examples - the fields, schemas and security requirements are not consumed.
+     */
+    @JvmField
+    val RESOURCE_MODEL_PROJECTION = ResourceModelProjection(emptySet())
+
     fun generate(
         resources: List<ResourceModel>,
         title: String = "API",
         version: String = "1.0.0",
         baseUrl: String = "http://localhost",
+        exampleStore: ExampleStore = ExampleStore.NONE,
+    ): Collection = generate(PathIndex(resources), title, version, baseUrl, exampleStore)
+
+    /**
+     * Loads the resources of one path of the [PathIndex] at a time - see [PathIndex.ofReferences].
+     */
+    fun generate(
+        pathIndex: PathIndex,
+        title: String = "API",
+        version: String = "1.0.0",
+        baseUrl: String = "http://localhost",
+        exampleStore: ExampleStore = ExampleStore.NONE,
     ): Collection =
         Collection().apply {
             info =
@@ -30,41 +52,52 @@ object PostmanCollectionGenerator {
                     this.version = version
                     this.schema = "https://schema.getpostman.com/json/collection/v2.1.0/collection.json"
                 }
-            item = collectItems(resources, baseUrl)
+            item = collectItems(pathIndex, baseUrl, exampleStore)
         }
 
     private fun collectItems(
-        resourceModels: List<ResourceModel>,
+        pathIndex: PathIndex,
         url: String,
+        exampleStore: ExampleStore,
     ): List<Item> =
-        resourceModels
-            .groupByPath()
-            .values
-            .flatMap { it.groupBy { models -> models.request.method }.values }
-            .map { modelsWithSamePathAndMethod ->
-                val firstModel = modelsWithSamePathAndMethod.first()
-                Item().apply {
-                    id = firstModel.operationId
-                    name = firstModel.request.path
-                    description = firstModel.description
-                    request = toRequest(modelsWithSamePathAndMethod, url)
-                    response =
-                        modelsWithSamePathAndMethod.map {
-                            Response().apply {
-                                id = it.operationId
-                                name = it.operationId
-                                originalRequest = toRequest(listOf(it), url)
-                                code = it.response.status
-                                body = it.response.example
-                                header =
-                                    it.response.headers
-                                        .toItemHeader(it.response.contentType)
-                                        .ifEmpty { null }
-                            }
-                        }
-                }
+        pathIndex
+            .entries
+            .flatMap { pathEntry ->
+                // the items are created per path - so the resources are released before the next path is loaded
+                pathEntry.loadResources()
+                    .map { it.withResolvedExamples(exampleStore) }
+                    .groupByMethod()
+                    .values
+                    .map { toItem(it, url) }
             }
 
+    private fun toItem(
+        modelsWithSamePathAndMethod: List<ResourceModel>,
+        url: String,
+    ): Item {
+        val firstModel = modelsWithSamePathAndMethod.first()
+        return Item().apply {
+            id = firstModel.operationId
+            name = firstModel.request.path
+            description = firstModel.description
+            request = toRequest(modelsWithSamePathAndMethod, url)
+            response =
+                modelsWithSamePathAndMethod.map {
+                    Response().apply {
+                        id = it.operationId
+                        name = it.operationId
+                        originalRequest = toRequest(listOf(it), url)
+                        code = it.response.status
+                        body = it.response.example
+                        header =
+                            it.response.headers
+                                .toItemHeader(it.response.contentType)
+                                .ifEmpty { null }
+                    }
+                }
+        }
+    }
+
     private fun toRequest(
         modelsWithSamePathAndMethod: List<ResourceModel>,
         url: String,
@@ -0,0 +1,83 @@
+package com.epages.restdocs.apispec.validator
+
+import com.epages.restdocs.apispec.jsonschema.JsonSchemaFromFieldDescriptorsGenerator
+import com.epages.restdocs.apispec.model.Attributes
+import com.epages.restdocs.apispec.model.FieldDescriptor
+import org.everit.json.schema.Schema
+import org.everit.json.schema.ValidationException
+import org.everit.json.schema.loader.SchemaLoader
+import org.json.JSONObject
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import java.util.concurrent.TimeUnit
+
+/**
+ * Compares the compiled [ResponseValidator] with validating the same body by the Everit schema loaded from the generated JSON schema.
+ *
+ * Both validate the body as received - so the Everit path includes parsing the body into a `JSONObject`.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class ResponseValidatorBenchmark {
+    @Param("10", "1000")
+    @JvmField
+    var products: Int = 0
+
+    private lateinit var body: String
+    private lateinit var bodyBytes: ByteArray
+    private lateinit var responseValidator: ResponseValidator
+    private lateinit var everitSchema: Schema
+
+    @Setup
+    fun setUp() {
+        val jsonSchema = JsonSchemaFromFieldDescriptorsGenerator().generateSchema(FIELD_DESCRIPTORS)
+        responseValidator = ResponseValidator.compile(jsonSchema)
+        everitSchema =
+            SchemaLoader
+                .builder()
+                .nullableSupport(true)
+                .schemaJson(JSONObject(jsonSchema))
+                .build()
+                .load()
+                .build()
+        body =
+            (0 until products).joinToString(",", """{ "page": { "size": $products, "number": 0 }, "products": [""", "]}") {
+                """{ "id": "$it", "name": "Product $it", "price": ${it * 1.5}, "tags": ["a", "b"], "manufacturer": { "name": "ACME" } }"""
+            }
+        bodyBytes = body.toByteArray()
+        check(responseValidator.isValid(bodyBytes)) { responseValidator.validate(bodyBytes) }
+    }
+
+    @Benchmark
+    fun compiledResponseValidator(): List<Violation> = responseValidator.validate(bodyBytes)
+
+    @Benchmark
+    fun everitSchemaValidate(): Boolean =
+        try {
+            everitSchema.validate(JSONObject(body))
+            true
+        } catch (_: ValidationException) {
+            false
+        }
+
+    private companion object {
+        val FIELD_DESCRIPTORS =
+            listOf(
+                FieldDescriptor("page.size", "the page size", "NUMBER"),
+                FieldDescriptor("page.number", "the page number", "NUMBER"),
+                FieldDescriptor("products[].id", "the id", "STRING"),
+                FieldDescriptor("products[].name", "the name", "STRING"),
+                FieldDescriptor("products[].price", "the price", "NUMBER"),
+                FieldDescriptor("products[].tags", "the tags", "ARRAY", optional = true, attributes = Attributes(itemsType = "string")),
+                FieldDescriptor("products[].manufacturer", "the manufacturer", "OBJECT", optional = true),
+                FieldDescriptor("products[].manufacturer.name", "the name of the manufacturer", "STRING", optional = true),
+            )
+    }
+}
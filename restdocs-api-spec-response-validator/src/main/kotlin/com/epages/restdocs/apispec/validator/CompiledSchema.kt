@@ -0,0 +1,177 @@
+package com.epages.restdocs.apispec.validator
+
+import tools.jackson.module.kotlin.jacksonObjectMapper
+import tools.jackson.module.kotlin.readValue
+import java.math.BigDecimal
+import java.math.BigInteger
+
+internal enum class JsonType(
+    val schemaName: String,
+) {
+    OBJECT("object"),
+    ARRAY("array"),
+    STRING("string"),
+    NUMBER("number"),
+    INTEGER("integer"),
+    BOOLEAN("boolean"),
+    NULL("null"),
+    ;
+
+    companion object {
+        fun of(schemaName: String): JsonType =
+            requireNotNull(entries.find { it.schemaName == schemaName }) { "Unknown type '$schemaName'" }
+    }
+}
+
+/**
+ * The keywords of a JSON schema the validators check - resolved once so validating a value does not look up anything by name.
+ *
+ * Covers the keywords of the schemas generated by `JsonSchemaFromFieldDescriptorsGenerator` - other keywords are ignored.
+ */
+internal class CompiledSchema(
+    /**
+     * Null if any type is allowed.
+     */
+    val types: Set<JsonType>? = null,
+    val nullable: Boolean = false,
+    val properties: Map<String, CompiledSchema> = emptyMap(),
+    val required: Set<String> = emptySet(),
+    val additionalPropertiesAllowed: Boolean = true,
+    /**
+     * Null if additional properties may have any value.
+     */
+    val additionalProperties: CompiledSchema? = null,
+    /**
+     * Null if items may have any value.
+     */
+    val items: CompiledSchema? = null,
+    val minItems: Int? = null,
+    val maxItems: Int? = null,
+    val minLength: Int? = null,
+    val maxLength: Int? = null,
+    val pattern: Regex? = null,
+    val minimum: BigDecimal? = null,
+    val exclusiveMinimum: BigDecimal? = null,
+    val maximum: BigDecimal? = null,
+    val exclusiveMaximum: BigDecimal? = null,
+    /**
+     * The allowed scalar values - numbers are normalized by [normalize].
+     */
+    val enumValues: Set<Any?>? = null,
+    val format: String? = null,
+    val allOf: List<CompiledSchema> = emptyList(),
+    val anyOf: List<CompiledSchema> = emptyList(),
+    val oneOf: List<CompiledSchema> = emptyList(),
+) {
+    /**
+     * True if the schema accepts any value - so the value only has to be skipped.
+     */
+    val acceptsAnything: Boolean
+        get() = this === ANY
+
+    fun allowsType(type: JsonType): Boolean =
+        types == null ||
+            type in types ||
+            (type == JsonType.NULL && nullable) ||
+            (type == JsonType.INTEGER && JsonType.NUMBER in types)
+
+    companion object {
+        val ANY = CompiledSchema()
+
+        private val objectMapper = jacksonObjectMapper()
+
+        /**
+         * @throws IllegalArgumentException if the schema is not a JSON object or uses unknown types
+         */
+        fun compile(jsonSchema: String): CompiledSchema {
+            val schema = objectMapper.readValue<Any?>(jsonSchema)
+            require(schema is Map<*, *>) { "JSON schema must be an object" }
+            return compile(schema)
+        }
+
+        /**
+         * Equal numbers are equal after normalization - regardless of their type and scale.
+         */
+        fun normalize(value: Any?): Any? =
+            if (value is Number) {
+                decimal(value).stripTrailingZeros().let { if (it.scale() < 0) it.setScale(0) else it }
+            } else {
+                value
+            }
+
+        private fun compile(schema: Map<*, *>): CompiledSchema {
+            if (schema.keys.none { it in KEYWORDS }) return ANY
+            val type = schema["type"]
+            // draft 4 marks minimum and maximum as exclusive with a boolean - later drafts use separate bounds
+            val exclusiveMinimum = schema["exclusiveMinimum"] == true
+            val exclusiveMaximum = schema["exclusiveMaximum"] == true
+            return CompiledSchema(
+                types =
+                    when (type) {
+                        is String -> setOf(JsonType.of(type))
+                        is List<*> -> type.mapTo(LinkedHashSet()) { JsonType.of(it.toString()) }
+                        else -> null
+                    },
+                nullable = schema["nullable"] == true,
+                properties = (schema["properties"] as? Map<*, *>).orEmpty().entries.associate { it.key.toString() to subschema(it.value) },
+                required = (schema["required"] as? List<*>).orEmpty().mapTo(LinkedHashSet()) { it.toString() },
+                additionalPropertiesAllowed = schema["additionalProperties"] != false,
+                additionalProperties = (schema["additionalProperties"] as? Map<*, *>)?.let { compile(it) },
+                items = (schema["items"] as? Map<*, *>)?.let { compile(it) },
+                minItems = int(schema["minItems"]),
+                maxItems = int(schema["maxItems"]),
+                minLength = int(schema["minLength"]),
+                maxLength = int(schema["maxLength"]),
+                pattern = (schema["pattern"] as? String)?.let { Regex(it) },
+                minimum = if (exclusiveMinimum) null else decimal(schema["minimum"]),
+                exclusiveMinimum = if (exclusiveMinimum) decimal(schema["minimum"]) else decimal(schema["exclusiveMinimum"]),
+                maximum = if (exclusiveMaximum) null else decimal(schema["maximum"]),
+                exclusiveMaximum = if (exclusiveMaximum) decimal(schema["maximum"]) else decimal(schema["exclusiveMaximum"]),
+                enumValues = (schema["enum"] as? List<*>)?.mapTo(LinkedHashSet()) { normalize(it) },
+                format = schema["format"] as? String,
+                allOf = subschemas(schema["allOf"]),
+                anyOf = subschemas(schema["anyOf"]),
+                oneOf = subschemas(schema["oneOf"]),
+            )
+        }
+
+        private fun subschema(schema: Any?): CompiledSchema = if (schema is Map<*, *>) compile(schema) else ANY
+
+        private fun subschemas(schemas: Any?): List<CompiledSchema> = (schemas as? List<*>).orEmpty().map { subschema(it) }
+
+        private fun int(value: Any?): Int? = (value as? Number)?.toInt()
+
+        private fun decimal(value: Any?): BigDecimal? = if (value is Number) decimal(value) else null
+
+        private fun decimal(value: Number): BigDecimal =
+            when (value) {
+                is BigDecimal -> value
+                is BigInteger -> BigDecimal(value)
+                is Double, is Float -> BigDecimal(value.toString())
+                else -> BigDecimal.valueOf(value.toLong())
+            }
+
+        private val KEYWORDS =
+            setOf(
+                "type",
+                "properties",
+                "required",
+                "additionalProperties",
+                "items",
+                "minItems",
+                "maxItems",
+                "minLength",
+                "maxLength",
+                "pattern",
+                "minimum",
+                "exclusiveMinimum",
+                "maximum",
+                "exclusiveMaximum",
+                "enum",
+                "format",
+                "allOf",
+                "anyOf",
+                "oneOf",
+            )
+    }
+}
@@ -0,0 +1,92 @@
+package com.epages.restdocs.apispec.validator
+
+import com.epages.restdocs.apispec.jsonschema.JsonSchemaFromFieldDescriptorsGenerator
+import com.epages.restdocs.apispec.model.FieldDescriptor
+import com.epages.restdocs.apispec.model.ResourceModel
+import tools.jackson.core.JacksonException
+import tools.jackson.core.JsonParser
+import tools.jackson.databind.json.JsonMapper
+import java.io.InputStream
+
+/**
+ * Validates response bodies against the documented response fields - e.g. in load tests or production canaries.
+ *
+ * The JSON schema is compiled once. Validating a body is a single streaming pass over its tokens - no tree is built.
+ * Validators are immutable and thread safe - create them once and share them.
+ */
+class ResponseValidator private constructor(
+    private val schema: CompiledSchema,
+) {
+    /**
+     * @return the violations of the schema - empty if the body is valid
+     */
+    fun validate(body: ByteArray): List<Violation> = validate { objectMapper.createParser(body) }
+
+    /**
+     * @return the violations of the schema - empty if the body is valid
+     */
+    fun validate(body: String): List<Violation> = validate { objectMapper.createParser(body) }
+
+    /**
+     * The stream is closed after validation.
+     *
+     * @return the violations of the schema - empty if the body is valid
+     */
+    fun validate(body: InputStream): List<Violation> = validate { objectMapper.createParser(body) }
+
+    fun isValid(body: ByteArray): Boolean = validate(body).isEmpty()
+
+    private fun validate(createParser: () -> JsonParser): List<Violation> {
+        val violations = ArrayList<Violation>()
+        try {
+            createParser().use { parser ->
+                val matcher = SchemaMatcher(schema, Location.ROOT, violations)
+                var token = parser.nextToken()
+                if (token == null) return listOf(Violation("", "body is empty"))
+                while (!matcher.accept(token, parser)) {
+                    token = parser.nextToken() ?: return listOf(Violation("", "body is not valid JSON: unexpected end of body"))
+                }
+                if (parser.nextToken() != null) violations += Violation("", "body contains more than one JSON value")
+            }
+        } catch (e: JacksonException) {
+            return listOf(Violation("", "body is not valid JSON: ${e.originalMessage}"))
+        }
+        return violations
+    }
+
+    companion object {
+        private val objectMapper = JsonMapper.builder().build()
+
+        /**
+         * @throws IllegalArgumentException if the schema is not a JSON object or uses unknown types
+         */
+        @JvmStatic
+        fun compile(jsonSchema: String): ResponseValidator = ResponseValidator(CompiledSchema.compile(jsonSchema))
+
+        /**
+         * Compiles the schema [JsonSchemaFromFieldDescriptorsGenerator] generates for the fields.
+         */
+        @JvmStatic
+        fun compile(fieldDescriptors: List<FieldDescriptor>): ResponseValidator =
+            compile(JsonSchemaFromFieldDescriptorsGenerator().generateSchema(fieldDescriptors))
+
+        /**
+         * Accepts any body if the response fields are not documented - just like the generated specifications define no schema then.
+         */
+        @JvmStatic
+        fun compile(resourceModel: ResourceModel): ResponseValidator =
+            if (resourceModel.response.responseFields.isEmpty()) {
+                ResponseValidator(CompiledSchema.ANY)
+            } else {
+                compile(resourceModel.response.responseFields)
+            }
+    }
+}
+
+/**
+ * @param pointer the JSON pointer of the invalid value - empty for the body itself
+ */
+data class Violation(
+    val pointer: String,
+    val message: String,
+)
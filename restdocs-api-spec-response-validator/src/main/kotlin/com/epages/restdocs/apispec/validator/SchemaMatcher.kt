@@ -0,0 +1,252 @@
+package com.epages.restdocs.apispec.validator
+
+import tools.jackson.core.JsonParser
+import tools.jackson.core.JsonToken
+import java.time.LocalDate
+import java.time.format.DateTimeParseException
+
+/**
+ * Validates a single JSON value against a [CompiledSchema] - fed with the tokens of the value one by one.
+ *
+ * The tokens are pushed to the matcher instead of being pulled from the parser -
+ * so the subschemas of `allOf`, `anyOf` and `oneOf` validate the same value without buffering it.
+ *
+ * Matchers are cheap and used for a single value only - the compiled schema is shared.
+ */
+internal class SchemaMatcher(
+    private val schema: CompiledSchema,
+    private val location: Location,
+    val violations: MutableList<Violation>,
+) {
+    private var state = State.START
+    private var depth = 0
+    private var child: SchemaMatcher? = null
+    private var itemCount = 0
+    private var presentRequiredProperties: MutableSet<String>? = null
+    private var subschemaMatchers: List<SchemaMatcher> = emptyList()
+
+    /**
+     * @return true if the token completes the value
+     */
+    fun accept(
+        token: JsonToken,
+        parser: JsonParser,
+    ): Boolean {
+        if (state == State.START) subschemaMatchers = subschemaMatchers()
+        subschemaMatchers.forEach { it.accept(token, parser) }
+        val complete =
+            when (state) {
+                State.START -> start(token, parser)
+                State.OBJECT -> objectToken(token, parser)
+                State.ARRAY -> arrayToken(token, parser)
+                State.SKIP -> skipToken(token)
+            }
+        if (complete && subschemaMatchers.isNotEmpty()) validateSubschemaMatches()
+        return complete
+    }
+
+    private fun subschemaMatchers(): List<SchemaMatcher> {
+        if (schema.allOf.isEmpty() && schema.anyOf.isEmpty() && schema.oneOf.isEmpty()) return emptyList()
+        // allOf reports the violations of its subschemas - anyOf and oneOf only count the matching subschemas
+        return schema.allOf.map { SchemaMatcher(it, location, violations) } +
+            (schema.anyOf + schema.oneOf).map { SchemaMatcher(it, location, ArrayList()) }
+    }
+
+    private fun validateSubschemaMatches() {
+        val anyOfMatchers = subschemaMatchers.subList(schema.allOf.size, schema.allOf.size + schema.anyOf.size)
+        if (anyOfMatchers.isNotEmpty() && anyOfMatchers.none { it.violations.isEmpty() }) {
+            violation("does not match any schema of anyOf")
+        }
+        val oneOfMatchers = subschemaMatchers.subList(schema.allOf.size + schema.anyOf.size, subschemaMatchers.size)
+        val matchingOneOf = oneOfMatchers.count { it.violations.isEmpty() }
+        if (oneOfMatchers.isNotEmpty() && matchingOneOf != 1) {
+            violation("must match exactly one schema of oneOf but matches $matchingOneOf")
+        }
+    }
+
+    private fun start(
+        token: JsonToken,
+        parser: JsonParser,
+    ): Boolean {
+        if (schema.acceptsAnything) return skip(token)
+        val type = typeOf(token)
+        if (!schema.allowsType(type)) {
+            violation("expected type ${schema.types.orEmpty().joinToString(" or ") { it.schemaName }} but was ${type.schemaName}")
+            return skip(token)
+        }
+        return when (type) {
+            JsonType.OBJECT -> {
+                if (schema.enumValues != null) violation("must be one of ${schema.enumValues}")
+                if (schema.required.isNotEmpty()) presentRequiredProperties = HashSet()
+                state = State.OBJECT
+                false
+            }
+            JsonType.ARRAY -> {
+                if (schema.enumValues != null) violation("must be one of ${schema.enumValues}")
+                state = State.ARRAY
+                false
+            }
+            JsonType.STRING -> {
+                validateString(parser.string)
+                true
+            }
+            JsonType.NUMBER, JsonType.INTEGER -> {
+                validateNumber(parser)
+                true
+            }
+            JsonType.BOOLEAN -> {
+                validateEnum(token == JsonToken.VALUE_TRUE)
+                true
+            }
+            JsonType.NULL -> {
+                if (!schema.nullable) validateEnum(null)
+                true
+            }
+        }
+    }
+
+    private fun objectToken(
+        token: JsonToken,
+        parser: JsonParser,
+    ): Boolean {
+        val currentChild = child
+        if (currentChild != null) {
+            if (currentChild.accept(token, parser)) child = null
+            return false
+        }
+        if (token == JsonToken.END_OBJECT) {
+            presentRequiredProperties?.let { present ->
+                schema.required.filterNot { it in present }.forEach { violation("required property '$it' is missing") }
+            }
+            return true
+        }
+
+        val name = parser.currentName()
+        presentRequiredProperties?.let { if (name in schema.required) it.add(name) }
+        val propertySchema = schema.properties[name]
+        if (propertySchema == null && !schema.additionalPropertiesAllowed) {
+            violation("property '$name' is not allowed")
+        }
+        child = SchemaMatcher(propertySchema ?: schema.additionalProperties ?: CompiledSchema.ANY, location.child(name), violations)
+        return false
+    }
+
+    private fun arrayToken(
+        token: JsonToken,
+        parser: JsonParser,
+    ): Boolean {
+        val currentChild = child
+        if (currentChild != null) {
+            if (currentChild.accept(token, parser)) child = null
+            return false
+        }
+        if (token == JsonToken.END_ARRAY) {
+            schema.minItems?.let { if (itemCount < it) violation("must have at least $it items but has $itemCount") }
+            schema.maxItems?.let { if (itemCount > it) violation("must have at most $it items but has $itemCount") }
+            return true
+        }
+
+        val item = SchemaMatcher(schema.items ?: CompiledSchema.ANY, location.child(itemCount), violations)
+        itemCount++
+        if (!item.accept(token, parser)) child = item
+        return false
+    }
+
+    private fun skip(token: JsonToken): Boolean {
+        if (token != JsonToken.START_OBJECT && token != JsonToken.START_ARRAY) return true
+        state = State.SKIP
+        depth = 1
+        return false
+    }
+
+    private fun skipToken(token: JsonToken): Boolean {
+        when (token) {
+            JsonToken.START_OBJECT, JsonToken.START_ARRAY -> depth++
+            JsonToken.END_OBJECT, JsonToken.END_ARRAY -> depth--
+            else -> Unit
+        }
+        return depth == 0
+    }
+
+    private fun validateString(value: String) {
+        if (schema.minLength != null || schema.maxLength != null) {
+            val length = value.codePointCount(0, value.length)
+            schema.minLength?.let { if (length < it) violation("must be at least $it characters long but is $length") }
+            schema.maxLength?.let { if (length > it) violation("must be at most $it characters long but is $length") }
+        }
+        schema.pattern?.let { if (!it.containsMatchIn(value)) violation("must match pattern '${it.pattern}'") }
+        if (schema.format == "date" && !isDate(value)) violation("'$value' is not a valid ISO-8601 date")
+        validateEnum(value)
+    }
+
+    private fun validateNumber(parser: JsonParser) {
+        if (schema.minimum == null &&
+            schema.exclusiveMinimum == null &&
+            schema.maximum == null &&
+            schema.exclusiveMaximum == null &&
+            schema.enumValues == null
+        ) {
+            return
+        }
+        val value = parser.decimalValue
+        schema.minimum?.let { if (value < it) violation("must be at least $it but is $value") }
+        schema.exclusiveMinimum?.let { if (value <= it) violation("must be greater than $it but is $value") }
+        schema.maximum?.let { if (value > it) violation("must be at most $it but is $value") }
+        schema.exclusiveMaximum?.let { if (value >= it) violation("must be less than $it but is $value") }
+        validateEnum(CompiledSchema.normalize(value))
+    }
+
+    private fun validateEnum(value: Any?) {
+        if (schema.enumValues != null && value !in schema.enumValues) violation("must be one of ${schema.enumValues}")
+    }
+
+    private fun violation(message: String) {
+        violations += Violation(location.toString(), message)
+    }
+
+    private enum class State {
+        START,
+        OBJECT,
+        ARRAY,
+        SKIP,
+    }
+
+    private companion object {
+        fun typeOf(token: JsonToken): JsonType =
+            when (token) {
+                JsonToken.START_OBJECT -> JsonType.OBJECT
+                JsonToken.START_ARRAY -> JsonType.ARRAY
+                JsonToken.VALUE_STRING -> JsonType.STRING
+                JsonToken.VALUE_NUMBER_INT -> JsonType.INTEGER
+                JsonToken.VALUE_NUMBER_FLOAT -> JsonType.NUMBER
+                JsonToken.VALUE_TRUE, JsonToken.VALUE_FALSE -> JsonType.BOOLEAN
+                JsonToken.VALUE_NULL -> JsonType.NULL
+                else -> throw IllegalStateException("Unexpected token $token at the start of a value")
+            }
+
+        fun isDate(value: String): Boolean =
+            try {
+                LocalDate.parse(value)
+                true
+            } catch (_: DateTimeParseException) {
+                false
+            }
+    }
+}
+
+/**
+ * The location of a value - only converted into a JSON pointer if the value violates the schema.
+ */
+internal class Location private constructor(
+    private val parent: Location?,
+    private val segment: Any,
+) {
+    fun child(segment: Any) = Location(this, segment)
+
+    override fun toString(): String =
+        if (parent == null) "" else "$parent/${segment.toString().replace("~", "~0").replace("/", "~1")}"
+
+    companion object {
+        val ROOT = Location(null, "")
+    }
+}
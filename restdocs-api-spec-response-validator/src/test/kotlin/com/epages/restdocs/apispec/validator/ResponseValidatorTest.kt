@@ -0,0 +1,137 @@
+package com.epages.restdocs.apispec.validator
+
+import com.epages.restdocs.apispec.model.Attributes
+import com.epages.restdocs.apispec.model.Constraint
+import com.epages.restdocs.apispec.model.FieldDescriptor
+import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.Test
+import javax.validation.constraints.Max
+import javax.validation.constraints.Min
+
+class ResponseValidatorTest {
+    private lateinit var validator: ResponseValidator
+
+    private var violations: List<Violation> = emptyList()
+
+    @Test
+    fun `should accept valid body`() {
+        givenProductValidator()
+
+        whenValidated("""{ "id": "1", "name": "Fancy pants", "price": 42, "tags": ["a", "b"], "manufacturer": { "name": "ACME" } }""")
+
+        then(violations).isEmpty()
+    }
+
+    @Test
+    fun `should report wrong types with json pointer`() {
+        givenProductValidator()
+
+        whenValidated("""{ "id": 1, "name": "Fancy pants", "price": "42", "tags": ["a", 2] }""")
+
+        then(violations).containsExactlyInAnyOrder(
+            Violation("/id", "expected type string but was integer"),
+            Violation("/price", "expected type number but was string"),
+            Violation("/tags/1", "expected type string but was integer"),
+        )
+    }
+
+    @Test
+    fun `should report missing required property`() {
+        givenProductValidator()
+
+        whenValidated("""{ "id": "1", "price": 42 }""")
+
+        then(violations).containsExactly(Violation("", "required property 'name' is missing"))
+    }
+
+    @Test
+    fun `should accept null for optional field`() {
+        givenProductValidator()
+
+        whenValidated("""{ "id": "1", "name": "Fancy pants", "price": 42, "manufacturer": null }""")
+
+        then(violations).isEmpty()
+    }
+
+    @Test
+    fun `should report violated constraints`() {
+        validator =
+            ResponseValidator.compile(
+                listOf(
+                    FieldDescriptor(
+                        "quantity",
+                        "the quantity",
+                        "NUMBER",
+                        attributes =
+                            Attributes(
+                                listOf(
+                                    Constraint(Min::class.java.name, mapOf("value" to 1)),
+                                    Constraint(Max::class.java.name, mapOf("value" to 10)),
+                                ),
+                            ),
+                    ),
+                    FieldDescriptor("status", "the status", "ENUM", attributes = Attributes(enumValues = listOf("OPEN", "CLOSED"))),
+                ),
+            )
+
+        whenValidated("""{ "quantity": 11, "status": "UNKNOWN" }""")
+
+        then(violations).containsExactlyInAnyOrder(
+            Violation("/quantity", "must be at most 10 but is 11"),
+            Violation("/status", "must be one of [OPEN, CLOSED]"),
+        )
+    }
+
+    @Test
+    fun `should validate field with multiple types`() {
+        validator =
+            ResponseValidator.compile(
+                listOf(
+                    FieldDescriptor("value", "a string", "STRING"),
+                    FieldDescriptor("value", "or a number", "NUMBER"),
+                ),
+            )
+
+        whenValidated("""{ "value": 42 }""")
+        then(violations).isEmpty()
+
+        whenValidated("""{ "value": true }""")
+        then(violations.map { it.pointer }).containsOnly("/value")
+    }
+
+    @Test
+    fun `should validate root array`() {
+        validator = ResponseValidator.compile(listOf(FieldDescriptor("[].id", "the id", "STRING")))
+
+        whenValidated("""[ { "id": "1" }, { "id": 2 } ]""")
+
+        then(violations).containsExactly(Violation("/1/id", "expected type string but was integer"))
+    }
+
+    @Test
+    fun `should report invalid json`() {
+        givenProductValidator()
+
+        whenValidated("""{ "id": "1", """)
+
+        then(violations).hasSize(1)
+        then(violations.single().message).startsWith("body is not valid JSON")
+    }
+
+    private fun givenProductValidator() {
+        validator =
+            ResponseValidator.compile(
+                listOf(
+                    FieldDescriptor("id", "the id", "STRING"),
+                    FieldDescriptor("name", "the name", "STRING"),
+                    FieldDescriptor("price", "the price", "NUMBER"),
+                    FieldDescriptor("tags", "the tags", "ARRAY", optional = true, attributes = Attributes(itemsType = "string")),
+                    FieldDescriptor("manufacturer", "the manufacturer", "OBJECT", optional = true),
+                ),
+            )
+    }
+
+    private fun whenValidated(body: String) {
+        violations = validator.validate(body)
+    }
+}
@@ -0,0 +1,40 @@
+package com.epages.restdocs.apispec
+
+import java.util.Collections
+import java.util.LinkedHashMap
+
+/**
+ * Small thread-safe LRU cache used to memoize per-JVM results across snippet invocations.
+ *
+ * The snippets are typically invoked for thousands of tests in the same JVM - so the cache is bounded
+ * to keep memory usage independent of the size of the test suite.
+ */
+internal class BoundedCache<K : Any, V : Any>(
+    private val maxSize: Int,
+) {
+    private val entries: MutableMap<K, V> =
+        Collections.synchronizedMap(
+            object : LinkedHashMap<K, V>(16, 0.75f, true) {
+                override fun removeEldestEntry(eldest: MutableMap.MutableEntry<K, V>?): Boolean = size > maxSize
+            },
+        )
+
+    operator fun get(key: K): V? = entries[key]
+
+    operator fun set(
+        key: K,
+        value: V,
+    ) {
+        entries[key] = value
+    }
+
+    fun getOrPut(
+        key: K,
+        valueProvider: () -> V,
+    ): V = entries[key] ?: valueProvider().also { entries[key] = it }
+
+    fun clear() = entries.clear()
+
+    val size: Int
+        get() = entries.size
+}
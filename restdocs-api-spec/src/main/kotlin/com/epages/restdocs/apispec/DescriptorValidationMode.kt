@@ -0,0 +1,54 @@
+package com.epages.restdocs.apispec
+
+/**
+ * Controls how the [ResourceSnippet] validates its descriptors against the documented operation.
+ *
+ * Validation results are cached per JVM - an operation is not validated again if the same descriptors
+ * were already validated against a payload of the same shape.
+ */
+enum class DescriptorValidationMode {
+    /**
+     * Validate all descriptors of every documented operation.
+     */
+    FULL,
+
+    /**
+     * Validate the first and then every [sampleInterval]-th operation documented with the same descriptors.
+     */
+    SAMPLED,
+
+    /**
+     * Skip the validation - use this if the descriptors are already validated by Spring REST Docs snippets,
+     * e.g. when using [RestDocumentationWrapper].
+     *
+     * Field descriptors without an explicit type are still resolved against the payload,
+     * because Spring REST Docs only offers type inference as part of the validation.
+     */
+    OFF,
+    ;
+
+    companion object {
+        const val DEFAULT_MODE_PROPERTY = "restdocs-api-spec.descriptorValidationMode"
+
+        /**
+         * The mode used for [ResourceSnippetParameters] that do not specify a validation mode.
+         * Defaults to the value of the system property [DEFAULT_MODE_PROPERTY] or [FULL].
+         */
+        @JvmStatic
+        var defaultMode: DescriptorValidationMode =
+            System
+                .getProperty(DEFAULT_MODE_PROPERTY)
+                ?.let { valueOf(it.trim().uppercase()) }
+                ?: FULL
+
+        /**
+         * Used by [SAMPLED] - every n-th operation with the same descriptors is validated.
+         */
+        @JvmStatic
+        var sampleInterval: Int = 10
+            set(value) {
+                require(value > 0) { "sampleInterval must be positive but was $value" }
+                field = value
+            }
+    }
+}
@@ -17,11 +17,111 @@ import org.springframework.restdocs.request.ParameterDescriptor
 import org.springframework.restdocs.request.PathParametersSnippet
 import org.springframework.restdocs.request.QueryParametersSnippet
 import org.springframework.restdocs.request.RequestDocumentation.parameterWithName
+import java.util.concurrent.atomic.AtomicInteger
 
 internal object DescriptorValidator {
+    private const val MAX_CACHED_FINGERPRINTS = 10_000
+
+    /**
+     * Field types resolved by a successful validation - keyed by the fingerprint of the descriptors and the payload shape.
+     */
+    private val validatedOperations = BoundedCache<String, ResolvedFieldTypes>(MAX_CACHED_FINGERPRINTS)
+
+    /**
+     * Field types resolved by the last validation of a descriptor set - regardless of the payload shape.
+     */
+    private val resolvedFieldTypesByDescriptors = BoundedCache<String, ResolvedFieldTypes>(MAX_CACHED_FINGERPRINTS)
+
+    private val invocationsByDescriptors = BoundedCache<String, AtomicInteger>(MAX_CACHED_FINGERPRINTS)
+
     fun validatePresentParameters(
         snippetParameters: ResourceSnippetParameters,
         operation: Operation,
+    ) {
+        val descriptorsFingerprint = ValidationFingerprint.ofDescriptors(snippetParameters)
+        when (snippetParameters.validationMode ?: DescriptorValidationMode.defaultMode) {
+            DescriptorValidationMode.FULL ->
+                validateUnlessAlreadyValidated(snippetParameters, operation, descriptorsFingerprint)
+            DescriptorValidationMode.SAMPLED ->
+                if (isSampled(descriptorsFingerprint) || !applyKnownFieldTypes(snippetParameters, descriptorsFingerprint)) {
+                    validateUnlessAlreadyValidated(snippetParameters, operation, descriptorsFingerprint)
+                }
+            DescriptorValidationMode.OFF ->
+                if (!applyKnownFieldTypes(snippetParameters, descriptorsFingerprint)) {
+                    validateFields(snippetParameters, operation)
+                    resolvedFieldTypesByDescriptors[descriptorsFingerprint] = ResolvedFieldTypes.of(snippetParameters)
+                }
+        }
+    }
+
+    internal fun clearCaches() {
+        validatedOperations.clear()
+        resolvedFieldTypesByDescriptors.clear()
+        invocationsByDescriptors.clear()
+    }
+
+    private fun validateUnlessAlreadyValidated(
+        snippetParameters: ResourceSnippetParameters,
+        operation: Operation,
+        descriptorsFingerprint: String,
+    ) {
+        val operationFingerprint = "$descriptorsFingerprint:${ValidationFingerprint.ofPayloadShape(operation)}"
+        val resolvedFieldTypes = validatedOperations[operationFingerprint]
+        if (resolvedFieldTypes != null) {
+            resolvedFieldTypes.applyTo(snippetParameters)
+            return
+        }
+
+        validate(snippetParameters, operation)
+
+        // the validation sets the inferred types on the descriptors - so reused descriptor instances change their fingerprint
+        val validatedDescriptorsFingerprint = ValidationFingerprint.ofDescriptors(snippetParameters)
+        ResolvedFieldTypes.of(snippetParameters).also {
+            validatedOperations[operationFingerprint] = it
+            validatedOperations[operationFingerprint.replaceBefore(':', validatedDescriptorsFingerprint)] = it
+            resolvedFieldTypesByDescriptors[descriptorsFingerprint] = it
+            resolvedFieldTypesByDescriptors[validatedDescriptorsFingerprint] = it
+        }
+    }
+
+    private fun isSampled(descriptorsFingerprint: String): Boolean =
+        invocationsByDescriptors
+            .getOrPut(descriptorsFingerprint) { AtomicInteger() }
+            .getAndIncrement() % DescriptorValidationMode.sampleInterval == 0
+
+    /**
+     * Applies the field types resolved by an earlier validation of the same descriptors.
+     *
+     * @return false if some field descriptors are still without a type
+     */
+    private fun applyKnownFieldTypes(
+        snippetParameters: ResourceSnippetParameters,
+        descriptorsFingerprint: String,
+    ): Boolean {
+        resolvedFieldTypesByDescriptors[descriptorsFingerprint]?.applyTo(snippetParameters)
+        return with(snippetParameters) { (requestFields + responseFieldsWithLinks).all { it.type != null } }
+    }
+
+    private fun validateFields(
+        snippetParameters: ResourceSnippetParameters,
+        operation: Operation,
+    ) {
+        with(snippetParameters) {
+            validateIfDescriptorsPresent(
+                requestFields,
+                operation,
+            ) { RequestFieldsSnippetWrapper(requestFields) }
+
+            validateIfDescriptorsPresent(
+                responseFieldsWithLinks,
+                operation,
+            ) { ResponseFieldsSnippetWrapper(responseFieldsWithLinks) }
+        }
+    }
+
+    private fun validate(
+        snippetParameters: ResourceSnippetParameters,
+        operation: Operation,
     ) {
         with(snippetParameters) {
             validateIfDescriptorsPresent(
@@ -107,6 +207,36 @@ internal object DescriptorValidator {
                 .apply { if (h.optional) optional() }
         }
 
+    private class ResolvedFieldTypes(
+        private val requestFieldTypes: Map<String, Any>,
+        private val responseFieldTypes: Map<String, Any>,
+    ) {
+        fun applyTo(snippetParameters: ResourceSnippetParameters) {
+            applyTo(snippetParameters.requestFields, requestFieldTypes)
+            applyTo(snippetParameters.responseFieldsWithLinks, responseFieldTypes)
+        }
+
+        private fun applyTo(
+            descriptors: List<FieldDescriptor>,
+            fieldTypes: Map<String, Any>,
+        ) = descriptors
+            .filter { it.type == null }
+            .forEach { d -> fieldTypes[d.path]?.let { d.type(it) } }
+
+        companion object {
+            fun of(snippetParameters: ResourceSnippetParameters) =
+                ResolvedFieldTypes(
+                    typesByPath(snippetParameters.requestFields),
+                    typesByPath(snippetParameters.responseFieldsWithLinks),
+                )
+
+            private fun typesByPath(descriptors: List<FieldDescriptor>): Map<String, Any> =
+                descriptors
+                    .filter { it.type != null }
+                    .associate { it.path to it.type }
+        }
+    }
+
     private interface ValidateableSnippet {
         fun validate(operation: Operation)
     }
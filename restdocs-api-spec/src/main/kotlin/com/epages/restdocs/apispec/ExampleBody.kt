@@ -0,0 +1,82 @@
+package com.epages.restdocs.apispec
+
+import tools.jackson.core.JsonGenerator
+import tools.jackson.databind.SerializationContext
+import tools.jackson.databind.ValueSerializer
+import tools.jackson.databind.annotation.JsonSerialize
+import tools.jackson.databind.json.JsonMapper
+import java.io.ByteArrayInputStream
+import java.io.InputStreamReader
+import java.nio.charset.Charset
+
+/**
+ * A request or response body captured as example - serialized as JSON string into the resource fragment, see [RawJson] for the exception.
+ */
+internal sealed interface ExampleBody {
+    fun asString(): String
+
+    /**
+     * @return the UTF-8 encoded example
+     */
+    fun toByteArray(): ByteArray
+
+    @JsonSerialize(using = ExampleBodySerializer::class)
+    class Text(
+        private val value: String,
+    ) : ExampleBody {
+        override fun asString() = value
+
+        override fun toByteArray() = value.toByteArray(Charsets.UTF_8)
+    }
+
+    /**
+     * Written straight from the raw bytes into the fragment - without decoding the complete body into a String.
+     */
+    @JsonSerialize(using = ExampleBodySerializer::class)
+    class Streamed(
+        private val content: ByteArray,
+        private val charset: Charset,
+    ) : ExampleBody {
+        override fun asString() = String(content, charset)
+
+        override fun toByteArray() = if (charset == Charsets.UTF_8) content else asString().toByteArray(Charsets.UTF_8)
+
+        fun reader() = InputStreamReader(ByteArrayInputStream(content), charset)
+    }
+
+    /**
+     * A JSON body written into the fragment as raw JSON value - instead of a JSON string escaping the complete body.
+     *
+     * @param content a single UTF-8 encoded JSON value
+     */
+    @JsonSerialize(using = ExampleBodySerializer::class)
+    class RawJson(
+        private val content: ByteArray,
+    ) : ExampleBody {
+        override fun asString() = String(content, Charsets.UTF_8)
+
+        override fun toByteArray() = content
+    }
+}
+
+internal class ExampleBodySerializer : ValueSerializer<ExampleBody>() {
+    override fun serialize(
+        value: ExampleBody,
+        gen: JsonGenerator,
+        ctxt: SerializationContext,
+    ) {
+        when (value) {
+            is ExampleBody.Text -> gen.writeString(value.asString())
+            is ExampleBody.Streamed -> value.reader().use { gen.writeString(it, -1) }
+            is ExampleBody.RawJson ->
+                objectMapper.createParser(value.toByteArray()).use { parser ->
+                    parser.nextToken()
+                    gen.copyCurrentStructure(parser)
+                }
+        }
+    }
+
+    private companion object {
+        val objectMapper = JsonMapper.builder().build()
+    }
+}
@@ -0,0 +1,207 @@
+package com.epages.restdocs.apispec
+
+import org.springframework.http.MediaType
+import tools.jackson.core.JacksonException
+import tools.jackson.core.JsonGenerator
+import tools.jackson.core.JsonParser
+import tools.jackson.core.JsonToken
+import tools.jackson.databind.SerializationFeature
+import tools.jackson.databind.json.JsonMapper
+import java.io.StringWriter
+import java.nio.charset.Charset
+
+/**
+ * Controls which request and response bodies the [ResourceSnippet] keeps as examples.
+ *
+ * Large examples bloat the resource fragments and the generated API specifications -
+ * so the policy allows to limit their size.
+ */
+data class ExamplePolicy
+    @JvmOverloads
+    constructor(
+        /**
+         * Examples exceeding this number of bytes are omitted. JSON arrays are truncated before the size is checked.
+         */
+        val maxBytes: Int? = null,
+        /**
+         * JSON arrays are truncated to this number of items - the example remains valid JSON.
+         */
+        val maxArrayItems: Int? = null,
+        /**
+         * Omit examples for content types that are not text based - e.g. images or PDF documents.
+         */
+        val omitBinaryContent: Boolean = false,
+        /**
+         * Examples of at least this number of bytes are streamed from the raw body into the resource fragment
+         * instead of being decoded into a String first.
+         */
+        val streamingThreshold: Int? = null,
+        /**
+         * Write each distinct example once to a content addressed store next to the resource fragments
+         * and only reference it from the fragments.
+         */
+        val deduplicate: Boolean = false,
+        /**
+         * Store JSON examples as raw JSON values in the resource fragment instead of JSON strings -
+         * the OpenAPI 3 generator writes them to the specification without escaping them again.
+         * Examples that are not valid UTF-8 encoded JSON are stored as strings.
+         */
+        val rawJson: Boolean = false,
+    ) {
+        init {
+            require(maxBytes == null || maxBytes >= 0) { "maxBytes must not be negative" }
+            require(maxArrayItems == null || maxArrayItems >= 0) { "maxArrayItems must not be negative" }
+            require(streamingThreshold == null || streamingThreshold >= 0) { "streamingThreshold must not be negative" }
+        }
+
+        /**
+         * The content is decoded at most once - or not at all if it is omitted or streamed.
+         *
+         * @return the example to document or null if the example should be omitted
+         */
+        internal fun example(
+            content: ByteArray,
+            contentType: MediaType?,
+        ): ExampleBody? {
+            if (omitBinaryContent && contentType != null && !isTextual(contentType)) return null
+
+            val json = isJson(content, contentType)
+            val truncated = if (maxArrayItems != null && json) truncateArrays(content, maxArrayItems) else null
+            val size = truncated?.toByteArray(Charsets.UTF_8)?.size ?: content.size
+            if (maxBytes != null && size > maxBytes) return null
+
+            // same default as org.springframework.restdocs.operation.OperationRequest.getContentAsString
+            val charset = contentType?.charset ?: Charset.defaultCharset()
+            val raw = rawJson && json && charset == Charsets.UTF_8
+            return when {
+                truncated != null && raw -> ExampleBody.RawJson(truncated.toByteArray(Charsets.UTF_8))
+                truncated != null -> ExampleBody.Text(truncated)
+                raw && isSingleJsonValue(content) -> ExampleBody.RawJson(content)
+                streamingThreshold != null && content.size >= streamingThreshold -> ExampleBody.Streamed(content, charset)
+                else -> ExampleBody.Text(String(content, charset))
+            }
+        }
+
+        companion object {
+            private val objectMapper = JsonMapper.builder().build()
+
+            private val TEXTUAL_SUBTYPES = setOf("json", "xml", "yaml", "x-yaml", "javascript", "x-www-form-urlencoded", "graphql")
+
+            private val TEXTUAL_SUBTYPE_SUFFIXES = setOf("+json", "+xml", "+yaml")
+
+            /**
+             * The policy used for [ResourceSnippetParameters] that do not specify an example policy - keeps all examples by default.
+             */
+            @JvmStatic
+            var defaultPolicy: ExamplePolicy = ExamplePolicy()
+
+            private fun isTextual(contentType: MediaType): Boolean =
+                contentType.type == "text" ||
+                    contentType.charset != null ||
+                    contentType.subtype in TEXTUAL_SUBTYPES ||
+                    TEXTUAL_SUBTYPE_SUFFIXES.any { contentType.subtype.endsWith(it) }
+
+            private fun isJson(
+                content: ByteArray,
+                contentType: MediaType?,
+            ): Boolean =
+                if (contentType != null) {
+                    contentType.subtype == "json" || contentType.subtype.endsWith("+json")
+                } else {
+                    content
+                        .firstOrNull { !Character.isWhitespace(it.toInt()) }
+                        ?.let { it == '{'.code.toByte() || it == '['.code.toByte() }
+                        ?: false
+                }
+
+            private fun isSingleJsonValue(content: ByteArray): Boolean =
+                try {
+                    objectMapper.createParser(content).use { parser ->
+                        val value = parser.nextToken() != null
+                        parser.skipChildren()
+                        value && parser.nextToken() == null
+                    }
+                } catch (_: JacksonException) {
+                    false
+                }
+
+            /**
+             * @return the JSON content with truncated arrays - or null if no array exceeds the limit or the content is not valid JSON
+             */
+            private fun truncateArrays(
+                content: ByteArray,
+                maxArrayItems: Int,
+            ): String? =
+                try {
+                    if (exceedsArrayLimit(content, maxArrayItems)) writeTruncated(content, maxArrayItems) else null
+                } catch (_: JacksonException) {
+                    null
+                }
+
+            private fun exceedsArrayLimit(
+                content: ByteArray,
+                maxArrayItems: Int,
+            ): Boolean =
+                objectMapper.createParser(content).use { parser ->
+                    copyTruncated(parser, null, maxArrayItems)
+                }
+
+            private fun writeTruncated(
+                content: ByteArray,
+                maxArrayItems: Int,
+            ): String {
+                val writer = StringWriter()
+                val objectWriter =
+                    if ('\n'.code.toByte() in content) {
+                        objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT)
+                    } else {
+                        objectMapper.writer()
+                    }
+                objectMapper.createParser(content).use { parser ->
+                    objectWriter.createGenerator(writer).use { generator ->
+                        copyTruncated(parser, generator, maxArrayItems)
+                    }
+                }
+                return writer.toString()
+            }
+
+            /**
+             * Streams the tokens from the parser to the generator and skips the array items exceeding the limit.
+             * Without a generator the content is only scanned - it returns as soon as the first array exceeds the limit.
+             *
+             * @return true if an array was truncated
+             */
+            private fun copyTruncated(
+                parser: JsonParser,
+                generator: JsonGenerator?,
+                maxArrayItems: Int,
+            ): Boolean {
+                var truncated = false
+                // item count of each open array - null for objects
+                val itemCounts = ArrayDeque<Int?>()
+                var token = parser.nextToken()
+                while (token != null) {
+                    val itemCount = itemCounts.lastOrNull()
+                    if (itemCount != null && token != JsonToken.END_ARRAY) {
+                        itemCounts[itemCounts.lastIndex] = itemCount + 1
+                        if (itemCount >= maxArrayItems) {
+                            if (generator == null) return true
+                            truncated = true
+                            parser.skipChildren()
+                            token = parser.nextToken()
+                            continue
+                        }
+                    }
+                    when (token) {
+                        JsonToken.START_ARRAY -> itemCounts.addLast(0)
+                        JsonToken.START_OBJECT -> itemCounts.addLast(null)
+                        JsonToken.END_ARRAY, JsonToken.END_OBJECT -> itemCounts.removeLast()
+                        else -> {}
+                    }
+                    generator?.copyCurrentEvent(parser)
+                    token = parser.nextToken()
+                }
+                return truncated
+            }
+        }
+    }
@@ -0,0 +1,56 @@
+package com.epages.restdocs.apispec
+
+import java.io.File
+import java.nio.file.FileAlreadyExistsException
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
+import java.security.MessageDigest
+import java.util.HexFormat
+
+/**
+ * Content addressed store for example bodies - identical examples are only written once and referenced by their key.
+ */
+internal class ExampleStore(
+    private val directory: File,
+) {
+    /**
+     * @return the key of the stored example
+     */
+    fun store(example: ExampleBody): String {
+        val content = example.toByteArray()
+        val ref = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content), 0, REF_BYTES)
+        val file = File(directory, ref)
+        if (!file.exists()) {
+            write(file, content)
+        }
+        return ref
+    }
+
+    /**
+     * Tests running in parallel might store the same example at the same time - so the file is moved into place atomically.
+     */
+    private fun write(
+        file: File,
+        content: ByteArray,
+    ) {
+        directory.mkdirs()
+        val tempFile = Files.createTempFile(directory.toPath(), file.name, ".tmp")
+        try {
+            Files.write(tempFile, content)
+            Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE)
+        } catch (_: FileAlreadyExistsException) {
+            // stored concurrently - the content is identical
+        } finally {
+            Files.deleteIfExists(tempFile)
+        }
+    }
+
+    companion object {
+        /**
+         * Must match the directory the generators resolve the example references from.
+         */
+        const val DIRECTORY_NAME = "examples"
+
+        private const val REF_BYTES = 16
+    }
+}
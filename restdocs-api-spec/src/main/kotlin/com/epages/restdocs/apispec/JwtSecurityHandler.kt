@@ -1,21 +1,21 @@
 package com.epages.restdocs.apispec
 
-import org.springframework.http.HttpHeaders
-import org.springframework.restdocs.operation.Operation
+import tools.jackson.core.JacksonException
 import tools.jackson.databind.ObjectMapper
 import tools.jackson.module.kotlin.readValue
-import java.io.IOException
 import java.util.Base64
-import java.util.Collections.emptyList
 
 /**
  * Extract a list of scopes from a JWT token
  */
-internal class JwtSecurityHandler : SecurityRequirementsExtractor {
-    override fun extractSecurityRequirements(operation: Operation): SecurityRequirements? {
-        if (!hasJWTBearer(operation)) return null
+internal class JwtSecurityHandler : CredentialsSecurityRequirementsExtractor {
+    override fun supports(credentials: String): Boolean = credentials.startsWith(BEARER_PREFIX)
 
-        val scopes = extractScopes(operation)
+    override fun extractSecurityRequirements(credentials: List<String>): SecurityRequirements? {
+        val jwts = credentials.map { DecodedJwt(it.replace(BEARER_PREFIX, "")) }
+        if (jwts.none { it.hasAlgorithmHeader }) return null
+
+        val scopes = jwts.flatMap { it.scopes }
         return if (scopes.isNotEmpty()) {
             Oauth2(scopes)
         } else {
@@ -23,57 +23,42 @@ internal class JwtSecurityHandler : SecurityRequirementsExtractor {
         }
     }
 
-    private fun hasJWTBearer(operation: Operation): Boolean =
-        getJWT(operation)
-            .any { isJWT(it) }
+    /**
+     * Decodes each part of the JWT at most once - the payload is only decoded if the scopes are requested.
+     */
+    private class DecodedJwt(
+        jwt: String,
+    ) {
+        private val jwtParts = jwt.split(JWT_PART_SEPARATOR).dropLastWhile { it.isEmpty() }
 
-    private fun getJWT(operation: Operation) =
-        operation.request.headers
-            .getOrEmpty(HttpHeaders.AUTHORIZATION)
-            .filter { it.startsWith("Bearer ") }
-            .map { it.replace("Bearer ", "") }
+        val hasAlgorithmHeader: Boolean by lazy { decodePart(0)?.containsKey("alg") ?: false }
 
-    private fun isJWT(jwt: String): Boolean {
-        val jwtParts = jwt.split("\\.".toRegex()).dropLastWhile { it.isEmpty() }
-        if (jwtParts.size >= 2) { // JWT = header, payload, signature; at least the first two should be there
-            val jwtHeader = jwtParts[0]
-            val decodedJwtHeader = String(Base64.getDecoder().decode(jwtHeader))
-            try {
-                return ObjectMapper()
-                    .readValue<Map<String, Any>>(decodedJwtHeader)
-                    .containsKey("alg")
-            } catch (_: IOException) {
-                // probably not JWT
+        @Suppress("UNCHECKED_CAST")
+        val scopes: List<String> by lazy {
+            when (val scope = decodePart(1)?.get("scope")) {
+                // some of oauth2 authorization servers might return scope claims as a set of string
+                is List<*> -> scope as List<String>
+                // standard way of expressing scope claim
+                is String -> scope.trim().split(WHITESPACE)
+                else -> emptyList()
             }
         }
-        return false
-    }
 
-    private fun extractScopes(operation: Operation): List<String> =
-        getJWT(operation)
-            .flatMap { jwt2scopes(it) }
-
-    @Suppress("UNCHECKED_CAST")
-    private fun jwt2scopes(jwt: String): List<String> {
-        val jwtParts = jwt.split("\\.".toRegex()).dropLastWhile { it.isEmpty() }
-        if (jwtParts.size >= 2) { // JWT = header, payload, signature; at least the first two should be there
-            val jwtPayload = jwtParts[1]
-            val decodedPayload = String(Base64.getDecoder().decode(jwtPayload))
-            try {
-                val jwtMap = ObjectMapper().readValue<Map<String, Any>>(decodedPayload)
-                val scope = jwtMap["scope"]
-                // some of oauth2 authorization servers might return scope claims as a set of string
-                if (scope is List<*>) {
-                    return scope as List<String>
-                }
-                if (scope is String) { // standard way of expressing scope claim
-                    return scope.trim().split("\\s+".toRegex())
-                }
-            } catch (_: IOException) {
-                // probably not JWT
+        private fun decodePart(index: Int): Map<String, Any>? {
+            if (jwtParts.size < 2) return null // JWT = header, payload, signature; at least the first two should be there
+            val decodedPart = String(Base64.getDecoder().decode(jwtParts[index]))
+            return try {
+                objectMapper.readValue<Map<String, Any>>(decodedPart)
+            } catch (_: JacksonException) {
+                null // probably not JWT
             }
         }
+    }
 
-        return emptyList()
+    companion object {
+        private const val BEARER_PREFIX = "Bearer "
+        private val JWT_PART_SEPARATOR = "\\.".toRegex()
+        private val WHITESPACE = "\\s+".toRegex()
+        private val objectMapper = ObjectMapper()
     }
 }
@@ -0,0 +1,104 @@
+package com.epages.restdocs.apispec
+
+import tools.jackson.core.JacksonException
+import tools.jackson.module.kotlin.jacksonMapperBuilder
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Index of the resource fragments in a snippets directory - one JSON line per documented resource.
+ *
+ * The generators read the index to select the resource fragments to load - without parsing all of them.
+ * A resource documented again appends another line - the last line of a fragment location wins.
+ */
+internal class ResourceIndex(
+    private val directory: File,
+) {
+    /**
+     * The first append of a JVM to an index compacts it - so the lines of previous test runs do not accumulate.
+     */
+    fun append(entry: Entry) {
+        val line = ByteBuffer.wrap(objectMapper.writeValueAsBytes(entry) + '\n'.code.toByte())
+        directory.mkdirs()
+        // the file lock guards against other JVMs - like forked test workers - only
+        synchronized(ResourceIndex) {
+            FileChannel
+                .open(
+                    File(directory, FILE_NAME).toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE,
+                ).use { channel ->
+                    channel.lock().use {
+                        if (compactedDirectories.add(directory.absolutePath)) compact(channel)
+                        write(channel, line, channel.size())
+                    }
+                }
+        }
+    }
+
+    /**
+     * Keeps the last line of each fragment location - if the index contains more than [MAX_LINES_PER_FRAGMENT] lines per fragment.
+     * Lines not written completely are dropped.
+     */
+    private fun compact(channel: FileChannel) {
+        val content = ByteBuffer.allocate(channel.size().toInt())
+        while (content.hasRemaining() && channel.read(content, content.position().toLong()) >= 0) {
+            // read until the buffer is full
+        }
+        val lines = String(content.array(), Charsets.UTF_8).lines().filter { it.isNotBlank() }
+        val linesByLocation = LinkedHashMap<String, String>()
+        lines.forEach { line -> location(line)?.let { linesByLocation[it] = line } }
+        if (lines.size > MAX_LINES_PER_FRAGMENT * linesByLocation.size) {
+            channel.truncate(0)
+            write(channel, ByteBuffer.wrap(linesByLocation.values.joinToString(separator = "\n", postfix = "\n").toByteArray()), 0)
+        }
+    }
+
+    private fun location(line: String): String? =
+        try {
+            objectMapper.readTree(line)["location"]?.asString()
+        } catch (_: JacksonException) {
+            null
+        }
+
+    private fun write(
+        channel: FileChannel,
+        content: ByteBuffer,
+        start: Long,
+    ) {
+        var position = start
+        while (content.hasRemaining()) {
+            position += channel.write(content, position)
+        }
+    }
+
+    /**
+     * @param location the path of the resource fragment relative to the snippets directory
+     */
+    data class Entry(
+        val operationId: String,
+        val path: String,
+        val method: String,
+        val tags: Set<String>,
+        val privateResource: Boolean,
+        val audiences: Set<String>,
+        val location: String,
+    )
+
+    companion object {
+        /**
+         * Must match the file name the generators read the index from.
+         */
+        const val FILE_NAME = "resource-index.jsonl"
+
+        private const val MAX_LINES_PER_FRAGMENT = 2
+
+        private val objectMapper = jacksonMapperBuilder().build()
+
+        private val compactedDirectories = ConcurrentHashMap.newKeySet<String>()
+    }
+}
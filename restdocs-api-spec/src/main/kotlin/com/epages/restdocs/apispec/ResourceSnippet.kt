@@ -16,6 +16,7 @@ import org.springframework.util.PropertyPlaceholderHelper
 import org.springframework.web.util.UriComponentsBuilder
 import tools.jackson.databind.SerializationFeature
 import tools.jackson.module.kotlin.jacksonMapperBuilder
+import java.io.File
 import java.util.Optional
 
 class ResourceSnippet(
@@ -25,6 +26,8 @@ class ResourceSnippet(
 
     private val propertyPlaceholderHelper = PropertyPlaceholderHelper("{", "}")
 
+    private val securityRequirementsHandler = SecurityRequirementsHandler()
+
     override fun document(operation: Operation) {
         val context =
             operation
@@ -43,7 +46,19 @@ class ResourceSnippet(
                 JsonTemplateFormat,
             )
         ).resolve(operation.name, "resource", context)
-            .use { it.append(objectMapper.writeValueAsString(model)) }
+            .use { objectMapper.writeValue(it, model) }
+
+        ResourceIndex(context.outputDirectory).append(
+            ResourceIndex.Entry(
+                operationId = model.operationId,
+                path = model.request.path.orEmpty(),
+                method = model.request.method,
+                tags = model.tags,
+                privateResource = model.privateResource,
+                audiences = model.audiences,
+                location = "${model.operationId}/resource.${JsonTemplateFormat.fileExtension}",
+            ),
+        )
     }
 
     private fun createModel(
@@ -53,10 +68,18 @@ class ResourceSnippet(
     ): ResourceModel {
         val operationId = propertyPlaceholderHelper.replacePlaceholders(operation.name, placeholderResolverFactory.create(context))
 
-        val hasRequestBody = operation.request.contentAsString.isNotEmpty()
-        val hasResponseBody = operation.response.contentAsString.isNotEmpty()
+        // getContent returns a copy of the body - so we access it once and check for emptiness on the raw bytes
+        val requestContent = operation.request.content
+        val responseContent = operation.response.content
+        val hasRequestBody = requestContent.isNotEmpty()
+        val hasResponseBody = responseContent.isNotEmpty()
+
+        val examplePolicy = resourceSnippetParameters.examplePolicy ?: ExamplePolicy.defaultPolicy
+        val exampleStore = if (examplePolicy.deduplicate) ExampleStore(File(context.outputDirectory, ExampleStore.DIRECTORY_NAME)) else null
+        val requestExample = if (hasRequestBody) examplePolicy.example(requestContent, operation.request.headers.contentType) else null
+        val responseExample = if (hasResponseBody) examplePolicy.example(responseContent, operation.response.headers.contentType) else null
 
-        val securityRequirements = SecurityRequirementsHandler().extractSecurityRequirements(operation)
+        val securityRequirements = securityRequirementsHandler.extractSecurityRequirements(operation)
 
         val tags =
             resourceSnippetParameters.tags.ifEmpty {
@@ -73,6 +96,7 @@ class ResourceSnippet(
             privateResource = resourceSnippetParameters.privateResource,
             deprecated = resourceSnippetParameters.deprecated,
             tags = tags,
+            audiences = resourceSnippetParameters.audiences,
             request =
                 RequestModel(
                     path = getUriPath(operation),
@@ -84,7 +108,9 @@ class ResourceSnippet(
                     formParameters = resourceSnippetParameters.formParameters.filter { !it.isIgnored },
                     schema = resourceSnippetParameters.requestSchema,
                     requestFields = if (hasRequestBody) resourceSnippetParameters.requestFields.filter { !it.isIgnored } else emptyList(),
-                    example = if (hasRequestBody) operation.request.contentAsString else null,
+                    example = requestExample.takeIf { exampleStore == null },
+                    exampleRef = requestExample?.let { exampleStore?.store(it) },
+                    rawExample = requestExample is ExampleBody.RawJson && exampleStore == null,
                     securityRequirements = securityRequirements,
                 ),
             response =
@@ -101,7 +127,9 @@ class ResourceSnippet(
                         } else {
                             emptyList()
                         },
-                    example = if (hasResponseBody) operation.response.contentAsString else null,
+                    example = responseExample.takeIf { exampleStore == null },
+                    exampleRef = responseExample?.let { exampleStore?.store(it) },
+                    rawExample = responseExample is ExampleBody.RawJson && exampleStore == null,
                 ),
         )
     }
@@ -146,6 +174,7 @@ class ResourceSnippet(
         val request: RequestModel,
         val response: ResponseModel,
         val tags: Set<String>,
+        val audiences: Set<String>,
     )
 
     private data class RequestModel(
@@ -158,7 +187,9 @@ class ResourceSnippet(
         val queryParameters: List<ParameterDescriptorWithType>,
         val formParameters: List<ParameterDescriptorWithType>,
         val requestFields: List<FieldDescriptor>,
-        val example: String?,
+        val example: ExampleBody?,
+        val exampleRef: String?,
+        val rawExample: Boolean,
         val securityRequirements: SecurityRequirements?,
     )
 
@@ -168,7 +199,9 @@ class ResourceSnippet(
         val schema: Schema? = null,
         val headers: List<HeaderDescriptorWithType>,
         val responseFields: List<FieldDescriptor>,
-        val example: String?,
+        val example: ExampleBody?,
+        val exampleRef: String?,
+        val rawExample: Boolean,
     )
 
     class MissingUrlTemplateException :
@@ -33,6 +33,13 @@ data class ResourceSnippetParameters
         val requestHeaders: List<HeaderDescriptorWithType> = emptyList(),
         val responseHeaders: List<HeaderDescriptorWithType> = emptyList(),
         val tags: Set<String> = emptySet(),
+        val validationMode: DescriptorValidationMode? = null,
+        val examplePolicy: ExamplePolicy? = null,
+        /**
+         * The audiences the resource is restricted to - e.g. `partner`. Resources without audiences are visible to all audiences
+         * unless they are private.
+         */
+        val audiences: Set<String> = emptySet(),
     ) {
         val responseFieldsWithLinks by lazy { responseFields + links.map(Companion::toFieldDescriptor) }
 
@@ -186,6 +193,8 @@ abstract class ResourceSnippetDetails {
         protected set
     var tags: Set<String> = setOf()
         protected set
+    var audiences: Set<String> = setOf()
+        protected set
 
     abstract fun summary(summary: String?): ResourceSnippetDetails
 
@@ -202,6 +211,11 @@ abstract class ResourceSnippetDetails {
     abstract fun tag(tag: String): ResourceSnippetDetails
 
     abstract fun tags(vararg tags: String): ResourceSnippetDetails
+
+    /**
+     * Not abstract - so subclasses written before audiences were introduced keep compiling.
+     */
+    open fun audiences(vararg audiences: String): ResourceSnippetDetails = apply { this.audiences += audiences }
 }
 
 class ResourceSnippetParametersBuilder : ResourceSnippetDetails() {
@@ -221,6 +235,10 @@ class ResourceSnippetParametersBuilder : ResourceSnippetDetails() {
         private set
     var responseHeaders: List<HeaderDescriptorWithType> = emptyList()
         private set
+    var validationMode: DescriptorValidationMode? = null
+        private set
+    var examplePolicy: ExamplePolicy? = null
+        private set
 
     override fun summary(summary: String?) = apply { this.summary = summary }
 
@@ -305,8 +323,14 @@ class ResourceSnippetParametersBuilder : ResourceSnippetDetails() {
 
     override fun tag(tag: String) = tags(tag)
 
+    fun validationMode(validationMode: DescriptorValidationMode?) = apply { this.validationMode = validationMode }
+
+    fun examplePolicy(examplePolicy: ExamplePolicy?) = apply { this.examplePolicy = examplePolicy }
+
     override fun tags(vararg tags: String) = apply { this.tags += tags }
 
+    override fun audiences(vararg audiences: String) = apply { this.audiences += audiences }
+
     fun build() =
         ResourceSnippetParameters(
             summary,
@@ -324,5 +348,8 @@ class ResourceSnippetParametersBuilder : ResourceSnippetDetails() {
             requestHeaders,
             responseHeaders,
             tags,
+            validationMode,
+            examplePolicy,
+            audiences,
         )
 }
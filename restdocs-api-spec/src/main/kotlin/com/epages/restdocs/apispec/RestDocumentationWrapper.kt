@@ -84,5 +84,6 @@ abstract class RestDocumentationWrapper {
                     .privateResource(resourceDetails.privateResource)
                     .deprecated(resourceDetails.deprecated)
                     .tags(*resourceDetails.tags.toTypedArray())
+                    .audiences(*resourceDetails.audiences.toTypedArray())
         }
 }
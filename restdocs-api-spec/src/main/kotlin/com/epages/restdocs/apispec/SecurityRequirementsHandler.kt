@@ -2,24 +2,97 @@ package com.epages.restdocs.apispec
 
 import org.springframework.http.HttpHeaders
 import org.springframework.restdocs.operation.Operation
+import java.util.Optional
+import java.util.ServiceLoader
 
-internal class SecurityRequirementsHandler {
-    private val handlers =
-        listOf(
-            BasicSecurityHandler(),
-            JwtSecurityHandler(),
-        )
-
+internal class SecurityRequirementsHandler(
+    private val handlers: List<SecurityRequirementsExtractor> = defaultHandlers,
+) {
     fun extractSecurityRequirements(operation: Operation): SecurityRequirements? =
         handlers
-            .map { it.extractSecurityRequirements(operation) }
+            .asSequence()
+            .map { extractSecurityRequirements(it, operation) }
             .firstOrNull { it != null }
+
+    private fun extractSecurityRequirements(
+        handler: SecurityRequirementsExtractor,
+        operation: Operation,
+    ): SecurityRequirements? {
+        if (handler !is CredentialsSecurityRequirementsExtractor) return handler.extractSecurityRequirements(operation)
+
+        val credentials = handler.supportedCredentials(operation)
+        if (credentials.isEmpty()) return null
+
+        return extractedSecurityRequirements
+            .getOrPut(handler to credentials) {
+                Optional.ofNullable(handler.extractSecurityRequirements(credentials))
+            }.orElse(null)
+    }
+
+    companion object {
+        private const val MAX_CACHED_CREDENTIALS = 1_000
+
+        /**
+         * Test suites usually reuse a handful of credentials - so we only parse them once per JVM.
+         * Keyed by the extractor instance - differently configured extractors of the same class may extract other requirements.
+         */
+        private val extractedSecurityRequirements =
+            BoundedCache<Pair<CredentialsSecurityRequirementsExtractor, List<String>>, Optional<SecurityRequirements>>(
+                MAX_CACHED_CREDENTIALS,
+            )
+
+        /**
+         * Extractors registered via [ServiceLoader] take precedence over the built-in ones.
+         */
+        private val defaultHandlers: List<SecurityRequirementsExtractor> by lazy {
+            ServiceLoader.load(SecurityRequirementsExtractor::class.java).toList() +
+                listOf(
+                    BasicSecurityHandler(),
+                    JwtSecurityHandler(),
+                )
+        }
+
+        internal fun clearCaches() = extractedSecurityRequirements.clear()
+    }
 }
 
-internal interface SecurityRequirementsExtractor {
+/**
+ * Extension point to derive the [SecurityRequirements] of a documented operation.
+ *
+ * Custom extractors are registered using the [ServiceLoader] mechanism,
+ * i.e. in `META-INF/services/com.epages.restdocs.apispec.SecurityRequirementsExtractor`.
+ */
+interface SecurityRequirementsExtractor {
     fun extractSecurityRequirements(operation: Operation): SecurityRequirements?
 }
 
+/**
+ * A [SecurityRequirementsExtractor] deriving the [SecurityRequirements] from the `Authorization` header.
+ *
+ * The results are cached per JVM, extractor and credentials - so each distinct credential is only parsed once per extractor.
+ */
+interface CredentialsSecurityRequirementsExtractor : SecurityRequirementsExtractor {
+    /**
+     * @return true if the value of the `Authorization` header can be handled by this extractor
+     */
+    fun supports(credentials: String): Boolean
+
+    /**
+     * @param credentials the supported values of the `Authorization` header - never empty
+     */
+    fun extractSecurityRequirements(credentials: List<String>): SecurityRequirements?
+
+    fun supportedCredentials(operation: Operation): List<String> =
+        operation.request.headers
+            .getOrEmpty(HttpHeaders.AUTHORIZATION)
+            .filter { supports(it) }
+
+    override fun extractSecurityRequirements(operation: Operation): SecurityRequirements? =
+        supportedCredentials(operation)
+            .takeIf { it.isNotEmpty() }
+            ?.let { extractSecurityRequirements(it) }
+}
+
 internal class BasicSecurityHandler : SecurityRequirementsExtractor {
     override fun extractSecurityRequirements(operation: Operation): SecurityRequirements? =
         if (isBasicSecurity(operation)) {
@@ -34,25 +107,29 @@ internal class BasicSecurityHandler : SecurityRequirementsExtractor {
             .any { it.startsWith("Basic ") }
 }
 
-internal interface SecurityRequirements {
+interface SecurityRequirements {
     val type: SecurityType
 }
 
-internal data class Oauth2(
+data class Oauth2(
     val requiredScopes: List<String>,
 ) : SecurityRequirements {
     override val type = SecurityType.OAUTH2
 }
 
-internal object Basic : SecurityRequirements {
+object Basic : SecurityRequirements {
     override val type = SecurityType.BASIC
 }
 
-internal object JWTBearer : SecurityRequirements {
+object JWTBearer : SecurityRequirements {
     override val type = SecurityType.JWT_BEARER
 }
 
-internal enum class SecurityType {
+object ApiKey : SecurityRequirements {
+    override val type = SecurityType.API_KEY
+}
+
+enum class SecurityType {
     OAUTH2,
     BASIC,
     API_KEY,
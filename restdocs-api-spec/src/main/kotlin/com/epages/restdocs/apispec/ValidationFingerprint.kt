@@ -0,0 +1,130 @@
+package com.epages.restdocs.apispec
+
+import org.springframework.http.HttpHeaders
+import org.springframework.restdocs.generate.RestDocumentationGenerator.ATTRIBUTE_NAME_URL_TEMPLATE
+import org.springframework.restdocs.hypermedia.LinkDescriptor
+import org.springframework.restdocs.operation.Operation
+import org.springframework.restdocs.payload.FieldDescriptor
+import tools.jackson.core.JacksonException
+import tools.jackson.core.JsonToken
+import tools.jackson.databind.json.JsonMapper
+import java.security.MessageDigest
+import java.util.Base64
+
+/**
+ * Computes the fingerprints [DescriptorValidator] uses to detect operations that were already validated.
+ *
+ * The payload fingerprint only captures the shape of an operation - the field names and value types of JSON bodies,
+ * the names of headers and query parameters - because the values do not influence the outcome of the validation.
+ */
+internal object ValidationFingerprint {
+    private val objectMapper = JsonMapper.builder().build()
+
+    fun ofDescriptors(snippetParameters: ResourceSnippetParameters): String =
+        with(snippetParameters) {
+            Digest()
+                .addFields(requestFields)
+                .addFields(responseFields)
+                .addLinks(links)
+                .addParameters(pathParameters)
+                .addParameters(queryParameters)
+                .addParameters(formParameters)
+                .addHeaders(requestHeaders)
+                .addHeaders(responseHeaders)
+                .value()
+        }
+
+    fun ofPayloadShape(operation: Operation): String =
+        Digest()
+            .add(operation.attributes[ATTRIBUTE_NAME_URL_TEMPLATE])
+            .addAll(queryParameterNames(operation.request.uri.rawQuery))
+            .addHeaderNames(operation.request.headers)
+            .add(operation.request.headers.contentType)
+            .addBodyShape(operation.request.content)
+            .addHeaderNames(operation.response.headers)
+            .add(operation.response.headers.contentType)
+            .addBodyShape(operation.response.content)
+            .value()
+
+    private fun queryParameterNames(rawQuery: String?): List<String> =
+        rawQuery
+            ?.split('&')
+            ?.map { it.substringBefore('=') }
+            ?.sorted()
+            .orEmpty()
+
+    private fun Digest.addFields(descriptors: List<FieldDescriptor>) =
+        addAll(descriptors) { add(it.path).add(it.type).add(it.description).add(it.isOptional).add(it.isIgnored) }
+
+    private fun Digest.addLinks(descriptors: List<LinkDescriptor>) =
+        addAll(descriptors) { add(it.rel).add(it.description).add(it.isOptional).add(it.isIgnored) }
+
+    private fun Digest.addParameters(descriptors: List<ParameterDescriptorWithType>) =
+        addAll(descriptors) { add(it.name).add(it.description).add(it.optional).add(it.isIgnored) }
+
+    private fun Digest.addHeaders(descriptors: List<HeaderDescriptorWithType>) =
+        addAll(descriptors) { add(it.name).add(it.description).add(it.optional) }
+
+    private fun Digest.addHeaderNames(headers: HttpHeaders) = addAll(headers.headerNames().map { it.lowercase() }.sorted())
+
+    private fun Digest.addBodyShape(content: ByteArray): Digest {
+        add(content.size)
+        if (content.isEmpty()) return this
+        if (!looksLikeJson(content)) return addBytes(content)
+        return try {
+            addJsonShape(content)
+        } catch (_: JacksonException) {
+            addBytes(content)
+        }
+    }
+
+    private fun looksLikeJson(content: ByteArray): Boolean =
+        content
+            .firstOrNull { !Character.isWhitespace(it.toInt()) }
+            ?.let { it == '{'.code.toByte() || it == '['.code.toByte() }
+            ?: false
+
+    private fun Digest.addJsonShape(content: ByteArray): Digest {
+        objectMapper.createParser(content).use { parser ->
+            var token = parser.nextToken()
+            while (token != null) {
+                if (token == JsonToken.PROPERTY_NAME) add(parser.currentName()) else add(token.name)
+                token = parser.nextToken()
+            }
+        }
+        return this
+    }
+
+    private class Digest {
+        private val messageDigest = MessageDigest.getInstance("SHA-256")
+
+        fun add(value: Any?) =
+            apply {
+                messageDigest.update((value?.toString() ?: NULL_MARKER).toByteArray(Charsets.UTF_8))
+                messageDigest.update(SEPARATOR)
+            }
+
+        fun addAll(values: List<String>) = apply { values.forEach { add(it) } }
+
+        fun <T> addAll(
+            values: List<T>,
+            addValue: Digest.(T) -> Unit,
+        ) = apply {
+            add(values.size)
+            values.forEach { addValue(it) }
+        }
+
+        fun addBytes(bytes: ByteArray) =
+            apply {
+                messageDigest.update(bytes)
+                messageDigest.update(SEPARATOR)
+            }
+
+        fun value(): String = Base64.getEncoder().encodeToString(messageDigest.digest())
+
+        companion object {
+            private const val NULL_MARKER = "\u0000"
+            private const val SEPARATOR: Byte = 0x1F
+        }
+    }
+}
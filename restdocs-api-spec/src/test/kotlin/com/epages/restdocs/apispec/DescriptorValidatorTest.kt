@@ -0,0 +1,127 @@
+package com.epages.restdocs.apispec
+
+import com.epages.restdocs.apispec.ResourceDocumentation.parameterWithName
+import org.assertj.core.api.BDDAssertions.then
+import org.assertj.core.api.BDDAssertions.thenThrownBy
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+import org.springframework.http.HttpHeaders.CONTENT_TYPE
+import org.springframework.http.MediaType.APPLICATION_JSON_VALUE
+import org.springframework.restdocs.operation.Operation
+import org.springframework.restdocs.payload.FieldDescriptor
+import org.springframework.restdocs.payload.JsonFieldType
+import org.springframework.restdocs.payload.PayloadDocumentation.fieldWithPath
+import org.springframework.restdocs.snippet.SnippetException
+
+class DescriptorValidatorTest {
+    private lateinit var operation: Operation
+
+    @AfterEach
+    fun resetValidationSettings() {
+        DescriptorValidationMode.sampleInterval = 10
+        DescriptorValidator.clearCaches()
+    }
+
+    @Test
+    fun `should resolve field types when validation result is cached`() {
+        givenOperationWithRequestBody()
+        val firstDescriptor = fieldWithPath("comment").description("some")
+        val secondDescriptor = fieldWithPath("comment").description("some")
+
+        whenValidated(parametersWithRequestFields(firstDescriptor))
+        whenValidated(parametersWithRequestFields(secondDescriptor))
+
+        then(firstDescriptor.type).isEqualTo(JsonFieldType.STRING)
+        then(secondDescriptor.type).isEqualTo(JsonFieldType.STRING)
+    }
+
+    @Test
+    fun `should fail on undocumented query parameter when validation is full`() {
+        givenOperationWithUndocumentedQueryParameter()
+
+        thenThrownBy { whenValidated(parametersWithQueryParameter(DescriptorValidationMode.FULL)) }
+            .isInstanceOf(SnippetException::class.java)
+    }
+
+    @Test
+    fun `should skip validation when validation is off`() {
+        givenOperationWithUndocumentedQueryParameter()
+
+        whenValidated(parametersWithQueryParameter(DescriptorValidationMode.OFF))
+    }
+
+    @Test
+    fun `should resolve field types when validation is off`() {
+        givenOperationWithRequestBody()
+        val descriptor = fieldWithPath("comment").description("some")
+
+        whenValidated(parametersWithRequestFields(descriptor, DescriptorValidationMode.OFF))
+
+        then(descriptor.type).isEqualTo(JsonFieldType.STRING)
+    }
+
+    @Test
+    fun `should only validate sampled operations`() {
+        DescriptorValidationMode.sampleInterval = 2
+
+        givenOperationWithDocumentedQueryParameter()
+        whenValidated(parametersWithQueryParameter(DescriptorValidationMode.SAMPLED))
+
+        givenOperationWithUndocumentedQueryParameter()
+        whenValidated(parametersWithQueryParameter(DescriptorValidationMode.SAMPLED))
+
+        thenThrownBy { whenValidated(parametersWithQueryParameter(DescriptorValidationMode.SAMPLED)) }
+            .isInstanceOf(SnippetException::class.java)
+    }
+
+    private fun whenValidated(parameters: ResourceSnippetParameters) {
+        DescriptorValidator.validatePresentParameters(parameters, operation)
+    }
+
+    private fun parametersWithRequestFields(
+        descriptor: FieldDescriptor,
+        validationMode: DescriptorValidationMode = DescriptorValidationMode.FULL,
+    ) = ResourceSnippetParametersBuilder()
+        .requestFields(descriptor)
+        .validationMode(validationMode)
+        .build()
+
+    private fun parametersWithQueryParameter(validationMode: DescriptorValidationMode) =
+        ResourceSnippetParametersBuilder()
+            .queryParameters(parameterWithName("documented").description("some"))
+            .validationMode(validationMode)
+            .build()
+
+    private fun givenOperationWithRequestBody() {
+        operation =
+            OperationBuilder()
+                .testClass(DescriptorValidatorTest::class.java)
+                .testMethodName("givenOperationWithRequestBody")
+                .request("http://localhost:8080/some")
+                .method("POST")
+                .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                .content("{\"comment\": \"some\"}")
+                .build()
+    }
+
+    private fun givenOperationWithDocumentedQueryParameter() {
+        operation =
+            OperationBuilder()
+                .testClass(DescriptorValidatorTest::class.java)
+                .testMethodName("givenOperationWithDocumentedQueryParameter")
+                .request("http://localhost:8080/some")
+                .queryParam("documented", "value")
+                .build()
+    }
+
+    private fun givenOperationWithUndocumentedQueryParameter() {
+        operation =
+            OperationBuilder()
+                .testClass(DescriptorValidatorTest::class.java)
+                .testMethodName("givenOperationWithUndocumentedQueryParameter")
+                .request("http://localhost:8080/some")
+                .queryParam("documented", "value")
+                .queryParam("undocumented", "value")
+                .build()
+    }
+}
@@ -0,0 +1,97 @@
+package com.epages.restdocs.apispec
+
+import com.jayway.jsonpath.JsonPath
+import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.Test
+import org.springframework.http.MediaType
+
+class ExamplePolicyTest {
+    private var example: String? = null
+
+    @Test
+    fun `should keep example unchanged by default`() {
+        whenExampleCaptured(ExamplePolicy(), "[1,2,3]", MediaType.APPLICATION_JSON)
+
+        then(example).isEqualTo("[1,2,3]")
+    }
+
+    @Test
+    fun `should truncate nested json arrays`() {
+        whenExampleCaptured(
+            ExamplePolicy(maxArrayItems = 2),
+            """{"items":[{"id":1,"tags":["a","b","c"]},{"id":2},{"id":3}],"total":3}""",
+            MediaType.APPLICATION_JSON,
+        )
+
+        val json = JsonPath.parse(example)
+        then(json.read<List<*>>("items")).hasSize(2)
+        then(json.read<List<String>>("items[0].tags")).containsExactly("a", "b")
+        then(json.read<Int>("total")).isEqualTo(3)
+    }
+
+    @Test
+    fun `should keep json unchanged when arrays do not exceed limit`() {
+        whenExampleCaptured(ExamplePolicy(maxArrayItems = 2), """{ "items": [1, 2] }""", MediaType.APPLICATION_JSON)
+
+        then(example).isEqualTo("""{ "items": [1, 2] }""")
+    }
+
+    @Test
+    fun `should omit example exceeding max bytes`() {
+        whenExampleCaptured(ExamplePolicy(maxBytes = 5), """{"comment":"some"}""", MediaType.APPLICATION_JSON)
+
+        then(example).isNull()
+    }
+
+    @Test
+    fun `should check max bytes after truncating arrays`() {
+        whenExampleCaptured(ExamplePolicy(maxBytes = 10, maxArrayItems = 1), "[1,2,3,4,5,6,7,8,9]", MediaType.APPLICATION_JSON)
+
+        then(example).isEqualTo("[1]")
+    }
+
+    @Test
+    fun `should stream example exceeding streaming threshold`() {
+        val body = ExamplePolicy(streamingThreshold = 5).example("""{"comment":"some"}""".toByteArray(), MediaType.APPLICATION_JSON)
+
+        then(body).isInstanceOf(ExampleBody.Streamed::class.java)
+        then(body!!.asString()).isEqualTo("""{"comment":"some"}""")
+    }
+
+    @Test
+    fun `should keep json example as raw json`() {
+        val body = ExamplePolicy(rawJson = true).example("""{"comment":"some"}""".toByteArray(), MediaType.APPLICATION_JSON)
+
+        then(body).isInstanceOf(ExampleBody.RawJson::class.java)
+        then(body!!.asString()).isEqualTo("""{"comment":"some"}""")
+    }
+
+    @Test
+    fun `should keep invalid json example as text`() {
+        val body = ExamplePolicy(rawJson = true).example("""{"comment":""".toByteArray(), MediaType.APPLICATION_JSON)
+
+        then(body).isInstanceOf(ExampleBody.Text::class.java)
+    }
+
+    @Test
+    fun `should omit binary example`() {
+        whenExampleCaptured(ExamplePolicy(omitBinaryContent = true), "%PDF-1.4", MediaType.APPLICATION_PDF)
+
+        then(example).isNull()
+    }
+
+    @Test
+    fun `should keep textual example when omitting binary content`() {
+        whenExampleCaptured(ExamplePolicy(omitBinaryContent = true), "<some/>", MediaType.APPLICATION_XML)
+
+        then(example).isEqualTo("<some/>")
+    }
+
+    private fun whenExampleCaptured(
+        policy: ExamplePolicy,
+        content: String,
+        contentType: MediaType,
+    ) {
+        example = policy.example(content.toByteArray(), contentType)?.asString()
+    }
+}
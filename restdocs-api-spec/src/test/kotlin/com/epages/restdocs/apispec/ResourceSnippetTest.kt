@@ -63,6 +63,17 @@ class ResourceSnippetTest {
         then(resourceSnippetJson.read<List<String>>("tags")).isEqualTo(listOf("some"))
     }
 
+    @Test
+    fun should_document_audiences() {
+        givenOperationWithRequestBody()
+        givenRequestFieldDescriptors()
+        parametersBuilder.audiences("partner", "internal")
+
+        whenResourceSnippetInvoked()
+
+        then(resourceSnippetJson.read<List<String>>("audiences")).containsExactly("partner", "internal")
+    }
+
     @Test
     fun should_generate_resourcemodel_for_operation_with_request_and_response_body() {
         givenOperationWithRequestAndResponseBody()
@@ -286,6 +297,69 @@ class ResourceSnippetTest {
         then(resourceSnippetJson.read<String>("response.contentType")).isEqualTo("application/json;format=format-1")
     }
 
+    @Test
+    fun should_reference_deduplicated_examples() {
+        givenOperationWithRequestAndResponseBody()
+        parametersBuilder.examplePolicy(ExamplePolicy(deduplicate = true))
+
+        whenResourceSnippetInvoked()
+
+        thenSnippetFileExists()
+        then(resourceSnippetJson.read<String>("request.example")).isNull()
+        val exampleRef = resourceSnippetJson.read<String>("request.exampleRef")
+        then(resourceSnippetJson.read<String>("response.exampleRef")).isEqualTo(exampleRef)
+        then(File(rootOutputDirectory, "examples").listFiles()).hasSize(1)
+        then(File(rootOutputDirectory, "examples/$exampleRef")).hasContent(operation.request.contentAsString)
+    }
+
+    @Test
+    fun should_write_raw_json_examples() {
+        givenOperationWithRequestAndResponseBody()
+        parametersBuilder.examplePolicy(ExamplePolicy(rawJson = true))
+
+        whenResourceSnippetInvoked()
+
+        thenSnippetFileExists()
+        then(resourceSnippetJson.read<String>("request.example.comment")).isEqualTo("some")
+        then(resourceSnippetJson.read<Boolean>("request.rawExample")).isTrue()
+        then(resourceSnippetJson.read<String>("response.example.comment")).isEqualTo("some")
+        then(resourceSnippetJson.read<Boolean>("response.rawExample")).isTrue()
+    }
+
+    @Test
+    fun should_append_resource_to_index() {
+        givenOperationWithRequestBody()
+        parametersBuilder.privateResource(true).audiences("partner")
+
+        whenResourceSnippetInvoked()
+        whenResourceSnippetInvoked()
+
+        val lines = File(rootOutputDirectory, "resource-index.jsonl").readLines()
+        then(lines).hasSize(2)
+        val entry = JsonPath.parse(lines.last())
+        then(entry.read<String>("operationId")).isEqualTo(operationName)
+        then(entry.read<String>("path")).isEqualTo("/some/{id}")
+        then(entry.read<String>("method")).isEqualTo("POST")
+        then(entry.read<List<String>>("tags")).containsExactly("some")
+        then(entry.read<Boolean>("privateResource")).isTrue()
+        then(entry.read<List<String>>("audiences")).containsExactly("partner")
+        then(entry.read<String>("location")).isEqualTo("$operationName/resource.json")
+    }
+
+    @Test
+    fun should_compact_index_of_previous_runs_on_first_append() {
+        givenOperationWithRequestBody()
+        val previousLine = """{"operationId":"$operationName","location":"$operationName/resource.json"}"""
+        File(rootOutputDirectory, "resource-index.jsonl").writeText("$previousLine\n$previousLine\n$previousLine\n{\"operationId\":")
+
+        whenResourceSnippetInvoked()
+
+        val lines = File(rootOutputDirectory, "resource-index.jsonl").readLines()
+        then(lines).hasSize(2)
+        then(lines.first()).isEqualTo(previousLine)
+        then(JsonPath.parse(lines.last()).read<String>("path")).isEqualTo("/some/{id}")
+    }
+
     private fun givenTag() {
         parametersBuilder.tag("some")
         parametersBuilder.tags("someOther", "somethingElse")
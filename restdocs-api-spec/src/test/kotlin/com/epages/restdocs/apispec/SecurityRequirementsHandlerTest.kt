@@ -1,6 +1,7 @@
 package com.epages.restdocs.apispec
 
 import org.assertj.core.api.BDDAssertions.then
+import org.junit.jupiter.api.BeforeEach
 import org.junit.jupiter.api.Test
 import org.springframework.http.HttpHeaders
 import org.springframework.restdocs.operation.Operation
@@ -11,6 +12,11 @@ class SecurityRequirementsHandlerTest {
 
     private val securityRequirementsHandler = SecurityRequirementsHandler()
 
+    @BeforeEach
+    fun clearCaches() {
+        SecurityRequirementsHandler.clearCaches()
+    }
+
     @Test
     fun `should return basic security requirements`() {
         givenRequestWithBasicAuthHeader()
@@ -38,6 +44,33 @@ class SecurityRequirementsHandlerTest {
         then(securityRequirements).isNull()
     }
 
+    @Test
+    fun `should extract security requirements once per credentials`() {
+        val apiKeyExtractor = CountingApiKeyExtractor()
+        givenRequestWithApiKeyAuthHeader()
+
+        whenSecurityRequirementsExtracted(SecurityRequirementsHandler(listOf(apiKeyExtractor)))
+        whenSecurityRequirementsExtracted(SecurityRequirementsHandler(listOf(apiKeyExtractor)))
+
+        then(securityRequirements).isEqualTo(ApiKey)
+        then(apiKeyExtractor.invocations).isEqualTo(1)
+    }
+
+    @Test
+    fun `should extract security requirements per extractor instance`() {
+        givenRequestWithApiKeyAuthHeader()
+
+        whenSecurityRequirementsExtracted(SecurityRequirementsHandler(listOf(CountingApiKeyExtractor())))
+        then(securityRequirements).isEqualTo(ApiKey)
+
+        whenSecurityRequirementsExtracted(SecurityRequirementsHandler(listOf(CountingApiKeyExtractor(Oauth2(listOf("read"))))))
+        then(securityRequirements).isEqualTo(Oauth2(listOf("read")))
+    }
+
+    private fun whenSecurityRequirementsExtracted(handler: SecurityRequirementsHandler) {
+        securityRequirements = handler.extractSecurityRequirements(operation)
+    }
+
     private fun whenSecurityRequirementsExtracted() {
         securityRequirements = securityRequirementsHandler.extractSecurityRequirements(operation)
     }
@@ -52,6 +85,16 @@ class SecurityRequirementsHandlerTest {
                 .build()
     }
 
+    private fun givenRequestWithApiKeyAuthHeader() {
+        operation =
+            OperationBuilder()
+                .testClass(SecurityRequirementsHandlerTest::class.java)
+                .testMethodName("shouldExtractSecurityRequirementsOncePerCredentials")
+                .request("/some")
+                .header(HttpHeaders.AUTHORIZATION, "ApiKey some-key")
+                .build()
+    }
+
     private fun givenRequestWithJwtInAuthorizationHeader() {
         operation =
             OperationBuilder()
@@ -72,4 +115,17 @@ class SecurityRequirementsHandlerTest {
                 .request("/some")
                 .build()
     }
+
+    private class CountingApiKeyExtractor(
+        private val securityRequirements: SecurityRequirements = ApiKey,
+    ) : CredentialsSecurityRequirementsExtractor {
+        var invocations = 0
+
+        override fun supports(credentials: String) = credentials.startsWith("ApiKey ")
+
+        override fun extractSecurityRequirements(credentials: List<String>): SecurityRequirements {
+            invocations++
+            return securityRequirements
+        }
+    }
 }